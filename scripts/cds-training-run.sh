@@ -0,0 +1,19 @@
+#!/bin/sh
+# Builds the faststart jar and records an AppCDS archive of every class loaded until the Spring context has been
+# refreshed, then prints the command starting the ledger from the archive. Extra arguments are passed to the
+# training run, use the same ledger.* mode properties as production so the same classes are archived.
+set -e
+cd "$(dirname "$0")/.."
+
+mvn -B -q -Pfaststart -DskipTests package
+JAR=target/BankingApplication-1.0.0.jar
+ARCHIVE=target/ledger.jsa
+JAVA_OPTS="-Dspring.aot.enabled=true"
+
+# Training run against a throwaway database, the context exits as soon as it has been refreshed
+java -XX:DumpLoadedClassList=target/ledger.classlist $JAVA_OPTS -Dspring.context.exit=onRefresh -jar "$JAR" \
+	--spring.profiles.active=faststart --spring.datasource.url=jdbc:h2:mem:cds-training "$@"
+# Static archive from the class list, -XX:ArchiveClassesAtExit crashes some JDK 21 builds while dumping
+java -Xshare:dump -XX:SharedClassListFile=target/ledger.classlist -XX:SharedArchiveFile="$ARCHIVE" -cp "$JAR"
+
+echo "Start with: java -XX:SharedArchiveFile=$ARCHIVE $JAVA_OPTS -jar $JAR --spring.profiles.active=faststart"
@@ -0,0 +1,49 @@
+package dev.codescreen.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.codescreen.utils.EventIds;
+
+/**
+ * Cost of generating an event ID, with the SecureRandom backed random UUID it replaced as a
+ * baseline. The contended variants call the generators from four threads at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class EventIdBenchmark {
+
+	@Benchmark
+	public UUID eventIds() {
+		return EventIds.next();
+	}
+
+	@Benchmark
+	public UUID randomUUID() {
+		return UUID.randomUUID();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public UUID eventIdsContended() {
+		return EventIds.next();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public UUID randomUUIDContended() {
+		return UUID.randomUUID();
+	}
+}
@@ -0,0 +1,34 @@
+package dev.codescreen.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.codescreen.BankLedgerApplication;
+
+/**
+ * Starts the ledger without the web layer against a private in-memory H2 database, so every
+ * benchmark trial begins from the same empty state.
+ */
+final class LedgerContext {
+
+	private LedgerContext() {
+	}
+
+	static ConfigurableApplicationContext start(String name, Map<String, Object> properties) {
+		Map<String, Object> settings = new LinkedHashMap<>();
+		settings.put("spring.datasource.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+		settings.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+		settings.put("spring.h2.console.enabled", "false");
+		settings.put("logging.level.root", "WARN");
+		settings.put("logging.level.dev.codescreen", "OFF");
+		settings.putAll(properties);
+		// Passed as command line arguments so they take precedence over application.properties
+		String[] args = settings.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue())
+				.toArray(String[]::new);
+		return new SpringApplicationBuilder(BankLedgerApplication.class).web(WebApplicationType.NONE).run(args);
+	}
+}
@@ -0,0 +1,128 @@
+package dev.codescreen.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.codescreen.Service.BankLedgerService;
+import dev.codescreen.model.AuthorizationResult;
+import dev.codescreen.model.BatchItem;
+import dev.codescreen.model.BatchResult;
+
+/**
+ * Throughput of BankLedgerService for each balance engine. The uncontended benchmarks give
+ * every thread its own account; the contended ones point all threads at a single account.
+ * Every call uses a fresh messageId so none of them is answered from the idempotency cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class LedgerServiceBenchmark {
+	// Large enough that authorizations never run the accounts dry during a trial
+	private static final long OPENING_BALANCE = 1_000_000_000_000L;
+	private static final int BATCH_SIZE = 100;
+
+	@State(Scope.Benchmark)
+	public static class Ledger {
+		@Param({ "jpa", "in-memory" })
+		public String engine;
+
+		ConfigurableApplicationContext context;
+		BankLedgerService ledgerService;
+		final AtomicLong messageIds = new AtomicLong();
+		final AtomicLong accounts = new AtomicLong();
+
+		@Setup(Level.Trial)
+		public void start() {
+			context = LedgerContext.start("ledger-" + engine, Map.of("ledger.balance-engine", engine));
+			ledgerService = context.getBean(BankLedgerService.class);
+			ledgerService.loadFunds("shared", nextMessageId(), OPENING_BALANCE);
+		}
+
+		@TearDown(Level.Trial)
+		public void stop() {
+			context.close();
+		}
+
+		String nextMessageId() {
+			return "msg-" + messageIds.incrementAndGet();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Account {
+		String userId;
+		// Holds less than any authorization asks for
+		String emptyUserId;
+
+		@Setup(Level.Trial)
+		public void open(Ledger ledger) {
+			userId = "user-" + ledger.accounts.incrementAndGet();
+			ledger.ledgerService.loadFunds(userId, ledger.nextMessageId(), OPENING_BALANCE);
+			emptyUserId = "empty-" + ledger.accounts.incrementAndGet();
+			ledger.ledgerService.loadFunds(emptyUserId, ledger.nextMessageId(), 1);
+		}
+	}
+
+	// Scores are batches per second, multiply by BATCH_SIZE to compare with loadFunds
+	@Benchmark
+	@Threads(4)
+	public List<BatchResult> loadFundsBatch(Ledger ledger, Account account) {
+		List<BatchItem> items = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			items.add(new BatchItem(account.userId, ledger.nextMessageId(), 100));
+		}
+		return ledger.ledgerService.loadFundsBatch(items);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public long loadFunds(Ledger ledger, Account account) {
+		return ledger.ledgerService.loadFunds(account.userId, ledger.nextMessageId(), 100);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public AuthorizationResult authorizeTransaction(Ledger ledger, Account account) {
+		return ledger.ledgerService.authorizeTransaction(account.userId, ledger.nextMessageId(), 100);
+	}
+
+	// Every authorization is declined, compare with authorizeTransaction
+	@Benchmark
+	@Threads(4)
+	public AuthorizationResult authorizeTransactionDeclined(Ledger ledger, Account account) {
+		return ledger.ledgerService.authorizeTransaction(account.emptyUserId, ledger.nextMessageId(), 100);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public AuthorizationResult authorizeTransactionContended(Ledger ledger) {
+		return ledger.ledgerService.authorizeTransaction("shared", ledger.nextMessageId(), 100);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public long loadFundsContended(Ledger ledger) {
+		return ledger.ledgerService.loadFunds("shared", ledger.nextMessageId(), 100);
+	}
+}
@@ -0,0 +1,132 @@
+package dev.codescreen.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed loop HTTP load test against a running ledger. Every client alternates a load and an
+ * authorization of the same amount on its own account, waiting for each response before
+ * sending the next request, so the number of clients is the number of requests in flight.
+ * Each client runs on a virtual thread so 10k clients do not need 10k platform threads on the
+ * load generator side.
+ *
+ * Arguments, all optional: --url http://localhost:8080 --clients 1000 --warmup-seconds 10
+ * --seconds 30
+ */
+public final class LoadTestClient {
+
+	public static void main(String[] args) throws Exception {
+		String url = option(args, "--url", "http://localhost:8080");
+		int clients = Integer.parseInt(option(args, "--clients", "1000"));
+		long warmupNanos = Duration.ofSeconds(Long.parseLong(option(args, "--warmup-seconds", "10"))).toNanos();
+		long measureNanos = Duration.ofSeconds(Long.parseLong(option(args, "--seconds", "30"))).toNanos();
+
+		HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(30)).executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+		long runId = System.currentTimeMillis();
+		long start = System.nanoTime();
+		long measureFrom = start + warmupNanos;
+		long measureUntil = measureFrom + measureNanos;
+		AtomicLong errors = new AtomicLong();
+		List<Recorder> recorders = new ArrayList<>(clients);
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int client = 0; client < clients; client++) {
+				Recorder recorder = new Recorder();
+				recorders.add(recorder);
+				String userId = "load-test-" + runId + "-" + client;
+				executor.submit(() -> {
+					long sequence = 0;
+					while (System.nanoTime() < measureUntil) {
+						String path = sequence % 2 == 0 ? "/load" : "/authorization";
+						String type = sequence % 2 == 0 ? "CREDIT" : "DEBIT";
+						String body = "{\"userId\":\"" + userId + "\",\"messageId\":\"" + userId + "-" + sequence++
+								+ "\",\"transactionAmount\":{\"amount\":\"1.00\",\"currency\":\"USD\",\"debitOrCredit\":\""
+								+ type + "\"}}";
+						HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+								.header("Content-Type", "application/json").timeout(Duration.ofSeconds(60))
+								.PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+						long sent = System.nanoTime();
+						boolean failed;
+						try {
+							failed = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 201;
+						} catch (Exception ex) {
+							failed = true;
+						}
+						long received = System.nanoTime();
+						if (sent >= measureFrom && received <= measureUntil) {
+							if (failed) {
+								errors.incrementAndGet();
+							} else {
+								recorder.record((received - sent) / 1_000);
+							}
+						}
+					}
+					return null;
+				});
+			}
+		}
+
+		long[] latencies = merge(recorders);
+		double seconds = measureNanos / 1e9;
+		System.out.printf("clients=%d requests=%d errors=%d throughput=%.0f req/s "
+				+ "p50=%.2f ms p90=%.2f ms p99=%.2f ms max=%.2f ms%n", clients, latencies.length, errors.get(),
+				latencies.length / seconds, percentile(latencies, 0.50), percentile(latencies, 0.90),
+				percentile(latencies, 0.99), percentile(latencies, 1.0));
+	}
+
+	private static String option(String[] args, String name, String defaultValue) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return defaultValue;
+	}
+
+	private static long[] merge(List<Recorder> recorders) {
+		int total = 0;
+		for (Recorder recorder : recorders) {
+			total += recorder.count;
+		}
+		long[] merged = new long[total];
+		int position = 0;
+		for (Recorder recorder : recorders) {
+			System.arraycopy(recorder.latencies, 0, merged, position, recorder.count);
+			position += recorder.count;
+		}
+		Arrays.sort(merged);
+		return merged;
+	}
+
+	// Latency in milliseconds at the given quantile of the sorted microsecond latencies
+	private static double percentile(long[] sortedMicros, double quantile) {
+		if (sortedMicros.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.min(sortedMicros.length - 1, Math.ceil(quantile * sortedMicros.length) - 1);
+		return sortedMicros[Math.max(index, 0)] / 1_000.0;
+	}
+
+	// Latencies of one client, only touched by that client's thread until the run is over
+	private static final class Recorder {
+		private long[] latencies = new long[1024];
+		private int count;
+
+		void record(long micros) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = micros;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package dev.codescreen.benchmark;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.codescreen.Service.BankLedgerService;
+import dev.codescreen.exceptions.LedgerOverloaded;
+
+/**
+ * Throughput of authorizations against USER_BALANCE under each ledger.locking.strategy as the
+ * number of concurrent clients per account grows. Every strategy and client count gets a fresh
+ * ledger; each client runs on a virtual thread and sends authorizations to its account in a
+ * closed loop, so clients per account is the number of transactions competing for one row.
+ * Requests beyond the Hikari pool wait for a connection, as they would in the server.
+ *
+ * Arguments, all optional: --strategies optimistic,pessimistic,atomic --clients-per-account
+ * 1,10,1000 --accounts 4 --pool-size 10 --warmup-seconds 5 --seconds 15
+ */
+public final class LockingContentionBenchmark {
+	// Large enough that authorizations never run the accounts dry during a run
+	private static final long OPENING_BALANCE = 1_000_000_000_000L;
+
+	public static void main(String[] args) throws Exception {
+		String[] strategies = option(args, "--strategies", "optimistic,pessimistic,atomic").split(",");
+		int[] clientCounts = Arrays.stream(option(args, "--clients-per-account", "1,10,1000").split(","))
+				.mapToInt(Integer::parseInt).toArray();
+		int accounts = Integer.parseInt(option(args, "--accounts", "4"));
+		String poolSize = option(args, "--pool-size", "10");
+		long warmupNanos = Duration.ofSeconds(Long.parseLong(option(args, "--warmup-seconds", "5"))).toNanos();
+		long measureNanos = Duration.ofSeconds(Long.parseLong(option(args, "--seconds", "15"))).toNanos();
+
+		for (String strategy : strategies) {
+			for (int clientsPerAccount : clientCounts) {
+				ConfigurableApplicationContext context = LedgerContext.start(
+						"locking-" + strategy + "-" + clientsPerAccount,
+						Map.of("ledger.locking.strategy", strategy, "spring.datasource.hikari.maximum-pool-size", poolSize));
+				try {
+					run(context.getBean(BankLedgerService.class), strategy, accounts, clientsPerAccount, warmupNanos,
+							measureNanos);
+				} finally {
+					context.close();
+				}
+			}
+		}
+	}
+
+	private static void run(BankLedgerService ledgerService, String strategy, int accounts, int clientsPerAccount,
+			long warmupNanos, long measureNanos) {
+		for (int account = 0; account < accounts; account++) {
+			ledgerService.loadFunds("account-" + account, "opening-" + account, OPENING_BALANCE);
+		}
+		long start = System.nanoTime();
+		long measureFrom = start + warmupNanos;
+		long measureUntil = measureFrom + measureNanos;
+		AtomicLong messageIds = new AtomicLong();
+		AtomicLong completed = new AtomicLong();
+		AtomicLong rejected = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int client = 0; client < accounts * clientsPerAccount; client++) {
+				String userId = "account-" + client % accounts;
+				executor.submit(() -> {
+					while (System.nanoTime() < measureUntil) {
+						long sent = System.nanoTime();
+						AtomicLong outcome = completed;
+						try {
+							ledgerService.authorizeTransaction(userId, "msg-" + messageIds.incrementAndGet(), 1);
+						} catch (LedgerOverloaded ex) {
+							outcome = rejected;
+						} catch (RuntimeException ex) {
+							outcome = errors;
+						}
+						if (sent >= measureFrom && System.nanoTime() <= measureUntil) {
+							outcome.incrementAndGet();
+						}
+					}
+				});
+			}
+		}
+
+		double seconds = measureNanos / 1e9;
+		System.out.printf("strategy=%s clients_per_account=%d accounts=%d throughput=%.0f tx/s rejected=%d errors=%d%n",
+				strategy, clientsPerAccount, accounts, completed.get() / seconds, rejected.get(), errors.get());
+	}
+
+	private static String option(String[] args, String name, String defaultValue) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return defaultValue;
+	}
+}
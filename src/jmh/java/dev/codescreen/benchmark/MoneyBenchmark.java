@@ -0,0 +1,62 @@
+package dev.codescreen.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.codescreen.utils.Utils;
+
+/**
+ * Cost of turning request amounts into minor units and balances back into response strings,
+ * with the double based implementation it replaced as a baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+
+	@Param({ "3.23", "100", "1234567.89" })
+	private String amount;
+
+	private long minorUnits;
+	private double majorUnits;
+
+	@Setup
+	public void setUp() {
+		minorUnits = Utils.parseAmount(amount);
+		majorUnits = Double.parseDouble(amount);
+	}
+
+	@Benchmark
+	public long parseAmount() {
+		return Utils.parseAmount(amount);
+	}
+
+	@Benchmark
+	public String formatAmount() {
+		return Utils.formatAmount(minorUnits);
+	}
+
+	@Benchmark
+	public double parseAmountWithDouble() {
+		return Double.parseDouble(amount);
+	}
+
+	@Benchmark
+	public String formatAmountWithFormatter() {
+		return String.format("%,.2f", majorUnits);
+	}
+}
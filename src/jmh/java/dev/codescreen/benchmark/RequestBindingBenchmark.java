@@ -0,0 +1,84 @@
+package dev.codescreen.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.codescreen.codec.LedgerJsonCodec;
+import dev.codescreen.model.Amount;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.request.AuthorizationRequest;
+import dev.codescreen.model.response.AuthorizationResponse;
+import dev.codescreen.model.response.ResponseCode;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+/**
+ * Cost of binding and validating an /authorization request body and writing its response, with
+ * the Jackson ObjectMapper used by Spring MVC and with the {@link LedgerJsonCodec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class RequestBindingBenchmark {
+	static final byte[] AUTHORIZATION_REQUEST = ("{\"userId\":\"8786e2f9-d472-46a8-958f-d659880e723d\","
+			+ "\"messageId\":\"50e70c62-e480-49fc-bc1b-e991ac672173\","
+			+ "\"transactionAmount\":{\"amount\":\"9000\",\"currency\":\"USD\",\"debitOrCredit\":\"DEBIT\"}}")
+			.getBytes(StandardCharsets.UTF_8);
+
+	private ObjectMapper objectMapper;
+	private Validator validator;
+	private AuthorizationResponse response;
+
+	@Setup
+	public void setUp() {
+		objectMapper = new ObjectMapper();
+		validator = Validation.buildDefaultValidatorFactory().getValidator();
+		response = AuthorizationResponse.builder().userId("8786e2f9-d472-46a8-958f-d659880e723d")
+				.messageId("50e70c62-e480-49fc-bc1b-e991ac672173").responseCode(ResponseCode.APPROVED)
+				.balance(Amount.builder().amount("1,000.00").currency("USD").debitOrCredit(DebitCredit.DEBIT).build())
+				.build();
+	}
+
+	@Benchmark
+	public AuthorizationRequest bindAuthorizationRequest() throws Exception {
+		return objectMapper.readValue(AUTHORIZATION_REQUEST, AuthorizationRequest.class);
+	}
+
+	@Benchmark
+	public Object bindAuthorizationRequestWithCodec() {
+		return LedgerJsonCodec.read(AuthorizationRequest.class, AUTHORIZATION_REQUEST, AUTHORIZATION_REQUEST.length);
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<AuthorizationRequest>> validateAuthorizationRequest() throws Exception {
+		return validator.validate(objectMapper.readValue(AUTHORIZATION_REQUEST, AuthorizationRequest.class));
+	}
+
+	@Benchmark
+	public byte[] writeAuthorizationResponse() throws Exception {
+		return objectMapper.writeValueAsBytes(response);
+	}
+
+	@Benchmark
+	public byte[] writeAuthorizationResponseWithCodec() {
+		return LedgerJsonCodec.write(response);
+	}
+}
@@ -0,0 +1,100 @@
+package dev.codescreen.benchmark;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first authorization of a freshly started ledger: the time from launching the JVM
+ * until the first PUT /authorization has been answered, which is what a rolling deploy or a
+ * scale out waits for. Each run starts the jar in a new JVM on its own in-memory database,
+ * polls /load until the server accepts it, sends one authorization and stops the JVM.
+ *
+ * Arguments: --jar target/BankingApplication-1.0.0.jar, optional --runs 5 --port 18080
+ * --jvm-args "-XX:SharedArchiveFile=target/ledger.jsa -Dspring.aot.enabled=true"
+ * --app-args "--spring.profiles.active=faststart" --timeout-seconds 120
+ */
+public final class StartupBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String jar = option(args, "--jar", null);
+		if (jar == null) {
+			throw new IllegalArgumentException("--jar is required");
+		}
+		int runs = Integer.parseInt(option(args, "--runs", "5"));
+		int port = Integer.parseInt(option(args, "--port", "18080"));
+		String jvmArgs = option(args, "--jvm-args", "");
+		String appArgs = option(args, "--app-args", "");
+		long timeoutNanos = Duration.ofSeconds(Long.parseLong(option(args, "--timeout-seconds", "120"))).toNanos();
+		String java = ProcessHandle.current().info().command().orElse("java");
+
+		HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(1)).build();
+		long[] millis = new long[runs];
+		for (int run = 0; run < runs; run++) {
+			List<String> command = new ArrayList<>();
+			command.add(java);
+			command.addAll(split(jvmArgs));
+			command.addAll(List.of("-jar", jar, "--server.port=" + port,
+					"--spring.datasource.url=jdbc:h2:mem:startup-" + run));
+			command.addAll(split(appArgs));
+			long start = System.nanoTime();
+			Process process = new ProcessBuilder(command).redirectErrorStream(true)
+					.redirectOutput(new File("target/startup-run-" + run + ".log")).start();
+			try {
+				String url = "http://localhost:" + port;
+				while (send(httpClient, url + "/load", "startup-load", "CREDIT") != 201) {
+					if (System.nanoTime() - start > timeoutNanos || !process.isAlive()) {
+						throw new IllegalStateException("Ledger did not start, see target/startup-run-" + run + ".log");
+					}
+					Thread.sleep(5);
+				}
+				int status = send(httpClient, url + "/authorization", "startup-authorization", "DEBIT");
+				millis[run] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				System.out.printf("run=%d time_to_first_authorization=%d ms status=%d%n", run, millis[run], status);
+			} finally {
+				process.destroy();
+				if (!process.waitFor(30, TimeUnit.SECONDS)) {
+					process.destroyForcibly().waitFor();
+				}
+			}
+		}
+		Arrays.sort(millis);
+		System.out.printf("runs=%d min=%d ms median=%d ms max=%d ms%n", runs, millis[0], millis[runs / 2],
+				millis[runs - 1]);
+	}
+
+	// Status of the response, 0 while the server does not accept connections
+	private static int send(HttpClient httpClient, String url, String messageId, String type) {
+		String body = "{\"userId\":\"startup-benchmark\",\"messageId\":\"" + messageId
+				+ "\",\"transactionAmount\":{\"amount\":\"1.00\",\"currency\":\"USD\",\"debitOrCredit\":\"" + type
+				+ "\"}}";
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url)).header("Content-Type", "application/json")
+				.timeout(Duration.ofSeconds(30)).PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+		try {
+			return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+		} catch (Exception ex) {
+			return 0;
+		}
+	}
+
+	private static List<String> split(String arguments) {
+		return arguments.isBlank() ? List.of() : Arrays.asList(arguments.trim().split("\\s+"));
+	}
+
+	private static String option(String[] args, String name, String defaultValue) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return defaultValue;
+	}
+}
@@ -2,10 +2,12 @@ package dev.codescreen;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @SpringBootApplication
 @EnableTransactionManagement
+@EnableScheduling
 public class BankLedgerApplication {
 	 public static void main(String[] args) {
 	        SpringApplication.run(BankLedgerApplication.class, args);
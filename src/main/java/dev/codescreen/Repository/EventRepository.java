@@ -1,9 +1,40 @@
 package dev.codescreen.Repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import dev.codescreen.model.Event;
+import jakarta.persistence.QueryHint;
+
+public interface EventRepository extends JpaRepository<Event, UUID> {
+
+	Optional<Event> findByMessageId(String messageId);
+
+	// Newest events of the account, first page of the history
+	@Query("select e from Event e where e.userId = :userId order by e.auditTimestamp desc, e.eventId desc")
+	List<Event> findLatestByUserId(@Param("userId") String userId, Limit limit);
+
+	// Events strictly older than the (auditTimestamp, eventId) key of the last event of the previous page
+	@Query("select e from Event e where e.userId = :userId and e.auditTimestamp <= :auditTimestamp "
+			+ "and (e.auditTimestamp < :auditTimestamp or e.eventId < :eventId) "
+			+ "order by e.auditTimestamp desc, e.eventId desc")
+	List<Event> findByUserIdBefore(@Param("userId") String userId,
+			@Param("auditTimestamp") LocalDateTime auditTimestamp, @Param("eventId") UUID eventId, Limit limit);
 
-public interface EventRepository extends JpaRepository<Event, String> {
+	// Whole history of the account, read from the cursor in chunks, must be consumed inside a transaction
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+	@Query("select e from Event e where e.userId = :userId order by e.auditTimestamp desc, e.eventId desc")
+	Stream<Event> streamByUserId(@Param("userId") String userId);
 
 }
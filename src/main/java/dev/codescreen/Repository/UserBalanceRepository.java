@@ -1,10 +1,63 @@
 package dev.codescreen.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import dev.codescreen.model.entity.UserBalance;
+import jakarta.persistence.LockModeType;
 
+/**
+ * The conditional updates write USER_BALANCE directly and clear the persistence context, an
+ * entity read before them is stale afterwards and must not be saved.
+ */
 @Repository
 public interface UserBalanceRepository extends JpaRepository<UserBalance, String> {
-}
\ No newline at end of file
+
+	// SELECT ... FOR UPDATE, the row stays locked until the transaction ends
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT b FROM UserBalance b WHERE b.userId = :userId")
+	Optional<UserBalance> findByIdForUpdate(@Param("userId") String userId);
+
+	// Locks in userId order, so two batches locking the same accounts cannot deadlock
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT b FROM UserBalance b WHERE b.userId IN :userIds ORDER BY b.userId")
+	List<UserBalance> findAllByIdForUpdate(@Param("userIds") Collection<String> userIds);
+
+	@Query(value = "SELECT BALANCE FROM USER_BALANCE WHERE USER_ID = :userId", nativeQuery = true)
+	Optional<BigDecimal> findStoredBalance(@Param("userId") String userId);
+
+	/**
+	 * @return 1 when the row still had the version, 0 when another transaction changed it
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = "UPDATE USER_BALANCE SET BALANCE = :balance, VERSION = VERSION + 1 "
+			+ "WHERE USER_ID = :userId AND VERSION = :version", nativeQuery = true)
+	int updateIfVersion(@Param("userId") String userId, @Param("balance") BigDecimal balance,
+			@Param("version") Long version);
+
+	/**
+	 * @return 1 when the account was credited, 0 when it does not exist
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = "UPDATE USER_BALANCE SET BALANCE = BALANCE + :amount, VERSION = VERSION + 1 "
+			+ "WHERE USER_ID = :userId", nativeQuery = true)
+	int creditIfPresent(@Param("userId") String userId, @Param("amount") BigDecimal amount);
+
+	/**
+	 * @return 1 when the account was debited, 0 when it does not exist or the balance does not
+	 *         cover the amount
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = "UPDATE USER_BALANCE SET BALANCE = BALANCE - :amount, VERSION = VERSION + 1 "
+			+ "WHERE USER_ID = :userId AND BALANCE >= :amount", nativeQuery = true)
+	int debitIfCovered(@Param("userId") String userId, @Param("amount") BigDecimal amount);
+}
@@ -0,0 +1,87 @@
+package dev.codescreen.Service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Token bucket rate limit per account, so a single hot account cannot take all of the ledger's
+ * capacity. Buckets live in one striped AtomicLongArray indexed by the hash of the userId. Each
+ * bucket is a single long holding the nanosecond at which it would be full again, which
+ * advances by 1/rate per admitted request, updated with one CAS and no allocation. Keeping
+ * time in nanoseconds rather than whole tokens per millisecond means no fraction of a token is
+ * lost to rounding, at any rate. Accounts whose userIds hash to the same stripe share a bucket;
+ * with the default 65536 stripes that is rare, and the cost of a collision is a shared limit,
+ * never a missed one.
+ *
+ * Enabled with ledger.rate-limit.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.rate-limit.enabled", havingValue = "true")
+@Slf4j
+public class AccountRateLimiter {
+	private static final long MAX_BURST = (1L << 20) - 1;
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	// Nanos since start at which the bucket is full again, zero for a bucket never used
+	private final AtomicLongArray buckets;
+	private final int stripeMask;
+	// Nanos that one token takes to refill, and that a full bucket is ahead of now
+	private final long interval;
+	private final long burstNanos;
+	private final long origin = System.nanoTime();
+
+	public AccountRateLimiter(@Value("${ledger.rate-limit.requests-per-second:100}") long ratePerSecond,
+			@Value("${ledger.rate-limit.burst:200}") long burst,
+			@Value("${ledger.rate-limit.stripes:65536}") int stripes) {
+		if (ratePerSecond < 1 || ratePerSecond > NANOS_PER_SECOND || burst < 1 || burst > MAX_BURST) {
+			throw new IllegalArgumentException("Rate limit needs a rate between 1 and " + NANOS_PER_SECOND
+					+ " and a burst between 1 and " + MAX_BURST);
+		}
+		int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		this.buckets = new AtomicLongArray(size);
+		this.stripeMask = size - 1;
+		this.interval = NANOS_PER_SECOND / ratePerSecond;
+		this.burstNanos = burst * interval;
+		log.info("Account rate limit enabled with {} requests per second, burst {} and {} stripes", ratePerSecond,
+				burst, size);
+	}
+
+	/**
+	 * Take a token from the bucket of the account
+	 *
+	 * @param userId: Unique Identifier of the Account
+	 * @return 0 when the request is admitted, otherwise the milliseconds until a token is available
+	 */
+	public long tryAcquire(String userId) {
+		int stripe = stripe(userId);
+		long now = nanos();
+		while (true) {
+			long full = buckets.get(stripe);
+			// A bucket that filled up in the past is full now
+			long next = Math.max(full, now) + interval;
+			long wait = next - now - burstNanos;
+			if (wait > 0) {
+				return (wait + 999_999) / 1_000_000;
+			}
+			if (buckets.compareAndSet(stripe, full, next)) {
+				return 0;
+			}
+		}
+	}
+
+	// Never zero, which marks an unused bucket
+	private long nanos() {
+		return System.nanoTime() - origin + 1;
+	}
+
+	private int stripe(String userId) {
+		int hash = userId.hashCode();
+		hash ^= (hash >>> 16);
+		return hash & stripeMask;
+	}
+}
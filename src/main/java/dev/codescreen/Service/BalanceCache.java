@@ -0,0 +1,73 @@
+package dev.codescreen.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * Recently read or written USER_BALANCE values, so balance reads do not go to the database.
+ * {@link BankLedgerService} writes every balance through once the transaction changing it has
+ * committed. Each write is stamped with an increasing sequence and an entry is only replaced
+ * by a newer one, so a read-through that raced a commit cannot overwrite the committed value.
+ * Entries are evicted by size and expire after a while to bound the staleness of any update
+ * that still slipped out of order.
+ */
+@Component
+public class BalanceCache {
+	private final Cache<String, CachedBalance> balances;
+	private final AtomicLong sequence = new AtomicLong();
+
+	public BalanceCache(@Value("${ledger.balance-cache.max-entries:100000}") long maxEntries,
+			@Value("${ledger.balance-cache.ttl-seconds:60}") long ttlSeconds) {
+		this.balances = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.concurrencyLevel(Runtime.getRuntime().availableProcessors()).recordStats().build();
+	}
+
+	/**
+	 * @param userId: Unique Identifier of the Account
+	 * @return the cached balance in minor units, or null when the account is not cached
+	 */
+	public Long get(String userId) {
+		CachedBalance cached = balances.getIfPresent(userId);
+		return cached == null ? null : cached.balance;
+	}
+
+	/**
+	 * Stamp for a database read about to start, pass it to {@link #putIfNewer} with the result
+	 */
+	public long nextSequence() {
+		return sequence.incrementAndGet();
+	}
+
+	// Write through a balance that has just been committed
+
+	public void put(String userId, long balance) {
+		putIfNewer(userId, balance, nextSequence());
+	}
+
+	public void putIfNewer(String userId, long balance, long stamp) {
+		balances.asMap().merge(userId, new CachedBalance(balance, stamp),
+				(current, candidate) -> candidate.stamp > current.stamp ? candidate : current);
+	}
+
+	public long getHitCount() {
+		return balances.stats().hitCount();
+	}
+
+	public long getMissCount() {
+		return balances.stats().missCount();
+	}
+
+	@AllArgsConstructor
+	private static class CachedBalance {
+		private final long balance;
+		private final long stamp;
+	}
+}
@@ -0,0 +1,43 @@
+package dev.codescreen.Service;
+
+import java.util.Optional;
+
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.AuthorizationResult;
+
+/**
+ * Holds the authoritative balance of every account when {@link BankLedgerService} is not
+ * reading and writing USER_BALANCE directly. Implementations must be safe for concurrent
+ * callers and must never let a debit take an account below zero.
+ */
+public interface BalanceEngine {
+
+	/**
+	 * Add the Amount to the account, creating the account if it does not exist yet
+	 *
+	 * @param userId: Unique Identifier of the Account
+	 * @param amount: Transaction Amount in minor units
+	 * @return the updated balance in minor units
+	 */
+	long credit(String userId, long amount);
+
+	/**
+	 * Deduct the Amount from the account if sufficient funds are available. A decline is a
+	 * normal outcome and is returned rather than thrown.
+	 *
+	 * @param userId: Unique Identifier of the Account
+	 * @param amount: Transaction Amount in minor units
+	 * @return an approval with the updated balance in minor units, or a decline with the
+	 *         balance when it is lower than the amount
+	 * @throws BankLedgerInternalException when the account does not exist
+	 */
+	AuthorizationResult debit(String userId, long amount);
+
+	/**
+	 * Current balance of the account
+	 *
+	 * @param userId: Unique Identifier of the Account
+	 * @return the balance in minor units, empty when the account does not exist
+	 */
+	Optional<Long> balance(String userId);
+}
@@ -1,117 +1,640 @@
 package dev.codescreen.Service;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import dev.codescreen.Repository.EventRepository;
 import dev.codescreen.Repository.UserBalanceRepository;
+import dev.codescreen.Service.IdempotencyCache.Outcome;
 import dev.codescreen.exceptions.BankLedgerInternalException;
-import dev.codescreen.exceptions.InsufficientFunds;
+import dev.codescreen.exceptions.LedgerOverloaded;
+import dev.codescreen.logging.TrafficLog;
+import dev.codescreen.model.AuthorizationResult;
+import dev.codescreen.model.BatchItem;
+import dev.codescreen.model.BatchResult;
 import dev.codescreen.model.DebitCredit;
 import dev.codescreen.model.Event;
 import dev.codescreen.model.entity.UserBalance;
+import dev.codescreen.utils.EventIds;
+import dev.codescreen.utils.Money;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class BankLedgerService {
+	// Transaction resource holding the credits that wait for the commit
+	private static final String PENDING_CREDITS = BankLedgerService.class.getName() + ".pendingCredits";
+
 	@Autowired
 	private UserBalanceRepository userBalanceRepository;
 	@Autowired
 	private EventRepository eventRepository;
+	@Autowired
+	private IdempotencyCache idempotencyCache;
+	@Autowired
+	private BalanceCache balanceCache;
+	@Autowired(required = false)
+	private BalanceEngine balanceEngine;
+	@Autowired(required = false)
+	private EventStore eventStore;
+	@Autowired(required = false)
+	private LedgerRollups ledgerRollups;
+	@Value("${ledger.locking.strategy:optimistic}")
+	private LockingStrategy lockingStrategy = LockingStrategy.OPTIMISTIC;
+	// Optimistic writes retried after a conflict before the request is rejected with Retry-After
+	@Value("${ledger.locking.max-retries:10}")
+	private int maxRetries = 10;
+	@Value("${ledger.locking.retry-after-seconds:1}")
+	private long retryAfterSeconds = 1;
+
+	// The journal commits events outside of the request transaction, a crash could then keep the events of a
+	// USER_BALANCE update that never committed. The in-memory balance engine recovers from the events instead.
+	@PostConstruct
+	public void checkEventStore() {
+		if (eventStore instanceof EventJournal && balanceEngine == null) {
+			throw new IllegalStateException("ledger.journal.mode=batched requires ledger.balance-engine=in-memory");
+		}
+	}
 
 	/**
-	 * Add the Amount to User in Database Add the Event to EventsTable in Database
+	 * Read the balance of the account. With a balance engine the engine answers, otherwise the
+	 * balance cache does, reading USER_BALANCE only for accounts it does not hold.
+	 * 
+	 * @param userId: Unique Identifier of the Account
+	 * @return the balance in minor units, empty when the account does not exist
+	 */
+
+	public Optional<Long> getBalance(String userId) {
+		if (balanceEngine != null) {
+			return balanceEngine.balance(userId);
+		}
+		Long cached = balanceCache.get(userId);
+		if (cached != null) {
+			return Optional.of(cached);
+		}
+		long stamp = balanceCache.nextSequence();
+		Optional<Long> stored = userBalanceRepository.findById(userId).map(UserBalance::getBalance);
+		stored.ifPresent(balance -> balanceCache.putIfNewer(userId, balance, stamp));
+		return stored;
+	}
+
+	/**
+	 * @param messageId: MessageID for tracking the transaction/event
+	 * @return true when a retry of the message is answered from the idempotency cache without
+	 *         applying it again
+	 */
+	public boolean isReplay(String messageId) {
+		return idempotencyCache.isCompleted(messageId);
+	}
+
+	/**
+	 * Add the Amount to User in Database Add the Event to EventsTable in Database.
+	 * A messageId that was already processed returns its original balance without
+	 * loading the funds again.
 	 * 
 	 * @param userId:    Unique Identifier of the Account
 	 * @param messageId: MessageID for tracking the transaction/event
-	 * @param amount:    Transaction Amount
-	 * @return the updated balance
+	 * @param amount:    Transaction Amount in minor units
+	 * @return the updated balance in minor units
 	 */
 	
 	
 	@Transactional
-	public double loadFunds(String userId, String messageId, double amount) {
+	public long loadFunds(String userId, String messageId, long amount) {
 		try {
-			Optional<UserBalance> userBalanceIfPresent = userBalanceRepository.findById(userId);
-			double updatedBalance = amount;
-			if (userBalanceIfPresent.isPresent()) {
-				UserBalance userBalance = userBalanceIfPresent.get();
-				updatedBalance = userBalance.getBalance() + amount;
-				userBalance.setBalance(updatedBalance);
-				userBalance = userBalanceRepository.save(userBalance);
-			} else {
-				UserBalance userBalance = new UserBalance(userId, amount);
-				userBalanceRepository.save(userBalance);
+			Outcome original = replayOrClaim(messageId);
+			if (original != null) {
+				return original.getBalance();
 			}
+			long updatedBalance = balanceEngine != null ? creditEngine(userId, amount)
+					: creditStoredBalance(userId, amount);
 
-			Event event = Event.builder().eventId(UUID.randomUUID()).auditTimestamp(LocalDateTime.now()).userId(userId)
-					.amount(updatedBalance).transactionType(DebitCredit.CREDIT).transactionAmount(amount)
-					.isSuccessIndicator(true).build();
-			eventRepository.save(event);
+			Event event = Event.builder().eventId(EventIds.next()).auditTimestamp(LocalDateTime.now()).userId(userId)
+					.messageId(messageId).amount(updatedBalance).transactionType(DebitCredit.CREDIT)
+					.transactionAmount(amount).isSuccessIndicator(true).build();
+			recordEvent(event);
+			recordOutcome(messageId, new Outcome(updatedBalance, true));
 
 			return updatedBalance;
+		} catch (LedgerOverloaded ex) {
+			idempotencyCache.abandon(messageId);
+			throw ex;
 		} catch (Exception ex) {
+			idempotencyCache.abandon(messageId);
 			String errorMessage = String.format("Unknown Exception Occurred while loading the balance %s for Userid %s",
-					amount, userId);
+					Money.format(amount), userId);
 			log.error(errorMessage, ex);
 			throw new BankLedgerInternalException(errorMessage, ex);
 		}
 	}
 	
 	/**
-	 * Deduct the Amount from User in Database and Add the Event to EventsTable in Database
+	 * Deduct the Amount from User in Database and Add the Event to EventsTable in Database.
+	 * A messageId that was already processed returns its original result without
+	 * deducting the funds again. A decline is returned like an approval, its event is
+	 * written the same way.
 	 * 
 	 * @param userId:    Unique Identifier of the Account
 	 * @param messageId: MessageID for tracking the transaction/event
-	 * @param amount:    Transaction Amount
-	 * @return the updated balance
+	 * @param amount:    Transaction Amount in minor units
+	 * @return the updated balance in minor units when approved, the balance that was too low
+	 *         when declined
 	 */
 	
-	@Transactional(noRollbackFor = InsufficientFunds.class)
-	public double authorizeTransaction(String userId, String messageId, double amount) {
+	@Transactional
+	public AuthorizationResult authorizeTransaction(String userId, String messageId, long amount) {
 		try {
-			Optional<UserBalance> userBalanceIfPresent = userBalanceRepository.findById(userId);
-			double updatedBalance = amount;
-			if (userBalanceIfPresent.isPresent()) {
-				UserBalance userBalance = userBalanceIfPresent.get();
-				if (userBalance.getBalance() < amount) {
-					Event failedEvent = Event.builder().eventId(UUID.randomUUID()).auditTimestamp(LocalDateTime.now())
-							.userId(userId).amount(userBalance.getBalance()).transactionType(DebitCredit.DEBIT)
-							.transactionAmount(amount).isSuccessIndicator(false).build();
-					eventRepository.saveAndFlush(failedEvent);
-					String errorMessage = String.format("Current Balance: %,.2f, Requested Funds: %,.2f",
-							userBalance.getBalance(), amount);
-					log.error(errorMessage);
-					throw new InsufficientFunds(errorMessage, userBalance.getBalance());
-				} else {
-					updatedBalance = userBalance.getBalance() - amount;
-					userBalance.setBalance(updatedBalance);
-					userBalance = userBalanceRepository.save(userBalance);
-					Event event = Event.builder().eventId(UUID.randomUUID()).auditTimestamp(LocalDateTime.now())
-							.userId(userId).amount(updatedBalance).transactionType(DebitCredit.DEBIT)
-							.transactionAmount(amount).isSuccessIndicator(true).build();
-					eventRepository.save(event);
-				}
-			} else {
-				String errorMessage = String.format("User %s is not found in the system", userId);
-				log.error(errorMessage);
-				throw new BankLedgerInternalException(errorMessage);
+			Outcome original = replayOrClaim(messageId);
+			if (original != null) {
+				return original.isApproved() ? AuthorizationResult.approved(original.getBalance())
+						: AuthorizationResult.declined(original.getBalance());
 			}
-			return updatedBalance;
-		} catch (InsufficientFunds ex) {
+			AuthorizationResult result = balanceEngine != null ? debitEngine(userId, amount)
+					: debitStoredBalance(userId, amount);
+			boolean approved = result.isApproved();
+			long balance = result.getBalance();
+			Event event = Event.builder().eventId(EventIds.next()).auditTimestamp(LocalDateTime.now())
+					.userId(userId).messageId(messageId).amount(balance).transactionType(DebitCredit.DEBIT)
+					.transactionAmount(amount).isSuccessIndicator(approved).build();
+			recordEvent(event);
+			recordOutcome(messageId, new Outcome(balance, approved));
+			if (!approved) {
+				TrafficLog.decline(userId, messageId, amount, balance);
+				return AuthorizationResult.declined(balance);
+			}
+			return AuthorizationResult.approved(balance);
+		} catch (LedgerOverloaded ex) {
+			idempotencyCache.abandon(messageId);
 			throw ex;
 		} catch (Exception ex) {
+			idempotencyCache.abandon(messageId);
 			String errorMessage = String.format("Unknown Exception Occurred while loading the balance %s for Userid %s",
-					amount, userId);
+					Money.format(amount), userId);
 			log.error(errorMessage, ex);
 			throw new BankLedgerInternalException(errorMessage, ex);
 		}
 	}
 
+	/**
+	 * Load every item of the batch in a single transaction. Items are applied grouped by
+	 * userId, each account is read and written once, and all events are written together.
+	 * A failed item does not affect the others.
+	 * 
+	 * @param items: Loads to apply, amounts in minor units
+	 * @return one result per item, in the order of the items
+	 */
+
+	@Transactional
+	public List<BatchResult> loadFundsBatch(List<BatchItem> items) {
+		return applyBatch(items, DebitCredit.CREDIT);
+	}
+
+	/**
+	 * Authorize every item of the batch in a single transaction. Items are applied grouped by
+	 * userId, each account is read and written once, and all events are written together.
+	 * Declined and failed items do not affect the others.
+	 * 
+	 * @param items: Authorizations to apply, amounts in minor units
+	 * @return one result per item, in the order of the items
+	 */
+
+	@Transactional
+	public List<BatchResult> authorizeTransactionBatch(List<BatchItem> items) {
+		return applyBatch(items, DebitCredit.DEBIT);
+	}
+
+	private List<BatchResult> applyBatch(List<BatchItem> items, DebitCredit transactionType) {
+		BatchResult[] results = new BatchResult[items.size()];
+		// Stable sort, so items of the same account are applied in the order they were sent
+		Integer[] order = new Integer[items.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparing(i -> items.get(i).getUserId()));
+
+		// The atomic strategy applies every item with its own conditional UPDATE instead
+		Map<String, UserBalance> storedBalances = balanceEngine != null || lockingStrategy == LockingStrategy.ATOMIC
+				? null
+				: loadStoredBalances(items, order);
+		Map<String, UserBalance> changedBalances = new LinkedHashMap<>();
+		Map<String, BatchResult> resultsByMessageId = new HashMap<>();
+		List<Event> events = new ArrayList<>(items.size());
+		for (int index : order) {
+			BatchItem item = items.get(index);
+			// A messageId repeated within the batch is already claimed by this call, reuse its result
+			BatchResult result = resultsByMessageId.get(item.getMessageId());
+			if (result == null) {
+				result = applyBatchItem(item, transactionType, storedBalances, changedBalances, events);
+				resultsByMessageId.put(item.getMessageId(), result);
+			}
+			results[index] = result;
+		}
+		if (!changedBalances.isEmpty()) {
+			writeStoredBalances(changedBalances.values());
+			for (UserBalance userBalance : changedBalances.values()) {
+				cacheBalance(userBalance.getUserId(), userBalance.getBalance());
+			}
+		}
+		if (!events.isEmpty()) {
+			recordEvents(events);
+		}
+		return Arrays.asList(results);
+	}
+
+	private BatchResult applyBatchItem(BatchItem item, DebitCredit transactionType,
+			Map<String, UserBalance> storedBalances, Map<String, UserBalance> changedBalances, List<Event> events) {
+		String messageId = item.getMessageId();
+		try {
+			Outcome original = replayOrClaim(messageId);
+			if (original != null) {
+				return original.isApproved() ? BatchResult.approved(original.getBalance())
+						: BatchResult.declined(original.getBalance());
+			}
+		} catch (Exception ex) {
+			log.error("Failed to look up message {}", messageId, ex);
+			return BatchResult.failed("Failed to look up message " + messageId);
+		}
+		try {
+			AuthorizationResult result = storedBalances == null ? applyDirectly(item, transactionType)
+					: applyToStoredBalance(item, transactionType, storedBalances, changedBalances);
+			long balance = result.getBalance();
+			if (!result.isApproved()) {
+				events.add(Event.builder().eventId(EventIds.next()).auditTimestamp(LocalDateTime.now())
+						.userId(item.getUserId()).messageId(messageId).amount(balance)
+						.transactionType(transactionType).transactionAmount(item.getAmount()).isSuccessIndicator(false)
+						.build());
+				recordOutcome(messageId, new Outcome(balance, false));
+				TrafficLog.decline(item.getUserId(), messageId, item.getAmount(), balance);
+				return BatchResult.declined(balance);
+			}
+			events.add(Event.builder().eventId(EventIds.next()).auditTimestamp(LocalDateTime.now())
+					.userId(item.getUserId()).messageId(messageId).amount(balance)
+					.transactionType(transactionType).transactionAmount(item.getAmount()).isSuccessIndicator(true)
+					.build());
+			recordOutcome(messageId, new Outcome(balance, true));
+			return BatchResult.approved(balance);
+		} catch (BankLedgerInternalException ex) {
+			idempotencyCache.abandon(messageId);
+			return BatchResult.failed(ex.getMessage());
+		} catch (Exception ex) {
+			idempotencyCache.abandon(messageId);
+			String errorMessage = String.format("Unknown Exception Occurred while applying the amount %s for Userid %s",
+					Money.format(item.getAmount()), item.getUserId());
+			log.error(errorMessage, ex);
+			return BatchResult.failed(errorMessage);
+		}
+	}
+
+	// Applies the item to the balance engine, or with the atomic strategy straight to USER_BALANCE
+
+	private AuthorizationResult applyDirectly(BatchItem item, DebitCredit transactionType) {
+		if (balanceEngine == null) {
+			return transactionType == DebitCredit.CREDIT
+					? AuthorizationResult.approved(creditStoredBalance(item.getUserId(), item.getAmount()))
+					: debitStoredBalance(item.getUserId(), item.getAmount());
+		}
+		return transactionType == DebitCredit.CREDIT
+				? AuthorizationResult.approved(creditEngine(item.getUserId(), item.getAmount()))
+				: debitEngine(item.getUserId(), item.getAmount());
+	}
+
+	// Same rules as creditStoredBalance and debitStoredBalance, against balances read once for the whole batch
+
+	private AuthorizationResult applyToStoredBalance(BatchItem item, DebitCredit transactionType,
+			Map<String, UserBalance> storedBalances, Map<String, UserBalance> changedBalances) {
+		String userId = item.getUserId();
+		long amount = item.getAmount();
+		UserBalance userBalance = storedBalances.get(userId);
+		if (transactionType == DebitCredit.CREDIT) {
+			if (userBalance == null) {
+				userBalance = new UserBalance(userId, 0);
+				storedBalances.put(userId, userBalance);
+			}
+		} else {
+			if (userBalance == null) {
+				throw userNotFound(userId);
+			}
+			if (userBalance.getBalance() < amount) {
+				return AuthorizationResult.declined(userBalance.getBalance());
+			}
+			amount = -amount;
+		}
+		userBalance.setBalance(userBalance.getBalance() + amount);
+		changedBalances.put(userId, userBalance);
+		return AuthorizationResult.approved(userBalance.getBalance());
+	}
+
+	private Map<String, UserBalance> loadStoredBalances(List<BatchItem> items, Integer[] order) {
+		Set<String> userIds = new LinkedHashSet<>();
+		for (int index : order) {
+			userIds.add(items.get(index).getUserId());
+		}
+		Map<String, UserBalance> storedBalances = new HashMap<>();
+		if (lockingStrategy == LockingStrategy.PESSIMISTIC) {
+			for (UserBalance userBalance : userBalanceRepository.findAllByIdForUpdate(userIds)) {
+				storedBalances.put(userBalance.getUserId(), userBalance);
+			}
+			return storedBalances;
+		}
+		// Copies, so Hibernate does not write the changed entities itself before the versioned updates
+		for (UserBalance userBalance : userBalanceRepository.findAllById(userIds)) {
+			storedBalances.put(userBalance.getUserId(),
+					new UserBalance(userBalance.getUserId(), userBalance.getBalance(), userBalance.getVersion()));
+		}
+		return storedBalances;
+	}
+
+	// Locked rows are written as they are, optimistic ones only if no other transaction changed them since the read
+
+	private void writeStoredBalances(Collection<UserBalance> changedBalances) {
+		if (lockingStrategy == LockingStrategy.PESSIMISTIC) {
+			userBalanceRepository.saveAll(changedBalances);
+			return;
+		}
+		List<UserBalance> newBalances = new ArrayList<>();
+		for (UserBalance userBalance : changedBalances) {
+			if (userBalance.getVersion() == null) {
+				newBalances.add(userBalance);
+			} else if (userBalanceRepository.updateIfVersion(userBalance.getUserId(),
+					Money.toDecimal(userBalance.getBalance()), userBalance.getVersion()) == 0) {
+				throw conflict(userBalance.getUserId());
+			}
+		}
+		if (!newBalances.isEmpty()) {
+			userBalanceRepository.saveAll(newBalances);
+		}
+	}
+
+	// Returns the outcome of a message processed before, otherwise claims the message for this call
+
+	private Outcome replayOrClaim(String messageId) {
+		Outcome original = idempotencyCache.begin(messageId);
+		if (original == null) {
+			Optional<Event> recordedEvent = eventStore != null ? eventStore.findByMessageId(messageId)
+					: eventRepository.findByMessageId(messageId);
+			if (recordedEvent.isPresent()) {
+				original = new Outcome(recordedEvent.get().getAmount(), recordedEvent.get().isSuccessIndicator());
+				idempotencyCache.complete(messageId, original);
+			}
+		}
+		if (original != null) {
+			TrafficLog.replay(messageId);
+		}
+		return original;
+	}
+
+	// Writes the event to the configured event store, falling back to JPA
+
+	private void recordEvent(Event event) {
+		if (eventStore != null) {
+			retractOnRollback(List.of(event));
+			eventStore.append(event);
+		} else {
+			eventRepository.save(event);
+		}
+		rollUp(List.of(event));
+	}
+
+	private void recordEvents(List<Event> events) {
+		if (eventStore != null) {
+			retractOnRollback(events);
+			eventStore.appendAll(events);
+		} else {
+			eventRepository.saveAll(events);
+		}
+		rollUp(events);
+	}
+
+	// An event store may commit outside of the transaction, its events are retracted if the transaction does not commit.
+	// Registered before the append, a failed append may still have written part of a batch.
+
+	private void retractOnRollback(List<Event> events) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status == STATUS_COMMITTED) {
+					return;
+				}
+				try {
+					eventStore.retract(events);
+				} catch (Exception ex) {
+					log.error("Failed to retract the events of messages {} after a rollback",
+							events.stream().map(Event::getMessageId).toList(), ex);
+				}
+			}
+		});
+	}
+
+	// Adds the events to the hourly rollups once the transaction recording them has committed
+
+	private void rollUp(List<Event> events) {
+		if (ledgerRollups == null) {
+			return;
+		}
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			ledgerRollups.recordAll(events);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				ledgerRollups.recordAll(events);
+			}
+		});
+	}
+
+	// Publishes the outcome for replays only once the transaction recording it has committed
+
+	private void recordOutcome(String messageId, Outcome outcome) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			idempotencyCache.complete(messageId, outcome);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status == STATUS_COMMITTED) {
+					idempotencyCache.complete(messageId, outcome);
+				} else {
+					idempotencyCache.abandon(messageId);
+				}
+			}
+		});
+	}
+
+	// The balance engine is not part of the transaction. A debit is taken right away and given back if the transaction
+	// recording it does not commit, before a retry of the message can apply it again. A credit is only applied once the
+	// transaction has committed, taken back after a rollback it could already have been spent by another debit.
+
+	private long creditEngine(String userId, long amount) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return balanceEngine.credit(userId, amount);
+		}
+		long pendingCredit = pendingCredits().merge(userId, amount, Long::sum);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				balanceEngine.credit(userId, amount);
+			}
+		});
+		// The balance once the credits of this transaction are applied
+		return balanceEngine.balance(userId).orElse(0L) + pendingCredit;
+	}
+
+	private AuthorizationResult debitEngine(String userId, long amount) {
+		AuthorizationResult result = balanceEngine.debit(userId, amount);
+		if (result.isApproved() && TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					if (status != STATUS_COMMITTED) {
+						balanceEngine.credit(userId, amount);
+					}
+				}
+			});
+		}
+		return result;
+	}
+
+	// Credits of the current transaction per account that are not applied to the balance engine yet
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Long> pendingCredits() {
+		Map<String, Long> pendingCredits = (Map<String, Long>) TransactionSynchronizationManager
+				.getResource(PENDING_CREDITS);
+		if (pendingCredits == null) {
+			pendingCredits = new HashMap<>();
+			TransactionSynchronizationManager.bindResource(PENDING_CREDITS, pendingCredits);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_CREDITS);
+				}
+			});
+		}
+		return pendingCredits;
+	}
+
+	// Writes the balance through to the balance cache once the transaction changing it has committed
+
+	private void cacheBalance(String userId, long balance) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			balanceCache.put(userId, balance);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				balanceCache.put(userId, balance);
+			}
+		});
+	}
+
+	private long creditStoredBalance(String userId, long amount) {
+		long updatedBalance = lockingStrategy == LockingStrategy.ATOMIC ? creditAtomically(userId, amount)
+				: updateStoredBalance(userId, amount, DebitCredit.CREDIT).getBalance();
+		cacheBalance(userId, updatedBalance);
+		return updatedBalance;
+	}
+
+	// Declined when the balance does not cover the amount
+
+	private AuthorizationResult debitStoredBalance(String userId, long amount) {
+		AuthorizationResult result = lockingStrategy == LockingStrategy.ATOMIC ? debitAtomically(userId, amount)
+				: updateStoredBalance(userId, amount, DebitCredit.DEBIT);
+		if (result.isApproved()) {
+			cacheBalance(userId, result.getBalance());
+		}
+		return result;
+	}
+
+	// Read-modify-write of the account under the optimistic or pessimistic strategy. Only a debit needs an existing
+	// account and can be declined, a credit is always applied.
+
+	private AuthorizationResult updateStoredBalance(String userId, long amount, DebitCredit transactionType) {
+		boolean debit = transactionType == DebitCredit.DEBIT;
+		long change = debit ? -amount : amount;
+		for (int attempt = 0;; attempt++) {
+			Optional<UserBalance> userBalanceIfPresent = lockingStrategy == LockingStrategy.PESSIMISTIC
+					? userBalanceRepository.findByIdForUpdate(userId)
+					: userBalanceRepository.findById(userId);
+			if (userBalanceIfPresent.isEmpty()) {
+				if (debit) {
+					throw userNotFound(userId);
+				}
+				userBalanceRepository.save(new UserBalance(userId, change));
+				return AuthorizationResult.approved(change);
+			}
+			UserBalance userBalance = userBalanceIfPresent.get();
+			long updatedBalance = userBalance.getBalance() + change;
+			if (debit && updatedBalance < 0) {
+				return AuthorizationResult.declined(userBalance.getBalance());
+			}
+			if (lockingStrategy == LockingStrategy.PESSIMISTIC) {
+				userBalance.setBalance(updatedBalance);
+				userBalanceRepository.save(userBalance);
+				return AuthorizationResult.approved(updatedBalance);
+			}
+			if (userBalanceRepository.updateIfVersion(userId, Money.toDecimal(updatedBalance),
+					userBalance.getVersion()) == 1) {
+				return AuthorizationResult.approved(updatedBalance);
+			}
+			if (attempt == maxRetries) {
+				throw conflict(userId);
+			}
+		}
+	}
+
+	private long creditAtomically(String userId, long amount) {
+		if (userBalanceRepository.creditIfPresent(userId, Money.toDecimal(amount)) == 0) {
+			userBalanceRepository.save(new UserBalance(userId, amount));
+			return amount;
+		}
+		// The UPDATE holds the row lock until commit, so this reads the balance it wrote
+		return Money.fromDecimal(userBalanceRepository.findStoredBalance(userId).orElseThrow());
+	}
+
+	private AuthorizationResult debitAtomically(String userId, long amount) {
+		boolean debited = userBalanceRepository.debitIfCovered(userId, Money.toDecimal(amount)) == 1;
+		Optional<BigDecimal> storedBalance = userBalanceRepository.findStoredBalance(userId);
+		if (storedBalance.isEmpty()) {
+			throw userNotFound(userId);
+		}
+		long balance = Money.fromDecimal(storedBalance.get());
+		return debited ? AuthorizationResult.approved(balance) : AuthorizationResult.declined(balance);
+	}
+
+	private BankLedgerInternalException userNotFound(String userId) {
+		String errorMessage = String.format("User %s is not found in the system", userId);
+		log.error(errorMessage);
+		return new BankLedgerInternalException(errorMessage);
+	}
+
+	private LedgerOverloaded conflict(String userId) {
+		return new LedgerOverloaded(String.format("Balance of user %s is being updated concurrently", userId),
+				retryAfterSeconds);
+	}
+
 }
@@ -0,0 +1,355 @@
+package dev.codescreen.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.entity.DailyStatement;
+import dev.codescreen.model.entity.StatementWatermark;
+import dev.codescreen.model.response.DailyStatementResponse;
+import dev.codescreen.utils.Money;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Aggregates BANK_EVENTS into DAILY_STATEMENT: credits, debits and declines of every account
+ * per day, with the balance it closed the day on. Events are streamed from the cursor in
+ * (AUDIT_TIMESTAMP, EVENT_ID) order and folded chunk by chunk on a fork-join pool, with accounts
+ * partitioned by the hash of their userId so the folds share no state and the events of an
+ * account are still applied in order.
+ *
+ * The totals of every chunk are added to DAILY_STATEMENT and committed together with the key of
+ * the last event in STATEMENT_WATERMARK, so only one chunk of events and its totals are held in
+ * memory, and the next run, or a run resumed after a failure, only reads the events after the
+ * watermark. Like the balance snapshot the watermark stays lag-ms behind the clock, so no request
+ * can still commit an event older than it.
+ *
+ * BANK_EVENTS is not kept with ledger.journal.mode=mmap, no statements are written there.
+ */
+@Service
+@Slf4j
+public class DailyStatementService {
+	private static final String EVENT_COLUMNS = "SELECT AUDIT_TIMESTAMP, EVENT_ID, USER_ID, AMOUNT, TRANSACTION_TYPE, "
+			+ "TRANSACTION_AMOUNT, IS_SUCCESS_INDICATOR FROM BANK_EVENTS ";
+	private static final String SELECT_EVENTS = EVENT_COLUMNS
+			+ "WHERE AUDIT_TIMESTAMP <= ? ORDER BY AUDIT_TIMESTAMP, EVENT_ID";
+	private static final String SELECT_EVENTS_AFTER = EVENT_COLUMNS
+			+ "WHERE AUDIT_TIMESTAMP <= ? AND (AUDIT_TIMESTAMP > ? OR (AUDIT_TIMESTAMP = ? AND EVENT_ID > ?)) "
+			+ "ORDER BY AUDIT_TIMESTAMP, EVENT_ID";
+	private static final String SELECT_WATERMARK = "SELECT AUDIT_TIMESTAMP, EVENT_ID, RUN_TIMESTAMP FROM STATEMENT_WATERMARK "
+			+ "WHERE ID = 1";
+	private static final String MERGE_WATERMARK = "MERGE INTO STATEMENT_WATERMARK (ID, AUDIT_TIMESTAMP, EVENT_ID, "
+			+ "RUN_TIMESTAMP) KEY (ID) VALUES (1, ?, ?, ?)";
+	private static final String UPDATE_STATEMENT = "UPDATE DAILY_STATEMENT SET CREDITS = CREDITS + ?, "
+			+ "CREDIT_COUNT = CREDIT_COUNT + ?, DEBITS = DEBITS + ?, DEBIT_COUNT = DEBIT_COUNT + ?, DECLINED = DECLINED + ?, "
+			+ "DECLINE_COUNT = DECLINE_COUNT + ?, CLOSING_BALANCE = ? WHERE USER_ID = ? AND STATEMENT_DATE = ?";
+	private static final String INSERT_STATEMENT = "INSERT INTO DAILY_STATEMENT (CREDITS, CREDIT_COUNT, DEBITS, "
+			+ "DEBIT_COUNT, DECLINED, DECLINE_COUNT, CLOSING_BALANCE, USER_ID, STATEMENT_DATE) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final String SELECT_STATEMENTS = "SELECT USER_ID, STATEMENT_DATE, CREDITS, CREDIT_COUNT, DEBITS, "
+			+ "DEBIT_COUNT, DECLINED, DECLINE_COUNT, CLOSING_BALANCE FROM DAILY_STATEMENT "
+			+ "WHERE USER_ID = ? AND STATEMENT_DATE BETWEEN ? AND ? ORDER BY STATEMENT_DATE";
+	private static final int CHUNK_SIZE = 65536;
+	private static final int FETCH_SIZE = 1000;
+
+	private final DataSource dataSource;
+	private final Duration lag;
+	private final ForkJoinPool pool;
+	private final int partitions;
+	private final ReentrantLock runLock = new ReentrantLock();
+	@Autowired(required = false)
+	private MappedEventLog mappedEventLog;
+
+	/**
+	 * @param lagMillis:   How far the watermark stays behind the clock
+	 * @param parallelism: Threads folding the events, 0 for one per core
+	 */
+	public DailyStatementService(DataSource dataSource, @Value("${ledger.statements.lag-ms:60000}") long lagMillis,
+			@Value("${ledger.statements.parallelism:0}") int parallelism) {
+		this.dataSource = dataSource;
+		this.lag = Duration.ofMillis(lagMillis);
+		this.partitions = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		this.pool = new ForkJoinPool(partitions);
+	}
+
+	public boolean isAvailable() {
+		return mappedEventLog == null;
+	}
+
+	/**
+	 * Add the events that are older than the lag and not yet aggregated to DAILY_STATEMENT,
+	 * committing after every chunk. Skipped while another run is in progress.
+	 *
+	 * @return the new watermark, or null when no event was added
+	 */
+	public StatementWatermark generate() {
+		if (!isAvailable() || !runLock.tryLock()) {
+			return null;
+		}
+		try (Connection reader = dataSource.getConnection(); Connection writer = dataSource.getConnection()) {
+			reader.setReadOnly(true);
+			writer.setAutoCommit(false);
+			StatementWatermark watermark = loadWatermark(writer);
+			boolean after = watermark != null;
+			long events = 0;
+			try (PreparedStatement statement = reader.prepareStatement(after ? SELECT_EVENTS_AFTER : SELECT_EVENTS)) {
+				statement.setFetchSize(FETCH_SIZE);
+				statement.setObject(1, LocalDateTime.now().minus(lag));
+				if (after) {
+					statement.setObject(2, watermark.getAuditTimestamp());
+					statement.setObject(3, watermark.getAuditTimestamp());
+					statement.setObject(4, watermark.getEventId());
+				}
+				Map<DailyStatement.Key, DailyStatement>[] totals = newTotals();
+				Chunk chunk = new Chunk(partitions);
+				LocalDateTime lastTimestamp = null;
+				UUID lastEventId = null;
+				try (ResultSet resultSet = statement.executeQuery()) {
+					while (resultSet.next()) {
+						lastTimestamp = resultSet.getObject(1, LocalDateTime.class);
+						lastEventId = resultSet.getObject(2, UUID.class);
+						String userId = resultSet.getString(3);
+						chunk.add(userId, partition(userId), lastTimestamp.toLocalDate(),
+								Money.fromDecimal(resultSet.getBigDecimal(4)),
+								DebitCredit.valueOf(resultSet.getString(5)) == DebitCredit.CREDIT,
+								Money.fromDecimal(resultSet.getBigDecimal(6)), resultSet.getBoolean(7));
+						if (chunk.size == CHUNK_SIZE) {
+							fold(chunk, totals);
+							watermark = write(writer, totals, lastTimestamp, lastEventId);
+							events += chunk.size;
+							chunk.clear();
+						}
+					}
+				}
+				if (chunk.size > 0) {
+					fold(chunk, totals);
+					watermark = write(writer, totals, lastTimestamp, lastEventId);
+					events += chunk.size;
+				}
+			}
+			if (events == 0) {
+				return null;
+			}
+			log.info("Daily statements updated from {} events, watermark {}", events, watermark.getAuditTimestamp());
+			return watermark;
+		} catch (SQLException ex) {
+			throw new BankLedgerInternalException("Failed to write the daily statements", ex);
+		} finally {
+			runLock.unlock();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${ledger.statements.interval-ms:3600000}", initialDelayString = "${ledger.statements.interval-ms:3600000}")
+	public void scheduledGenerate() {
+		try {
+			generate();
+		} catch (Exception ex) {
+			log.error("Scheduled daily statement run failed", ex);
+		}
+	}
+
+	/**
+	 * @param userId: Unique Identifier of the Account
+	 * @param from:   First day, inclusive
+	 * @param to:     Last day, inclusive
+	 * @return the statements of the account for the days it had events on, oldest first
+	 */
+	public List<DailyStatementResponse> statements(String userId, LocalDate from, LocalDate to) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_STATEMENTS)) {
+			statement.setString(1, userId);
+			statement.setObject(2, from);
+			statement.setObject(3, to);
+			List<DailyStatementResponse> statements = new ArrayList<>();
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					statements.add(DailyStatementResponse.builder().userId(resultSet.getString(1))
+							.date(resultSet.getObject(2, LocalDate.class))
+							.credits(Money.format(Money.fromDecimal(resultSet.getBigDecimal(3))))
+							.creditCount(resultSet.getLong(4))
+							.debits(Money.format(Money.fromDecimal(resultSet.getBigDecimal(5))))
+							.debitCount(resultSet.getLong(6))
+							.declined(Money.format(Money.fromDecimal(resultSet.getBigDecimal(7))))
+							.declineCount(resultSet.getLong(8))
+							.closingBalance(Money.format(Money.fromDecimal(resultSet.getBigDecimal(9)))).build());
+				}
+			}
+			return statements;
+		} catch (SQLException ex) {
+			throw new BankLedgerInternalException("Failed to read the daily statements", ex);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	private StatementWatermark loadWatermark(Connection connection) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(SELECT_WATERMARK);
+				ResultSet resultSet = statement.executeQuery()) {
+			if (!resultSet.next()) {
+				return null;
+			}
+			return new StatementWatermark(1, resultSet.getObject(1, LocalDateTime.class),
+					resultSet.getObject(2, UUID.class), resultSet.getObject(3, LocalDateTime.class));
+		}
+	}
+
+	private void fold(Chunk chunk, Map<DailyStatement.Key, DailyStatement>[] totals) {
+		pool.submit(() -> IntStream.range(0, partitions).parallel().forEach(p -> {
+			Map<DailyStatement.Key, DailyStatement> statements = totals[p];
+			int[] rows = chunk.rows[p];
+			for (int i = 0; i < chunk.rowCounts[p]; i++) {
+				int row = rows[i];
+				DailyStatement dailyStatement = statements.computeIfAbsent(
+						new DailyStatement.Key(chunk.userIds[row], chunk.dates[row]),
+						key -> new DailyStatement(key.getUserId(), key.getStatementDate()));
+				long transactionAmount = chunk.transactionAmounts[row];
+				if (!chunk.successes[row]) {
+					dailyStatement.setDeclined(dailyStatement.getDeclined() + transactionAmount);
+					dailyStatement.setDeclineCount(dailyStatement.getDeclineCount() + 1);
+				} else if (chunk.credits[row]) {
+					dailyStatement.setCredits(dailyStatement.getCredits() + transactionAmount);
+					dailyStatement.setCreditCount(dailyStatement.getCreditCount() + 1);
+				} else {
+					dailyStatement.setDebits(dailyStatement.getDebits() + transactionAmount);
+					dailyStatement.setDebitCount(dailyStatement.getDebitCount() + 1);
+				}
+				dailyStatement.setClosingBalance(chunk.amounts[row]);
+			}
+		})).join();
+	}
+
+	// Add the totals of a chunk to the days they belong to and move the watermark past it in one transaction
+	private StatementWatermark write(Connection connection, Map<DailyStatement.Key, DailyStatement>[] totals,
+			LocalDateTime lastTimestamp, UUID lastEventId) throws SQLException {
+		try {
+			List<DailyStatement> changed = new ArrayList<>();
+			for (Map<DailyStatement.Key, DailyStatement> partition : totals) {
+				changed.addAll(partition.values());
+				partition.clear();
+			}
+			try (PreparedStatement update = connection.prepareStatement(UPDATE_STATEMENT);
+					PreparedStatement insert = connection.prepareStatement(INSERT_STATEMENT)) {
+				for (int from = 0; from < changed.size(); from += FETCH_SIZE) {
+					List<DailyStatement> batch = changed.subList(from, Math.min(from + FETCH_SIZE, changed.size()));
+					for (DailyStatement dailyStatement : batch) {
+						bind(update, dailyStatement);
+						update.addBatch();
+					}
+					int[] updated = update.executeBatch();
+					boolean inserts = false;
+					for (int i = 0; i < updated.length; i++) {
+						// First events of the account on that day
+						if (updated[i] == 0) {
+							bind(insert, batch.get(i));
+							insert.addBatch();
+							inserts = true;
+						}
+					}
+					if (inserts) {
+						insert.executeBatch();
+					}
+				}
+			}
+			StatementWatermark watermark = new StatementWatermark(1, lastTimestamp, lastEventId, LocalDateTime.now());
+			try (PreparedStatement statement = connection.prepareStatement(MERGE_WATERMARK)) {
+				statement.setObject(1, watermark.getAuditTimestamp());
+				statement.setObject(2, watermark.getEventId());
+				statement.setObject(3, watermark.getRunTimestamp());
+				statement.executeUpdate();
+			}
+			connection.commit();
+			return watermark;
+		} catch (SQLException | RuntimeException ex) {
+			connection.rollback();
+			throw ex;
+		}
+	}
+
+	// Same parameter order in UPDATE_STATEMENT and INSERT_STATEMENT
+	private static void bind(PreparedStatement statement, DailyStatement dailyStatement) throws SQLException {
+		statement.setBigDecimal(1, Money.toDecimal(dailyStatement.getCredits()));
+		statement.setLong(2, dailyStatement.getCreditCount());
+		statement.setBigDecimal(3, Money.toDecimal(dailyStatement.getDebits()));
+		statement.setLong(4, dailyStatement.getDebitCount());
+		statement.setBigDecimal(5, Money.toDecimal(dailyStatement.getDeclined()));
+		statement.setLong(6, dailyStatement.getDeclineCount());
+		statement.setBigDecimal(7, Money.toDecimal(dailyStatement.getClosingBalance()));
+		statement.setString(8, dailyStatement.getUserId());
+		statement.setObject(9, dailyStatement.getStatementDate());
+	}
+
+	private int partition(String userId) {
+		return Math.floorMod(userId.hashCode(), partitions);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<DailyStatement.Key, DailyStatement>[] newTotals() {
+		Map<DailyStatement.Key, DailyStatement>[] totals = new Map[partitions];
+		for (int i = 0; i < partitions; i++) {
+			totals[i] = new HashMap<>();
+		}
+		return totals;
+	}
+
+	// Events of one chunk in columns, with the rows of every partition listed in order
+	private static final class Chunk {
+		private final String[] userIds = new String[CHUNK_SIZE];
+		private final LocalDate[] dates = new LocalDate[CHUNK_SIZE];
+		private final long[] amounts = new long[CHUNK_SIZE];
+		private final boolean[] credits = new boolean[CHUNK_SIZE];
+		private final long[] transactionAmounts = new long[CHUNK_SIZE];
+		private final boolean[] successes = new boolean[CHUNK_SIZE];
+		private final int[][] rows;
+		private final int[] rowCounts;
+		private int size;
+
+		private Chunk(int partitionCount) {
+			rows = new int[partitionCount][16];
+			rowCounts = new int[partitionCount];
+		}
+
+		private void add(String userId, int partition, LocalDate date, long amount, boolean credit,
+				long transactionAmount, boolean success) {
+			userIds[size] = userId;
+			dates[size] = date;
+			amounts[size] = amount;
+			credits[size] = credit;
+			transactionAmounts[size] = transactionAmount;
+			successes[size] = success;
+			if (rowCounts[partition] == rows[partition].length) {
+				rows[partition] = Arrays.copyOf(rows[partition], rows[partition].length * 2);
+			}
+			rows[partition][rowCounts[partition]++] = size++;
+		}
+
+		private void clear() {
+			size = 0;
+			Arrays.fill(rowCounts, 0);
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package dev.codescreen.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.codescreen.Repository.EventRepository;
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.exceptions.ReplicaLagging;
+import dev.codescreen.model.Amount;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
+import dev.codescreen.model.response.EventPage;
+import dev.codescreen.model.response.EventResponse;
+import dev.codescreen.model.response.ResponseCode;
+import dev.codescreen.utils.Utils;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Transaction history of an account from BANK_EVENTS, newest first. Pages are read with keyset
+ * pagination on (AUDIT_TIMESTAMP, EVENT_ID): the cursor handed to the client is the key of the
+ * last event it received, so every page is an index range scan no matter how deep the client
+ * has paged. The export streams the whole history from a database cursor one row at a time.
+ *
+ * On a follower the history is read from the primary's ledger log through {@link LedgerFollower}
+ * instead, its cursors are log positions.
+ */
+@Service
+@Slf4j
+public class EventHistoryService {
+	@Autowired
+	private EventRepository eventRepository;
+	@Autowired
+	private EntityManager entityManager;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired(required = false)
+	private MappedEventLog mappedEventLog;
+	@Autowired(required = false)
+	private LedgerFollower ledgerFollower;
+
+	/**
+	 * Read one page of the history of the account
+	 *
+	 * @param userId: Unique Identifier of the Account
+	 * @param cursor: nextCursor of the previous page, null for the newest events
+	 * @param limit:  Maximum number of events in the page
+	 * @return the page, with a cursor for the next one when more events may follow
+	 * @throws IllegalArgumentException when the cursor is not one handed out by this service
+	 */
+	@Transactional(readOnly = true)
+	public EventPage getEvents(String userId, String cursor, int limit) {
+		if (ledgerFollower != null) {
+			return getFollowerEvents(userId, cursor, limit);
+		}
+		requireEventTable();
+		List<Event> events;
+		if (cursor == null) {
+			events = eventRepository.findLatestByUserId(userId, Limit.of(limit));
+		} else {
+			String[] key = decodeCursor(cursor);
+			events = eventRepository.findByUserIdBefore(userId, LocalDateTime.parse(key[0]), UUID.fromString(key[1]),
+					Limit.of(limit));
+		}
+		List<EventResponse> responses = new ArrayList<>(events.size());
+		for (Event event : events) {
+			responses.add(toResponse(event));
+		}
+		String nextCursor = null;
+		if (events.size() == limit) {
+			Event last = events.get(events.size() - 1);
+			nextCursor = encodeCursor(last.getAuditTimestamp(), last.getEventId());
+		}
+		return EventPage.builder().userId(userId).events(responses).nextCursor(nextCursor).build();
+	}
+
+	/**
+	 * Write the whole history of the account as newline delimited JSON, one event per line,
+	 * flushing as rows come off the cursor. Entities are detached once written so the
+	 * persistence context does not grow with the history.
+	 *
+	 * @param userId: Unique Identifier of the Account
+	 * @param out:    Stream receiving the events
+	 * @return the number of events written
+	 */
+	@Transactional(readOnly = true)
+	public long exportEvents(String userId, OutputStream out) throws IOException {
+		if (ledgerFollower != null) {
+			return exportFollowerEvents(userId, out);
+		}
+		requireEventTable();
+		long written = 0;
+		try (Stream<Event> events = eventRepository.streamByUserId(userId)) {
+			for (Event event : (Iterable<Event>) events::iterator) {
+				out.write(objectMapper.writeValueAsBytes(toResponse(event)));
+				out.write('\n');
+				entityManager.detach(event);
+				// Push full chunks to the client instead of buffering the export
+				if (++written % 500 == 0) {
+					out.flush();
+				}
+			}
+		}
+		out.flush();
+		return written;
+	}
+
+	/**
+	 * @return false when events are written to the ledger log instead of BANK_EVENTS
+	 */
+	public boolean isAvailable() {
+		return mappedEventLog == null;
+	}
+
+	/**
+	 * @throws ReplicaLagging on a follower further behind the primary than allowed
+	 */
+	public void checkReplicaLag() {
+		if (ledgerFollower != null) {
+			ledgerFollower.checkLag();
+		}
+	}
+
+	private EventPage getFollowerEvents(String userId, String cursor, int limit) {
+		long beforeRecord = cursor == null ? Long.MAX_VALUE : decodeRecordCursor(cursor);
+		ledgerFollower.checkLag();
+		List<EventResponse> responses = new ArrayList<>(limit);
+		long last = ledgerFollower.history(userId, beforeRecord, limit, event -> responses.add(toResponse(event)));
+		String nextCursor = responses.size() == limit ? encodeRecordCursor(last) : null;
+		return EventPage.builder().userId(userId).events(responses).nextCursor(nextCursor).build();
+	}
+
+	private long exportFollowerEvents(String userId, OutputStream out) throws IOException {
+		long[] written = new long[1];
+		try {
+			ledgerFollower.history(userId, Long.MAX_VALUE, Integer.MAX_VALUE, event -> {
+				try {
+					out.write(objectMapper.writeValueAsBytes(toResponse(event)));
+					out.write('\n');
+					if (++written[0] % 500 == 0) {
+						out.flush();
+					}
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+		out.flush();
+		return written[0];
+	}
+
+	private void requireEventTable() {
+		if (!isAvailable()) {
+			throw new BankLedgerInternalException(
+					"Transaction history is not available with ledger.journal.mode=mmap, events are not written to BANK_EVENTS");
+		}
+	}
+
+	private EventResponse toResponse(Event event) {
+		return EventResponse.builder().eventId(event.getEventId()).messageId(event.getMessageId())
+				.auditTimestamp(event.getAuditTimestamp())
+				.responseCode(event.isSuccessIndicator() ? ResponseCode.APPROVED : ResponseCode.DECLINED)
+				.transactionAmount(Amount.builder().currency("USD").debitOrCredit(event.getTransactionType())
+						.amount(Utils.formatAmount(event.getTransactionAmount())).build())
+				.balance(Amount.builder().currency("USD").debitOrCredit(DebitCredit.CREDIT)
+						.amount(Utils.formatAmount(event.getAmount())).build())
+				.build();
+	}
+
+	private static String encodeCursor(LocalDateTime auditTimestamp, UUID eventId) {
+		String key = auditTimestamp + "|" + eventId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String encodeRecordCursor(long record) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(Long.toString(record).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static long decodeRecordCursor(String cursor) {
+		try {
+			long record = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+			if (record < 0) {
+				throw new IllegalArgumentException("Invalid cursor " + cursor);
+			}
+			return record;
+		} catch (RuntimeException ex) {
+			throw new IllegalArgumentException("Invalid cursor " + cursor, ex);
+		}
+	}
+
+	private static String[] decodeCursor(String cursor) {
+		try {
+			String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+			if (key.length != 2) {
+				throw new IllegalArgumentException("Invalid cursor " + cursor);
+			}
+			// Fail here rather than in the query if either part is malformed
+			LocalDateTime.parse(key[0]);
+			UUID.fromString(key[1]);
+			return key;
+		} catch (RuntimeException ex) {
+			throw new IllegalArgumentException("Invalid cursor " + cursor, ex);
+		}
+	}
+}
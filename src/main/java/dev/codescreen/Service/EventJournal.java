@@ -0,0 +1,307 @@
+package dev.codescreen.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
+import dev.codescreen.utils.Money;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects events from concurrent requests and writes them to BANK_EVENTS in JDBC batches,
+ * committing each batch once. A batch is written as soon as it is full or the first event
+ * in it has waited for the maximum linger time. The future returned by {@link #submit}
+ * completes only after the batch holding the event has committed, so callers waiting on it
+ * know the event is durable. {@link #append} and {@link #appendAll} wait at most
+ * ledger.journal.write-timeout-ms, an event whose caller gave up is not written anymore unless
+ * its batch was already being written.
+ *
+ * Batches commit on their own connection, not in the transaction of the request. A request
+ * that rolls back after its event committed retracts the event again, and a crash in between
+ * leaves the event with no other write missing, since only the in-memory balance engine, which
+ * recovers from BANK_EVENTS, may be used with the journal.
+ *
+ * Enabled with ledger.journal.mode=batched, together with ledger.balance-engine=in-memory.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.journal.mode", havingValue = "batched")
+@Slf4j
+public class EventJournal implements EventStore {
+	private static final String INSERT_EVENT = "INSERT INTO BANK_EVENTS (EVENT_ID, AUDIT_TIMESTAMP, USER_ID, MESSAGE_ID, AMOUNT, "
+			+ "TRANSACTION_TYPE, TRANSACTION_AMOUNT, IS_SUCCESS_INDICATOR) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final String DELETE_EVENT = "DELETE FROM BANK_EVENTS WHERE EVENT_ID = ?";
+	private static final String SELECT_BY_MESSAGE_ID = "SELECT EVENT_ID, AUDIT_TIMESTAMP, USER_ID, MESSAGE_ID, AMOUNT, "
+			+ "TRANSACTION_TYPE, TRANSACTION_AMOUNT, IS_SUCCESS_INDICATOR FROM BANK_EVENTS WHERE MESSAGE_ID = ?";
+	private static final int FILL_BUCKETS = 10;
+
+	private final DataSource dataSource;
+	private final int batchSize;
+	private final long maxLingerNanos;
+	private final long writeTimeoutMillis;
+	private final BlockingQueue<PendingEvent> queue = new LinkedBlockingQueue<>();
+	private final Thread writer;
+	private volatile boolean running = true;
+
+	private final AtomicLong batchesWritten = new AtomicLong();
+	private final AtomicLong eventsWritten = new AtomicLong();
+	private final AtomicLong eventsFailed = new AtomicLong();
+	// Batches by fill ratio, bucket i counts batches filled between i and i+1 tenths of batchSize
+	private final AtomicLongArray batchFill = new AtomicLongArray(FILL_BUCKETS);
+
+	public EventJournal(DataSource dataSource, @Value("${ledger.journal.batch-size:256}") int batchSize,
+			@Value("${ledger.journal.max-linger-ms:2}") long maxLingerMillis,
+			@Value("${ledger.journal.write-timeout-ms:10000}") long writeTimeoutMillis) {
+		this.dataSource = dataSource;
+		this.batchSize = batchSize;
+		this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+		this.writeTimeoutMillis = writeTimeoutMillis;
+		this.writer = new Thread(this::writeLoop, "ledger-event-journal");
+		this.writer.start();
+		log.info("Event journal enabled with batch size {} and max linger {} ms", batchSize, maxLingerMillis);
+	}
+
+	/**
+	 * Queue the event for the next batch
+	 *
+	 * @param event: Event to write to BANK_EVENTS
+	 * @return a future completed once the event is committed, or completed exceptionally if
+	 *         it could not be written
+	 */
+	public CompletableFuture<Void> submit(Event event) {
+		if (!running) {
+			throw new BankLedgerInternalException("Event journal is shut down");
+		}
+		PendingEvent pending = new PendingEvent(event, new CompletableFuture<>());
+		queue.add(pending);
+		// Shut down meanwhile, the event is taken back unless the writer or shutdown already took it and completes it
+		if (!running && queue.remove(pending)) {
+			throw new BankLedgerInternalException("Event journal is shut down");
+		}
+		return pending.written;
+	}
+
+	@Override
+	public void append(Event event) {
+		submit(event).orTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS).join();
+	}
+
+	// Queues the whole batch before waiting so its events share as few commits as possible
+	@Override
+	public void appendAll(List<Event> events) {
+		List<CompletableFuture<Void>> written = new ArrayList<>(events.size());
+		for (Event event : events) {
+			written.add(submit(event).orTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS));
+		}
+		CompletableFuture.allOf(written.toArray(new CompletableFuture[0])).join();
+	}
+
+	// Deleted by EVENT_ID, so the event of an earlier request with the same messageId stays
+	@Override
+	public void retract(List<Event> events) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(DELETE_EVENT)) {
+			for (Event event : events) {
+				statement.setObject(1, event.getEventId());
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		} catch (SQLException ex) {
+			throw new BankLedgerInternalException("Failed to retract " + events.size() + " events", ex);
+		}
+	}
+
+	@Override
+	public Optional<Event> findByMessageId(String messageId) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_BY_MESSAGE_ID)) {
+			statement.setString(1, messageId);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (!resultSet.next()) {
+					return Optional.empty();
+				}
+				return Optional.of(Event.builder().eventId(resultSet.getObject(1, UUID.class))
+						.auditTimestamp(resultSet.getObject(2, LocalDateTime.class)).userId(resultSet.getString(3))
+						.messageId(resultSet.getString(4)).amount(Money.fromDecimal(resultSet.getBigDecimal(5)))
+						.transactionType(DebitCredit.valueOf(resultSet.getString(6)))
+						.transactionAmount(Money.fromDecimal(resultSet.getBigDecimal(7))).isSuccessIndicator(resultSet.getBoolean(8)).build());
+			}
+		} catch (SQLException ex) {
+			throw new BankLedgerInternalException("Failed to look up message " + messageId, ex);
+		}
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	public long getBatchesWritten() {
+		return batchesWritten.get();
+	}
+
+	public long getEventsWritten() {
+		return eventsWritten.get();
+	}
+
+	public long getEventsFailed() {
+		return eventsFailed.get();
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return number of batches per fill ratio, index i covers batches filled between i and
+	 *         i+1 tenths of the batch size
+	 */
+	public long[] getBatchFillHistogram() {
+		long[] histogram = new long[FILL_BUCKETS];
+		for (int i = 0; i < FILL_BUCKETS; i++) {
+			histogram[i] = batchFill.get(i);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Write the events still queued, waiting at most ledger.journal.write-timeout-ms. Events the
+	 * writer did not get to by then fail.
+	 */
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		running = false;
+		writer.interrupt();
+		writer.join(writeTimeoutMillis);
+		BankLedgerInternalException notWritten = new BankLedgerInternalException(
+				"Event journal shut down before the event was written");
+		for (PendingEvent pending = queue.poll(); pending != null; pending = queue.poll()) {
+			eventsFailed.incrementAndGet();
+			pending.written.completeExceptionally(notWritten);
+		}
+	}
+
+	private void writeLoop() {
+		List<PendingEvent> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				PendingEvent first = running ? queue.take() : queue.poll();
+				if (first == null) {
+					break;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + maxLingerNanos;
+				while (batch.size() < batchSize) {
+					long remaining = deadline - System.nanoTime();
+					PendingEvent next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+			} catch (InterruptedException ex) {
+				// Interrupted by shutdown, drain whatever is left without waiting
+			}
+			if (!batch.isEmpty()) {
+				writeBatch(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void writeBatch(List<PendingEvent> batch) {
+		// Callers that timed out have failed their request already
+		batch.removeIf(pending -> pending.written.isDone());
+		if (batch.isEmpty()) {
+			return;
+		}
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(false);
+			try {
+				insert(connection, batch);
+				connection.commit();
+				batchWritten(batch.size());
+				batch.forEach(pending -> pending.written.complete(null));
+			} catch (SQLException ex) {
+				connection.rollback();
+				log.warn("Batch of {} events failed, writing them one by one", batch.size(), ex);
+				writeIndividually(connection, batch);
+			}
+		} catch (Exception ex) {
+			log.error("Failed to write a batch of {} events", batch.size(), ex);
+			eventsFailed.addAndGet(batch.size());
+			batch.forEach(pending -> pending.written.completeExceptionally(ex));
+		}
+	}
+
+	// Isolates the events that broke the batch, typically a duplicate messageId, so the rest still commit
+
+	private void writeIndividually(Connection connection, List<PendingEvent> batch) throws SQLException {
+		for (PendingEvent pending : batch) {
+			try {
+				insert(connection, List.of(pending));
+				connection.commit();
+				batchWritten(1);
+				pending.written.complete(null);
+			} catch (SQLException ex) {
+				connection.rollback();
+				eventsFailed.incrementAndGet();
+				pending.written.completeExceptionally(ex);
+			}
+		}
+	}
+
+	private void insert(Connection connection, List<PendingEvent> batch) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(INSERT_EVENT)) {
+			for (PendingEvent pending : batch) {
+				Event event = pending.event;
+				statement.setObject(1, event.getEventId());
+				statement.setObject(2, event.getAuditTimestamp());
+				statement.setString(3, event.getUserId());
+				statement.setString(4, event.getMessageId());
+				statement.setBigDecimal(5, Money.toDecimal(event.getAmount()));
+				statement.setString(6, event.getTransactionType().name());
+				statement.setBigDecimal(7, Money.toDecimal(event.getTransactionAmount()));
+				statement.setBoolean(8, event.isSuccessIndicator());
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+	}
+
+	private void batchWritten(int size) {
+		batchesWritten.incrementAndGet();
+		eventsWritten.addAndGet(size);
+		batchFill.incrementAndGet(Math.min(FILL_BUCKETS - 1, size * FILL_BUCKETS / batchSize));
+	}
+
+	private static final class PendingEvent {
+		private final Event event;
+		private final CompletableFuture<Void> written;
+
+		private PendingEvent(Event event, CompletableFuture<Void> written) {
+			this.event = event;
+			this.written = written;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package dev.codescreen.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+import dev.codescreen.model.Event;
+
+/**
+ * Alternative destination for ledger events. When no EventStore is configured
+ * {@link BankLedgerService} saves events with the JPA {@link dev.codescreen.Repository.EventRepository}.
+ */
+public interface EventStore {
+
+	/**
+	 * Persist the event, returning only once it is durable
+	 *
+	 * @param event: Event to persist
+	 */
+	void append(Event event);
+
+	/**
+	 * Persist all events of a batch, returning only once every one of them is durable
+	 *
+	 * @param events: Events to persist, in order
+	 */
+	default void appendAll(List<Event> events) {
+		for (Event event : events) {
+			append(event);
+		}
+	}
+
+	/**
+	 * Remove events whose request transaction did not commit. Only needed by stores that commit
+	 * outside of that transaction: otherwise a retry of the message would replay an outcome that
+	 * never took effect.
+	 *
+	 * @param events: Events appended by the transaction, some of them may not have been written
+	 */
+	default void retract(List<Event> events) {
+	}
+
+	/**
+	 * Look up the event recorded for a message, used to answer retried requests
+	 *
+	 * @param messageId: MessageID for tracking the transaction/event
+	 * @return the recorded event, if the store still knows about the message
+	 */
+	Optional<Event> findByMessageId(String messageId);
+}
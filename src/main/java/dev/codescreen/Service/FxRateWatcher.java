@@ -0,0 +1,106 @@
+package dev.codescreen.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import dev.codescreen.utils.FxRateTable;
+import dev.codescreen.utils.Utils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads the FX rates used by {@link Utils#convertAmountToUSD} from a properties file and reloads
+ * them whenever the file changes. A new table is built off the request path and swapped in with
+ * one volatile write, so requests keep converting with the previous table until the new one is
+ * complete. A file that fails to parse is logged and ignored, the previous table stays active.
+ *
+ * Without the file only USD is accepted.
+ */
+@Component
+@Slf4j
+public class FxRateWatcher {
+	private final Path ratesPath;
+	private WatchService watchService;
+	private Thread watcher;
+
+	public FxRateWatcher(@Value("${ledger.fx.rates-path:./fx-rates.properties}") String ratesPath) {
+		this.ratesPath = Path.of(ratesPath).toAbsolutePath().normalize();
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		reload();
+		Path directory = ratesPath.getParent();
+		if (!Files.isDirectory(directory)) {
+			log.warn("FX rate directory {} does not exist, rates will not be reloaded", directory);
+			return;
+		}
+		watchService = directory.getFileSystem().newWatchService();
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+				StandardWatchEventKinds.ENTRY_DELETE);
+		watcher = new Thread(this::watchLoop, "ledger-fx-rate-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	/**
+	 * Load the rate file and swap it in, keeping the active table when the file is missing or invalid
+	 *
+	 * @return true when a new table was installed
+	 */
+	public boolean reload() {
+		if (!Files.isRegularFile(ratesPath)) {
+			log.info("No FX rate file at {}, converting {} currencies", ratesPath, Utils.getFxRates().size());
+			return false;
+		}
+		try (Reader reader = Files.newBufferedReader(ratesPath, StandardCharsets.UTF_8)) {
+			FxRateTable rates = FxRateTable.read(reader);
+			Utils.setFxRates(rates);
+			log.info("Loaded {} FX rates from {}", rates.size(), ratesPath);
+			return true;
+		} catch (IOException | IllegalArgumentException ex) {
+			log.error("Failed to load FX rates from {}, keeping the previous rates", ratesPath, ex);
+			return false;
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() throws IOException, InterruptedException {
+		if (watchService != null) {
+			watchService.close();
+			watcher.join(1000);
+		}
+	}
+
+	private void watchLoop() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				boolean changed = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					Object context = event.context();
+					changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+							|| (context instanceof Path path && ratesPath.getFileName().equals(path));
+				}
+				key.reset();
+				if (changed) {
+					reload();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException ex) {
+			// Shut down
+		}
+	}
+}
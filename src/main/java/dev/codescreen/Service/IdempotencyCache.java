@@ -0,0 +1,121 @@
+package dev.codescreen.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Remembers the outcome of recently processed messageIds so a retried load or authorization
+ * is answered with its original result instead of being applied a second time. Entries are
+ * evicted by size and age; anything older is answered from the event recorded for the
+ * messageId, looked up through the unique MESSAGE_ID index on BANK_EVENTS or the messageId
+ * index of the {@link EventStore}.
+ *
+ * A messageId being processed is claimed first, so a duplicate arriving concurrently waits
+ * for the original to finish and then receives the same outcome.
+ */
+@Component
+public class IdempotencyCache {
+	private static final long IN_FLIGHT_WAIT_SECONDS = 30;
+
+	private final Cache<String, Outcome> completed;
+	private final ConcurrentHashMap<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+
+	public IdempotencyCache(@Value("${ledger.idempotency.max-entries:1000000}") long maxEntries,
+			@Value("${ledger.idempotency.ttl-minutes:60}") long ttlMinutes) {
+		this.completed = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+				.concurrencyLevel(Runtime.getRuntime().availableProcessors()).build();
+	}
+
+	/**
+	 * Claim the messageId for processing
+	 *
+	 * @param messageId: MessageID for tracking the transaction/event
+	 * @return the original outcome when the message was already processed, or null when the
+	 *         caller now owns the message and must finish with {@link #complete} or
+	 *         {@link #abandon}
+	 */
+	public Outcome begin(String messageId) {
+		while (true) {
+			Outcome outcome = completed.getIfPresent(messageId);
+			if (outcome != null) {
+				return outcome;
+			}
+			CompletableFuture<Outcome> claim = new CompletableFuture<>();
+			CompletableFuture<Outcome> owner = inFlight.putIfAbsent(messageId, claim);
+			if (owner == null) {
+				// The previous owner may have completed between the two lookups
+				outcome = completed.getIfPresent(messageId);
+				if (outcome != null) {
+					inFlight.remove(messageId, claim);
+					claim.complete(outcome);
+				}
+				return outcome;
+			}
+			outcome = await(messageId, owner);
+			if (outcome != null) {
+				return outcome;
+			}
+			// The owner gave up without an outcome, try to claim the message again
+		}
+	}
+
+	/**
+	 * @return true when the outcome of the message is remembered, without claiming the message
+	 */
+	public boolean isCompleted(String messageId) {
+		return completed.getIfPresent(messageId) != null;
+	}
+
+	public void complete(String messageId, Outcome outcome) {
+		completed.put(messageId, outcome);
+		CompletableFuture<Outcome> claim = inFlight.remove(messageId);
+		if (claim != null) {
+			claim.complete(outcome);
+		}
+	}
+
+	public void abandon(String messageId) {
+		CompletableFuture<Outcome> claim = inFlight.remove(messageId);
+		if (claim != null) {
+			claim.complete(null);
+		}
+	}
+
+	// Messages claimed by a request that has not finished yet
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	private Outcome await(String messageId, CompletableFuture<Outcome> owner) {
+		try {
+			return owner.get(IN_FLIGHT_WAIT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new BankLedgerInternalException("Interrupted while waiting for message " + messageId, ex);
+		} catch (Exception ex) {
+			throw new BankLedgerInternalException("Timed out waiting for message " + messageId, ex);
+		}
+	}
+
+	/**
+	 * Result of a processed message, the balance after the transaction and whether it was
+	 * approved.
+	 */
+	@Getter
+	@AllArgsConstructor
+	public static class Outcome {
+		private final long balance;
+		private final boolean approved;
+	}
+}
@@ -0,0 +1,308 @@
+package dev.codescreen.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import dev.codescreen.Repository.UserBalanceRepository;
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.AuthorizationResult;
+import dev.codescreen.model.entity.UserBalance;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the balance of every account touched since startup in memory and updates it with a
+ * per-account atomic update, so loads and authorizations never wait on a database round
+ * trip. Changed balances are written back to USER_BALANCE in the background.
+ *
+ * When the {@link MappedEventLog} is enabled it replaces USER_BALANCE: all balances are
+ * loaded from the log on startup and nothing is written back, the log already holds them.
+ * Otherwise the balances are replayed from BANK_EVENTS on startup by {@link LedgerReplayService},
+ * so a write-back lost in a crash does not lose balance updates.
+ *
+ * Accounts listed in ledger.balance-engine.hot-accounts, such as payroll and top-up pools, keep
+ * their balance in several slots instead of a single counter so concurrent requests do not all
+ * retry on the same word. A credit goes to any slot. A debit takes the amount from one slot when
+ * that slot covers it, otherwise it collects the slots under the lock of the account and leaves
+ * the remainder in one slot. Slots never go negative, so the no-overdraft guarantee holds; the
+ * balance returned for a hot account is the sum of its slots just after the update.
+ *
+ * Enabled with ledger.balance-engine=in-memory. Only one instance may own a given database,
+ * otherwise the write-behind of two instances would overwrite each other.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.balance-engine", havingValue = "in-memory")
+@Slf4j
+public class InMemoryBalanceEngine implements BalanceEngine {
+	@Autowired
+	private UserBalanceRepository userBalanceRepository;
+	@Autowired(required = false)
+	private MappedEventLog mappedEventLog;
+	@Autowired(required = false)
+	private LedgerReplayService ledgerReplayService;
+	@Value("${ledger.replay.recover-on-start:true}")
+	private boolean recoverOnStart;
+	@Value("${ledger.balance-engine.hot-accounts:}")
+	private Set<String> hotAccounts = Set.of();
+	// 0 for one slot per core
+	@Value("${ledger.balance-engine.hot-account-slots:0}")
+	private int hotAccountSlots;
+
+	private final ConcurrentHashMap<String, AtomicLong> balances = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, SlottedBalance> hotBalances = new ConcurrentHashMap<>();
+	private final Set<String> dirtyAccounts = ConcurrentHashMap.newKeySet();
+
+	public InMemoryBalanceEngine() {
+	}
+
+	public InMemoryBalanceEngine(UserBalanceRepository userBalanceRepository) {
+		this.userBalanceRepository = userBalanceRepository;
+	}
+
+	public InMemoryBalanceEngine(UserBalanceRepository userBalanceRepository, Set<String> hotAccounts,
+			int hotAccountSlots) {
+		this.userBalanceRepository = userBalanceRepository;
+		this.hotAccounts = hotAccounts;
+		this.hotAccountSlots = hotAccountSlots;
+	}
+
+	@PostConstruct
+	public void recover() {
+		if (mappedEventLog != null) {
+			mappedEventLog.getRecoveredBalances().forEach(this::install);
+		} else if (ledgerReplayService != null && recoverOnStart) {
+			// BANK_EVENTS is committed with every request while USER_BALANCE may have missed the last write-back
+			LedgerReplayService.Replay replay = ledgerReplayService.replay();
+			replay.forEach((userId, fold) -> install(userId, fold.getBalance()));
+			log.info("Recovered {} balances from the snapshot and {} events", replay.getAccountCount(),
+					replay.getTailEvents());
+		}
+	}
+
+	@Override
+	public long credit(String userId, long amount) {
+		long updatedBalance = hotAccounts.contains(userId) ? hotAccount(userId, true).credit(amount)
+				: account(userId, true).addAndGet(amount);
+		dirtyAccounts.add(userId);
+		return updatedBalance;
+	}
+
+	@Override
+	public AuthorizationResult debit(String userId, long amount) {
+		if (hotAccounts.contains(userId)) {
+			return debitHotAccount(userId, amount);
+		}
+		AtomicLong balance = account(userId, false);
+		if (balance == null) {
+			throw userNotFound(userId);
+		}
+		long currentBalance;
+		long updatedBalance;
+		do {
+			currentBalance = balance.get();
+			if (currentBalance < amount) {
+				return AuthorizationResult.declined(currentBalance);
+			}
+			updatedBalance = currentBalance - amount;
+		} while (!balance.compareAndSet(currentBalance, updatedBalance));
+		dirtyAccounts.add(userId);
+		return AuthorizationResult.approved(updatedBalance);
+	}
+
+	@Override
+	public Optional<Long> balance(String userId) {
+		if (hotAccounts.contains(userId)) {
+			SlottedBalance balance = hotAccount(userId, false);
+			return balance == null ? Optional.empty() : Optional.of(balance.sum());
+		}
+		AtomicLong balance = account(userId, false);
+		return balance == null ? Optional.empty() : Optional.of(balance.get());
+	}
+
+	private AuthorizationResult debitHotAccount(String userId, long amount) {
+		SlottedBalance balance = hotAccount(userId, false);
+		if (balance == null) {
+			throw userNotFound(userId);
+		}
+		AuthorizationResult result = balance.debit(amount);
+		if (result.isApproved()) {
+			dirtyAccounts.add(userId);
+		}
+		return result;
+	}
+
+	/**
+	 * Write every balance changed since the last flush back to USER_BALANCE. An account that
+	 * could not be written stays dirty and is retried on the next run.
+	 */
+	@Scheduled(fixedDelayString = "${ledger.balance-engine.flush-interval-ms:100}")
+	public void flush() {
+		if (mappedEventLog != null || dirtyAccounts.isEmpty()) {
+			return;
+		}
+		Map<String, Long> changedBalances = new HashMap<>();
+		for (String userId : dirtyAccounts) {
+			// Remove before reading so a concurrent update marks the account dirty again
+			dirtyAccounts.remove(userId);
+			SlottedBalance hotBalance = hotBalances.get(userId);
+			changedBalances.put(userId, hotBalance != null ? hotBalance.sum() : balances.get(userId).get());
+		}
+		List<UserBalance> changed = new ArrayList<>(changedBalances.size());
+		try {
+			// The engine is the only writer, the stored rows are read for their versions
+			for (UserBalance userBalance : userBalanceRepository.findAllById(changedBalances.keySet())) {
+				userBalance.setBalance(changedBalances.remove(userBalance.getUserId()));
+				changed.add(userBalance);
+			}
+			changedBalances.forEach((userId, balance) -> changed.add(new UserBalance(userId, balance)));
+			userBalanceRepository.saveAll(changed);
+		} catch (Exception ex) {
+			log.error("Failed to write back {} balances, retrying on the next flush", changed.size(), ex);
+			changed.forEach(userBalance -> dirtyAccounts.add(userBalance.getUserId()));
+			dirtyAccounts.addAll(changedBalances.keySet());
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		flush();
+	}
+
+	// Accounts changed since the last flush to USER_BALANCE
+	public int getDirtyCount() {
+		return dirtyAccounts.size();
+	}
+
+	private AtomicLong account(String userId, boolean createIfMissing) {
+		AtomicLong balance = balances.get(userId);
+		if (balance != null) {
+			return balance;
+		}
+		Optional<Long> stored = storedBalance(userId);
+		if (stored.isEmpty() && !createIfMissing) {
+			return null;
+		}
+		AtomicLong loaded = new AtomicLong(stored.orElse(0L));
+		AtomicLong existing = balances.putIfAbsent(userId, loaded);
+		return existing != null ? existing : loaded;
+	}
+
+	private SlottedBalance hotAccount(String userId, boolean createIfMissing) {
+		SlottedBalance balance = hotBalances.get(userId);
+		if (balance != null) {
+			return balance;
+		}
+		Optional<Long> stored = storedBalance(userId);
+		if (stored.isEmpty() && !createIfMissing) {
+			return null;
+		}
+		SlottedBalance loaded = new SlottedBalance(slotCount(), stored.orElse(0L));
+		SlottedBalance existing = hotBalances.putIfAbsent(userId, loaded);
+		return existing != null ? existing : loaded;
+	}
+
+	// Loaded outside of the maps so a slow read does not block other accounts in the same bin
+	private Optional<Long> storedBalance(String userId) {
+		return mappedEventLog != null ? Optional.empty()
+				: userBalanceRepository.findById(userId).map(UserBalance::getBalance);
+	}
+
+	private void install(String userId, long balance) {
+		if (hotAccounts.contains(userId)) {
+			hotBalances.put(userId, new SlottedBalance(slotCount(), balance));
+		} else {
+			balances.put(userId, new AtomicLong(balance));
+		}
+	}
+
+	private int slotCount() {
+		return hotAccountSlots > 0 ? hotAccountSlots : Runtime.getRuntime().availableProcessors();
+	}
+
+	private BankLedgerInternalException userNotFound(String userId) {
+		String errorMessage = String.format("User %s is not found in the system", userId);
+		log.error(errorMessage);
+		return new BankLedgerInternalException(errorMessage);
+	}
+
+	/**
+	 * Balance of a hot account split over several slots, each on its own cache line
+	 */
+	private static final class SlottedBalance {
+		// Longs between two slots, 128 bytes so adjacent line prefetching does not pair them either
+		private static final int STRIDE = 16;
+
+		private final AtomicLongArray slots;
+		private final int slotCount;
+		// Serializes the debits that have to collect funds from more than one slot
+		private final ReentrantLock collectLock = new ReentrantLock();
+
+		private SlottedBalance(int slotCount, long balance) {
+			this.slotCount = slotCount;
+			this.slots = new AtomicLongArray(slotCount * STRIDE);
+			slots.set(0, balance);
+		}
+
+		private long credit(long amount) {
+			slots.getAndAdd(ThreadLocalRandom.current().nextInt(slotCount) * STRIDE, amount);
+			return sum();
+		}
+
+		/**
+		 * @return an approval with the balance after the debit, or a decline with the balance when
+		 *         it does not cover the amount
+		 */
+		private AuthorizationResult debit(long amount) {
+			int home = ThreadLocalRandom.current().nextInt(slotCount) * STRIDE;
+			long current = slots.get(home);
+			while (current >= amount) {
+				long witness = slots.compareAndExchange(home, current, current - amount);
+				if (witness == current) {
+					return AuthorizationResult.approved(sum());
+				}
+				current = witness;
+			}
+			collectLock.lock();
+			try {
+				// Credits landing in an already collected slot count as arriving after this debit
+				long collected = 0;
+				for (int slot = 0; slot < slotCount && collected < amount; slot++) {
+					collected += slots.getAndSet(slot * STRIDE, 0);
+				}
+				if (collected < amount) {
+					slots.getAndAdd(home, collected);
+					return AuthorizationResult.declined(collected);
+				}
+				// The remainder stays together so the next debits are served from one slot again
+				slots.getAndAdd(home, collected - amount);
+				return AuthorizationResult.approved(sum());
+			} finally {
+				collectLock.unlock();
+			}
+		}
+
+		private long sum() {
+			long sum = 0;
+			for (int slot = 0; slot < slotCount; slot++) {
+				sum += slots.get(slot * STRIDE);
+			}
+			return sum;
+		}
+	}
+}
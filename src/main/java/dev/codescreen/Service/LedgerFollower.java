@@ -0,0 +1,317 @@
+package dev.codescreen.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.exceptions.ReplicaLagging;
+import dev.codescreen.model.AuthorizationResult;
+import dev.codescreen.model.Event;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read-only replica of a primary running with ledger.journal.mode=mmap. A single tailer thread
+ * maps the primary's ledger log read-only and applies every record committed since the last
+ * poll to in-memory balances, and remembers the position of each record per account so the
+ * transaction history is read straight from the mapping. Nothing is written: the follower
+ * neither touches the log nor its own database, and write endpoints are refused.
+ *
+ * Replication lag is the time since the tailer last reached the head of the log, every record
+ * committed before that moment has been applied. Reads are refused with {@link ReplicaLagging}
+ * while the lag exceeds ledger.follower.max-lag-ms, including until the follower has caught up
+ * after starting, so a follower never serves balances older than the bound. A slot the primary
+ * claimed but never committed holds the tailer back until the primary voids it on its next
+ * start, the lag grows meanwhile.
+ *
+ * Enabled with ledger.role=follower, the primary and its followers must share the same
+ * ledger.mmap.chunk-size-mb.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.role", havingValue = "follower")
+@Slf4j
+public class LedgerFollower implements BalanceEngine {
+	// Slots after an uncommitted one checked for committed records before counting as caught up
+	private static final int LOOKAHEAD = 64;
+	// Applied records between two publications of the tailer's progress
+	private static final int PUBLISH_INTERVAL = 4096;
+
+	private final Path logPath;
+	private final int recordsPerChunk;
+	private final long maxLagMillis;
+	private final long pollIntervalNanos;
+	private final long retryAfterSeconds;
+	private FileChannel channel;
+	// Grown by the tailer only, read by history readers for records it has applied
+	private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+	private final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+	// Events the primary retracted, left out of the history
+	private final Set<UUID> retractedEvents = ConcurrentHashMap.newKeySet();
+
+	private volatile long appliedRecords;
+	// System.nanoTime() when the tailer last reached the head of the log, 0 before the first time
+	private volatile long caughtUpAt;
+	private final AtomicLong laggingReads = new AtomicLong();
+	private volatile boolean running = true;
+	private Thread tailer;
+
+	public LedgerFollower(@Value("${ledger.follower.log-path:${ledger.mmap.path:./ledger.log}}") String path,
+			@Value("${ledger.mmap.chunk-size-mb:64}") int chunkSizeMb,
+			@Value("${ledger.follower.max-lag-ms:1000}") long maxLagMillis,
+			@Value("${ledger.follower.poll-interval-ms:1}") long pollIntervalMillis,
+			@Value("${ledger.follower.retry-after-seconds:1}") long retryAfterSeconds) {
+		this.logPath = Path.of(path);
+		this.recordsPerChunk = chunkSizeMb * 1024 * 1024 / LedgerLogRecord.SIZE;
+		this.maxLagMillis = maxLagMillis;
+		this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, pollIntervalMillis));
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	@PostConstruct
+	public void start() {
+		tailer = new Thread(this::tailLoop, "ledger-follower");
+		tailer.setDaemon(true);
+		tailer.start();
+		log.info("Following ledger log {}, reads are refused while more than {} ms behind", logPath, maxLagMillis);
+	}
+
+	@PreDestroy
+	public void shutdown() throws IOException, InterruptedException {
+		running = false;
+		LockSupport.unpark(tailer);
+		tailer.join(1000);
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	@Override
+	public long credit(String userId, long amount) {
+		throw readOnly();
+	}
+
+	@Override
+	public AuthorizationResult debit(String userId, long amount) {
+		throw readOnly();
+	}
+
+	@Override
+	public Optional<Long> balance(String userId) {
+		checkLag();
+		Account account = accounts.get(userId);
+		return account == null || !account.funded ? Optional.empty() : Optional.of(account.balance);
+	}
+
+	/**
+	 * Pass the events of the account to the consumer, newest first in the order the primary
+	 * appended them
+	 *
+	 * @param userId:       Unique Identifier of the Account
+	 * @param beforeRecord: Only events at log positions below it, Long.MAX_VALUE for the newest
+	 * @param limit:        Maximum number of events
+	 * @param consumer:     Receives the events
+	 * @return the log position of the last event passed, -1 when there was none
+	 */
+	public long history(String userId, long beforeRecord, int limit, Consumer<Event> consumer) {
+		Account account = accounts.get(userId);
+		if (account == null) {
+			return -1;
+		}
+		// Count before records, a grown array still holds every record counted
+		int count = account.count;
+		long[] records = account.records;
+		int index = Arrays.binarySearch(records, 0, count, beforeRecord);
+		index = index >= 0 ? index - 1 : -index - 2;
+		long last = -1;
+		MappedByteBuffer[] mapped = chunks;
+		for (; index >= 0 && limit > 0; index--) {
+			last = records[index];
+			Event event = LedgerLogRecord.read(mapped[(int) (last / recordsPerChunk)], offset(last));
+			if (!retractedEvents.contains(event.getEventId())) {
+				consumer.accept(event);
+				limit--;
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * @throws ReplicaLagging when the follower is further behind the primary than allowed
+	 */
+	public void checkLag() {
+		long lag = getLagMillis();
+		if (lag < 0 || lag > maxLagMillis) {
+			laggingReads.incrementAndGet();
+			throw new ReplicaLagging(lag < 0 ? "Follower has not caught up with the primary yet"
+					: String.format("Follower is %d ms behind the primary, the limit is %d ms", lag, maxLagMillis),
+					retryAfterSeconds);
+		}
+	}
+
+	/**
+	 * @return milliseconds since the follower last reached the head of the log, -1 before it
+	 *         first did
+	 */
+	public long getLagMillis() {
+		long caughtUp = caughtUpAt;
+		return caughtUp == 0 ? -1 : (System.nanoTime() - caughtUp) / 1_000_000;
+	}
+
+	public long getAppliedRecords() {
+		return appliedRecords;
+	}
+
+	public long getLaggingReads() {
+		return laggingReads.get();
+	}
+
+	/**
+	 * Apply the records committed since the last poll, called by the tailer thread only
+	 *
+	 * @return the number of records applied
+	 */
+	int poll() throws IOException {
+		if (channel == null) {
+			if (!Files.exists(logPath)) {
+				return 0;
+			}
+			channel = FileChannel.open(logPath, StandardOpenOption.READ);
+		}
+		long record = appliedRecords;
+		int applied = 0;
+		while (true) {
+			MappedByteBuffer chunk = chunk(record);
+			int offset = offset(record);
+			if (chunk == null || !LedgerLogRecord.isCommitted(chunk, offset)) {
+				if (chunk == null || !committedAhead(record)) {
+					markCaughtUp(record);
+				}
+				break;
+			}
+			if (!LedgerLogRecord.isVoid(chunk, offset)) {
+				apply(chunk, offset, record);
+			}
+			record++;
+			if (++applied % PUBLISH_INTERVAL == 0) {
+				appliedRecords = record;
+			}
+		}
+		appliedRecords = record;
+		return applied;
+	}
+
+	private void apply(MappedByteBuffer chunk, int offset, long record) {
+		Account account = accounts.computeIfAbsent(LedgerLogRecord.userId(chunk, offset), userId -> new Account());
+		if (LedgerLogRecord.isRetraction(chunk, offset)) {
+			retractedEvents.add(LedgerLogRecord.eventId(chunk, offset));
+			account.balance += LedgerLogRecord.balanceChange(chunk, offset);
+			return;
+		}
+		if (LedgerLogRecord.isSuccess(chunk, offset)) {
+			account.balance += LedgerLogRecord.balanceChange(chunk, offset);
+			account.funded = true;
+		}
+		account.add(record);
+	}
+
+	private void markCaughtUp(long record) {
+		if (caughtUpAt == 0) {
+			log.info("Caught up with {} at record {}, serving reads", logPath, record);
+		}
+		caughtUpAt = System.nanoTime();
+	}
+
+	// A committed record past an uncommitted slot means the slot is being written, or was torn by a crash
+	private boolean committedAhead(long record) throws IOException {
+		for (long ahead = record + 1; ahead <= record + LOOKAHEAD; ahead++) {
+			MappedByteBuffer chunk = chunk(ahead);
+			if (chunk == null) {
+				return false;
+			}
+			if (LedgerLogRecord.isCommitted(chunk, offset(ahead))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void tailLoop() {
+		while (running) {
+			try {
+				if (poll() == 0) {
+					LockSupport.parkNanos(pollIntervalNanos);
+				}
+			} catch (IOException | RuntimeException ex) {
+				log.error("Failed to read ledger log {}, retrying", logPath, ex);
+				LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+			}
+		}
+	}
+
+	// Null while the primary has not grown the log to the chunk yet
+	private MappedByteBuffer chunk(long record) throws IOException {
+		int index = (int) (record / recordsPerChunk);
+		MappedByteBuffer[] mapped = chunks;
+		if (index < mapped.length) {
+			return mapped[index];
+		}
+		if (channel.size() < (index + 1) * chunkBytes()) {
+			return null;
+		}
+		MappedByteBuffer[] grown = Arrays.copyOf(mapped, index + 1);
+		for (int i = mapped.length; i <= index; i++) {
+			grown[i] = channel.map(FileChannel.MapMode.READ_ONLY, i * chunkBytes(), chunkBytes());
+		}
+		chunks = grown;
+		return grown[index];
+	}
+
+	private int offset(long record) {
+		return (int) (record % recordsPerChunk) * LedgerLogRecord.SIZE;
+	}
+
+	private long chunkBytes() {
+		return (long) recordsPerChunk * LedgerLogRecord.SIZE;
+	}
+
+	private BankLedgerInternalException readOnly() {
+		return new BankLedgerInternalException("This node is a read-only follower of " + logPath);
+	}
+
+	// Written by the tailer thread only
+	private static final class Account {
+		private volatile long balance;
+		// Any approved transaction, the primary does not know accounts that only have declines
+		private volatile boolean funded;
+		private volatile long[] records = new long[4];
+		private volatile int count;
+
+		private void add(long record) {
+			long[] current = records;
+			if (count == current.length) {
+				current = Arrays.copyOf(current, current.length * 2);
+				records = current;
+			}
+			current[count] = record;
+			count = count + 1;
+		}
+	}
+}
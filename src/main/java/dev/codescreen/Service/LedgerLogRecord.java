@@ -0,0 +1,222 @@
+package dev.codescreen.Service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
+
+/**
+ * Fixed size binary layout of one event in the ledger log. A record is only valid once its
+ * commit marker is set and its checksum matches, which lets readers skip records that are
+ * still being written or were torn by a crash. Amounts are stored in minor units.
+ *
+ * A retraction is a copy of an earlier record with the retraction flag set, appended when the
+ * request transaction of that record did not commit. It reverses the balance change of the
+ * record, the log itself is never rewritten.
+ *
+ * <pre>
+ *   0  event id (16)          40  transaction type (1)   44  userId (100)
+ *  16  timestamp micros (8)   41  success indicator (1) 144  messageId (100)
+ *  24  balance after (8)      42  userId length (1)     244  retraction flag (1)
+ *  32  transaction amount (8) 43  messageId length (1)  248  CRC32 of bytes 0-247 (4)
+ *                                                       252  commit marker (4)
+ * </pre>
+ */
+public final class LedgerLogRecord {
+	public static final int SIZE = 256;
+	public static final int MAX_ID_BYTES = 100;
+
+	static final byte TYPE_DEBIT = 0;
+	static final byte TYPE_CREDIT = 1;
+	// Slot claimed by a writer that crashed before committing it, skipped by readers
+	static final byte TYPE_VOID = 2;
+
+	private static final int TIMESTAMP = 16;
+	private static final int AMOUNT = 24;
+	private static final int TRANSACTION_AMOUNT = 32;
+	private static final int TYPE = 40;
+	private static final int SUCCESS = 41;
+	private static final int USER_ID_LENGTH = 42;
+	private static final int MESSAGE_ID_LENGTH = 43;
+	private static final int USER_ID = 44;
+	private static final int MESSAGE_ID = USER_ID + MAX_ID_BYTES;
+	private static final int RETRACTION = MESSAGE_ID + MAX_ID_BYTES;
+	private static final int CHECKSUM = 248;
+	private static final int MARKER = 252;
+	private static final int COMMITTED = 0x4C454447;
+
+	private static final VarHandle INT_VIEW = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(SIZE));
+	private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
+
+	private LedgerLogRecord() {
+	}
+
+	/**
+	 * Encode the event into the scratch record of the calling thread. Fails before anything is
+	 * written to the log, so an event that cannot be stored does not take a slot.
+	 *
+	 * @throws BankLedgerInternalException when the userId or messageId is longer than MAX_ID_BYTES
+	 */
+	static ByteBuffer encode(Event event) {
+		ByteBuffer record = SCRATCH.get();
+		record.clear();
+		UUID eventId = event.getEventId();
+		record.putLong(0, eventId.getMostSignificantBits());
+		record.putLong(8, eventId.getLeastSignificantBits());
+		LocalDateTime timestamp = event.getAuditTimestamp();
+		record.putLong(TIMESTAMP,
+				timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000);
+		record.putLong(AMOUNT, event.getAmount());
+		record.putLong(TRANSACTION_AMOUNT, event.getTransactionAmount());
+		record.put(TYPE, event.getTransactionType() == DebitCredit.CREDIT ? TYPE_CREDIT : TYPE_DEBIT);
+		record.put(SUCCESS, (byte) (event.isSuccessIndicator() ? 1 : 0));
+		putId(record, USER_ID_LENGTH, USER_ID, event.getUserId());
+		putId(record, MESSAGE_ID_LENGTH, MESSAGE_ID, event.getMessageId());
+		record.put(RETRACTION, (byte) 0);
+		record.putInt(CHECKSUM, checksum(record));
+		return record;
+	}
+
+	/**
+	 * Encode the retraction of the committed record at the given offset into the scratch record
+	 * of the calling thread
+	 */
+	static ByteBuffer encodeRetraction(ByteBuffer log, int offset) {
+		ByteBuffer record = SCRATCH.get();
+		record.clear();
+		record.put(0, log, offset, SIZE);
+		record.put(RETRACTION, (byte) 1);
+		record.putInt(CHECKSUM, checksum(record));
+		return record;
+	}
+
+	/**
+	 * Write a record returned by {@link #encode} on the same thread into the slot at the given
+	 * offset and publish it by setting the commit marker last
+	 */
+	static void write(ByteBuffer log, int offset, ByteBuffer record) {
+		log.put(offset, record, 0, MARKER);
+		INT_VIEW.setRelease(log, offset + MARKER, COMMITTED);
+	}
+
+	/**
+	 * Mark a slot that will never be committed so readers can move past it
+	 */
+	static void writeVoid(ByteBuffer log, int offset) {
+		ByteBuffer record = SCRATCH.get();
+		record.clear();
+		for (int i = 0; i < SIZE; i++) {
+			record.put(i, (byte) 0);
+		}
+		record.put(TYPE, TYPE_VOID);
+		record.putInt(CHECKSUM, checksum(record));
+		log.put(offset, record, 0, MARKER);
+		INT_VIEW.setRelease(log, offset + MARKER, COMMITTED);
+	}
+
+	/**
+	 * @return true when the slot holds a complete record, including void records
+	 */
+	static boolean isCommitted(ByteBuffer log, int offset) {
+		if ((int) INT_VIEW.getAcquire(log, offset + MARKER) != COMMITTED) {
+			return false;
+		}
+		ByteBuffer record = SCRATCH.get();
+		record.clear();
+		record.put(0, log, offset, SIZE);
+		return record.getInt(CHECKSUM) == checksum(record);
+	}
+
+	/**
+	 * @return true when the slot is a void record, only valid for committed slots
+	 */
+	static boolean isVoid(ByteBuffer log, int offset) {
+		return log.get(offset + TYPE) == TYPE_VOID;
+	}
+
+	/**
+	 * @return true when the slot retracts an earlier record, only valid for committed slots
+	 */
+	static boolean isRetraction(ByteBuffer log, int offset) {
+		return log.get(offset + RETRACTION) == 1;
+	}
+
+	static UUID eventId(ByteBuffer log, int offset) {
+		return new UUID(log.getLong(offset), log.getLong(offset + 8));
+	}
+
+	static String userId(ByteBuffer log, int offset) {
+		return getId(log, offset, USER_ID_LENGTH, USER_ID);
+	}
+
+	static String messageId(ByteBuffer log, int offset) {
+		return getId(log, offset, MESSAGE_ID_LENGTH, MESSAGE_ID);
+	}
+
+	static boolean isSuccess(ByteBuffer log, int offset) {
+		return log.get(offset + SUCCESS) == 1;
+	}
+
+	/**
+	 * @return the transaction amount signed by its direction, zero for declined transactions and
+	 *         reversed for retractions
+	 */
+	static long balanceChange(ByteBuffer log, int offset) {
+		if (!isSuccess(log, offset)) {
+			return 0;
+		}
+		long amount = log.getLong(offset + TRANSACTION_AMOUNT);
+		long change = log.get(offset + TYPE) == TYPE_CREDIT ? amount : -amount;
+		return isRetraction(log, offset) ? -change : change;
+	}
+
+	/**
+	 * Decode the record into an Event, only valid for committed, non void slots
+	 */
+	public static Event read(ByteBuffer log, int offset) {
+		long micros = log.getLong(offset + TIMESTAMP);
+		return Event.builder().eventId(eventId(log, offset))
+				.auditTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+						(int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC))
+				.userId(userId(log, offset)).messageId(messageId(log, offset))
+				.amount(log.getLong(offset + AMOUNT)).transactionAmount(log.getLong(offset + TRANSACTION_AMOUNT))
+				.transactionType(log.get(offset + TYPE) == TYPE_CREDIT ? DebitCredit.CREDIT : DebitCredit.DEBIT)
+				.isSuccessIndicator(isSuccess(log, offset)).build();
+	}
+
+	private static void putId(ByteBuffer record, int lengthOffset, int offset, String id) {
+		byte[] bytes = id == null ? new byte[0] : id.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_ID_BYTES) {
+			throw new BankLedgerInternalException(
+					String.format("Id %s is longer than %d bytes and cannot be written to the ledger log", id, MAX_ID_BYTES));
+		}
+		record.put(lengthOffset, (byte) bytes.length);
+		record.put(offset, bytes);
+		for (int i = offset + bytes.length; i < offset + MAX_ID_BYTES; i++) {
+			record.put(i, (byte) 0);
+		}
+	}
+
+	private static String getId(ByteBuffer log, int offset, int lengthOffset, int idOffset) {
+		byte[] bytes = new byte[log.get(offset + lengthOffset)];
+		log.get(offset + idOffset, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int checksum(ByteBuffer record) {
+		CRC32 crc = CRC.get();
+		crc.reset();
+		crc.update(record.slice(0, CHECKSUM));
+		return (int) crc.getValue();
+	}
+}
@@ -0,0 +1,446 @@
+package dev.codescreen.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.entity.SnapshotWatermark;
+import dev.codescreen.model.response.BalanceDrift;
+import dev.codescreen.model.response.ReconciliationReport;
+import dev.codescreen.utils.Money;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rebuilds the balance of every account from BANK_EVENTS. Events are read in (AUDIT_TIMESTAMP,
+ * EVENT_ID) order in chunks, and each chunk is folded in parallel: accounts are partitioned by
+ * the hash of their userId and every partition owns the running balances of its accounts, so
+ * the folds share no state and the events of an account are still applied in order.
+ *
+ * A snapshot of the folded balances is written to BALANCE_SNAPSHOT periodically together with
+ * the key of the last folded event, so a replay only has to read the events after it. The
+ * snapshot stays snapshot-lag-ms behind the clock: an event is only folded once every request
+ * that could still commit an older timestamp is over.
+ *
+ * BANK_EVENTS is not kept with ledger.journal.mode=mmap, the ledger log recovers itself there.
+ */
+@Service
+@Slf4j
+public class LedgerReplayService {
+	private static final String EVENT_COLUMNS = "SELECT AUDIT_TIMESTAMP, EVENT_ID, USER_ID, AMOUNT, TRANSACTION_TYPE, "
+			+ "TRANSACTION_AMOUNT, IS_SUCCESS_INDICATOR FROM BANK_EVENTS ";
+	private static final String SELECT_EVENTS = EVENT_COLUMNS
+			+ "WHERE AUDIT_TIMESTAMP <= ? ORDER BY AUDIT_TIMESTAMP, EVENT_ID";
+	private static final String SELECT_EVENTS_AFTER = EVENT_COLUMNS
+			+ "WHERE AUDIT_TIMESTAMP <= ? AND (AUDIT_TIMESTAMP > ? OR (AUDIT_TIMESTAMP = ? AND EVENT_ID > ?)) "
+			+ "ORDER BY AUDIT_TIMESTAMP, EVENT_ID";
+	private static final String SELECT_SNAPSHOT = "SELECT USER_ID, BALANCE FROM BALANCE_SNAPSHOT";
+	private static final String SELECT_WATERMARK = "SELECT AUDIT_TIMESTAMP, EVENT_ID FROM SNAPSHOT_WATERMARK WHERE ID = 1";
+	private static final String MERGE_SNAPSHOT = "MERGE INTO BALANCE_SNAPSHOT (USER_ID, BALANCE) KEY (USER_ID) VALUES (?, ?)";
+	private static final String MERGE_WATERMARK = "MERGE INTO SNAPSHOT_WATERMARK (ID, AUDIT_TIMESTAMP, EVENT_ID, "
+			+ "SNAPSHOT_TIMESTAMP) KEY (ID) VALUES (1, ?, ?, ?)";
+	private static final String SELECT_BALANCES = "SELECT USER_ID, BALANCE FROM USER_BALANCE";
+	private static final int CHUNK_SIZE = 65536;
+	private static final int FETCH_SIZE = 1000;
+	private static final int MAX_REPORTED_DRIFTS = 1000;
+
+	private final DataSource dataSource;
+	private final Duration snapshotLag;
+	private final int partitions = Math.max(1, Runtime.getRuntime().availableProcessors());
+	private final ReentrantLock snapshotLock = new ReentrantLock();
+	@Autowired(required = false)
+	private MappedEventLog mappedEventLog;
+
+	public LedgerReplayService(DataSource dataSource,
+			@Value("${ledger.replay.snapshot-lag-ms:60000}") long snapshotLagMillis) {
+		this.dataSource = dataSource;
+		this.snapshotLag = Duration.ofMillis(snapshotLagMillis);
+	}
+
+	public boolean isAvailable() {
+		return mappedEventLog == null;
+	}
+
+	/**
+	 * Fold every event up to now on top of the latest snapshot
+	 *
+	 * @return the balance of every account that has a snapshot or an event
+	 */
+	public Replay replay() {
+		try (Connection connection = dataSource.getConnection()) {
+			return replay(connection, LocalDateTime.now(), true);
+		} catch (SQLException ex) {
+			throw new BankLedgerInternalException("Failed to replay BANK_EVENTS", ex);
+		}
+	}
+
+	/**
+	 * Fold the events that are older than the snapshot lag and not yet in the snapshot, then
+	 * write the balances they changed and the new watermark in one transaction. Skipped while
+	 * another snapshot is running.
+	 *
+	 * @return the new watermark, or null when no event was folded
+	 */
+	public SnapshotWatermark snapshot() {
+		if (!isAvailable() || !snapshotLock.tryLock()) {
+			return null;
+		}
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(false);
+			try {
+				Replay replay = replay(connection, LocalDateTime.now().minus(snapshotLag), true);
+				if (replay.getTailEvents() == 0) {
+					connection.rollback();
+					return null;
+				}
+				int written = writeSnapshot(connection, replay);
+				SnapshotWatermark watermark = new SnapshotWatermark(1, replay.getWatermarkTimestamp(),
+						replay.getWatermarkEventId(), LocalDateTime.now());
+				try (PreparedStatement statement = connection.prepareStatement(MERGE_WATERMARK)) {
+					statement.setObject(1, watermark.getAuditTimestamp());
+					statement.setObject(2, watermark.getEventId());
+					statement.setObject(3, watermark.getSnapshotTimestamp());
+					statement.executeUpdate();
+				}
+				connection.commit();
+				log.info("Snapshot of {} accounts written after folding {} events, watermark {}", written,
+						replay.getTailEvents(), watermark.getAuditTimestamp());
+				return watermark;
+			} catch (SQLException | RuntimeException ex) {
+				connection.rollback();
+				throw ex;
+			}
+		} catch (SQLException ex) {
+			throw new BankLedgerInternalException("Failed to write the balance snapshot", ex);
+		} finally {
+			snapshotLock.unlock();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${ledger.replay.snapshot-interval-ms:3600000}", initialDelayString = "${ledger.replay.snapshot-interval-ms:3600000}")
+	public void scheduledSnapshot() {
+		try {
+			snapshot();
+		} catch (Exception ex) {
+			log.error("Scheduled balance snapshot failed", ex);
+		}
+	}
+
+	/**
+	 * Replay BANK_EVENTS and compare the result with USER_BALANCE, both read in one repeatable
+	 * read transaction so they describe the same point in time. An account drifts when its stored
+	 * balance differs from the replayed one, or when the replayed balance differs from the
+	 * balance recorded on its newest event. With ledger.balance-engine=in-memory the accounts
+	 * changed since the last write-back also show up.
+	 *
+	 * @param fromScratch: Ignore BALANCE_SNAPSHOT and fold every event, which also checks the
+	 *                     snapshot itself
+	 */
+	public ReconciliationReport reconcile(boolean fromScratch) {
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setReadOnly(true);
+			connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+			connection.setAutoCommit(false);
+			try {
+				LocalDateTime upTo = LocalDateTime.now();
+				Replay replay = replay(connection, upTo, !fromScratch);
+				ReconciliationReport report = compare(connection, replay, upTo);
+				connection.commit();
+				return report;
+			} catch (SQLException | RuntimeException ex) {
+				connection.rollback();
+				throw ex;
+			}
+		} catch (SQLException ex) {
+			throw new BankLedgerInternalException("Failed to reconcile USER_BALANCE with BANK_EVENTS", ex);
+		}
+	}
+
+	private Replay replay(Connection connection, LocalDateTime upTo, boolean fromSnapshot) throws SQLException {
+		Replay replay = new Replay(partitions);
+		if (fromSnapshot) {
+			loadSnapshot(connection, replay);
+		}
+		boolean after = replay.watermarkTimestamp != null;
+		try (PreparedStatement statement = connection.prepareStatement(after ? SELECT_EVENTS_AFTER : SELECT_EVENTS)) {
+			statement.setFetchSize(FETCH_SIZE);
+			statement.setObject(1, upTo);
+			if (after) {
+				statement.setObject(2, replay.watermarkTimestamp);
+				statement.setObject(3, replay.watermarkTimestamp);
+				statement.setObject(4, replay.watermarkEventId);
+			}
+			Chunk chunk = new Chunk(partitions);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					String userId = resultSet.getString(3);
+					long amount = Money.fromDecimal(resultSet.getBigDecimal(4));
+					long delta = 0;
+					if (resultSet.getBoolean(7)) {
+						long transactionAmount = Money.fromDecimal(resultSet.getBigDecimal(6));
+						delta = DebitCredit.valueOf(resultSet.getString(5)) == DebitCredit.CREDIT ? transactionAmount
+								: -transactionAmount;
+					}
+					chunk.add(userId, replay.partition(userId), delta, amount);
+					if (chunk.size == CHUNK_SIZE) {
+						replay.fold(chunk);
+						chunk.clear();
+					}
+					replay.watermarkTimestamp = resultSet.getObject(1, LocalDateTime.class);
+					replay.watermarkEventId = resultSet.getObject(2, UUID.class);
+				}
+			}
+			replay.fold(chunk);
+		}
+		return replay;
+	}
+
+	private void loadSnapshot(Connection connection, Replay replay) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(SELECT_WATERMARK);
+				ResultSet resultSet = statement.executeQuery()) {
+			if (!resultSet.next()) {
+				return;
+			}
+			replay.watermarkTimestamp = resultSet.getObject(1, LocalDateTime.class);
+			replay.watermarkEventId = resultSet.getObject(2, UUID.class);
+		}
+		try (PreparedStatement statement = connection.prepareStatement(SELECT_SNAPSHOT)) {
+			statement.setFetchSize(FETCH_SIZE);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					String userId = resultSet.getString(1);
+					long balance = Money.fromDecimal(resultSet.getBigDecimal(2));
+					replay.partitions[replay.partition(userId)].put(userId, new AccountFold(balance, balance));
+				}
+			}
+		}
+	}
+
+	// Only accounts with events after the previous watermark changed
+	private int writeSnapshot(Connection connection, Replay replay) throws SQLException {
+		int[] written = new int[1];
+		try (PreparedStatement statement = connection.prepareStatement(MERGE_SNAPSHOT)) {
+			SQLException[] failure = new SQLException[1];
+			replay.forEach((userId, fold) -> {
+				if (fold.tailEvents == 0 || failure[0] != null) {
+					return;
+				}
+				try {
+					statement.setString(1, userId);
+					statement.setBigDecimal(2, Money.toDecimal(fold.balance));
+					statement.addBatch();
+					if (++written[0] % FETCH_SIZE == 0) {
+						statement.executeBatch();
+					}
+				} catch (SQLException ex) {
+					failure[0] = ex;
+				}
+			});
+			if (failure[0] != null) {
+				throw failure[0];
+			}
+			statement.executeBatch();
+		}
+		return written[0];
+	}
+
+	private ReconciliationReport compare(Connection connection, Replay replay, LocalDateTime upTo) throws SQLException {
+		List<BalanceDrift> drifts = new ArrayList<>();
+		long[] accountsInDrift = new long[1];
+		long accountsChecked = 0;
+		try (PreparedStatement statement = connection.prepareStatement(SELECT_BALANCES)) {
+			statement.setFetchSize(FETCH_SIZE);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					accountsChecked++;
+					String userId = resultSet.getString(1);
+					long stored = Money.fromDecimal(resultSet.getBigDecimal(2));
+					AccountFold fold = replay.get(userId);
+					if (fold == null) {
+						if (stored != 0) {
+							drift(drifts, accountsInDrift, BalanceDrift.builder().userId(userId)
+									.storedBalance(Money.format(stored)).build());
+						}
+						continue;
+					}
+					fold.checked = true;
+					if (fold.balance != stored || fold.balance != fold.lastRecordedBalance) {
+						drift(drifts, accountsInDrift, drift(userId, fold).storedBalance(Money.format(stored)).build());
+					}
+				}
+			}
+		}
+		replay.forEach((userId, fold) -> {
+			if (!fold.checked && fold.balance != 0) {
+				drift(drifts, accountsInDrift, drift(userId, fold).build());
+			}
+		});
+		return ReconciliationReport.builder().replayedUpTo(upTo).accountsReplayed(replay.getAccountCount())
+				.eventsReplayed(replay.getTailEvents()).accountsChecked(accountsChecked)
+				.accountsInDrift(accountsInDrift[0]).drifts(drifts).build();
+	}
+
+	private static BalanceDrift.BalanceDriftBuilder drift(String userId, AccountFold fold) {
+		return BalanceDrift.builder().userId(userId).replayedBalance(Money.format(fold.balance))
+				.lastRecordedBalance(Money.format(fold.lastRecordedBalance));
+	}
+
+	private static void drift(List<BalanceDrift> drifts, long[] accountsInDrift, BalanceDrift drift) {
+		accountsInDrift[0]++;
+		if (drifts.size() < MAX_REPORTED_DRIFTS) {
+			drifts.add(drift);
+		}
+	}
+
+	/**
+	 * Balances folded from the snapshot and the events after it
+	 */
+	public static final class Replay {
+		private final Map<String, AccountFold>[] partitions;
+		private LocalDateTime watermarkTimestamp;
+		private UUID watermarkEventId;
+		private long tailEvents;
+
+		@SuppressWarnings("unchecked")
+		private Replay(int partitionCount) {
+			partitions = new Map[partitionCount];
+			for (int i = 0; i < partitionCount; i++) {
+				partitions[i] = new HashMap<>();
+			}
+		}
+
+		public AccountFold get(String userId) {
+			return partitions[partition(userId)].get(userId);
+		}
+
+		public void forEach(BiConsumer<String, AccountFold> action) {
+			for (Map<String, AccountFold> partition : partitions) {
+				partition.forEach(action);
+			}
+		}
+
+		public long getAccountCount() {
+			long count = 0;
+			for (Map<String, AccountFold> partition : partitions) {
+				count += partition.size();
+			}
+			return count;
+		}
+
+		// Events folded on top of the snapshot
+		public long getTailEvents() {
+			return tailEvents;
+		}
+
+		// Key of the last folded event
+		public LocalDateTime getWatermarkTimestamp() {
+			return watermarkTimestamp;
+		}
+
+		public UUID getWatermarkEventId() {
+			return watermarkEventId;
+		}
+
+		private int partition(String userId) {
+			return Math.floorMod(userId.hashCode(), partitions.length);
+		}
+
+		private void fold(Chunk chunk) {
+			if (chunk.size == 0) {
+				return;
+			}
+			IntStream.range(0, partitions.length).parallel().forEach(p -> {
+				Map<String, AccountFold> folds = partitions[p];
+				int[] rows = chunk.rows[p];
+				for (int i = 0; i < chunk.rowCounts[p]; i++) {
+					int row = rows[i];
+					AccountFold fold = folds.get(chunk.userIds[row]);
+					if (fold == null) {
+						// No snapshot yet, the account opened with the balance its first event started from
+						long opening = chunk.amounts[row] - chunk.deltas[row];
+						fold = new AccountFold(opening, opening);
+						folds.put(chunk.userIds[row], fold);
+					}
+					fold.balance += chunk.deltas[row];
+					fold.lastRecordedBalance = chunk.amounts[row];
+					fold.tailEvents++;
+				}
+			});
+			tailEvents += chunk.size;
+		}
+	}
+
+	/**
+	 * Running balance of one account, only touched by the fold of its partition
+	 */
+	public static final class AccountFold {
+		private long balance;
+		private long lastRecordedBalance;
+		private long tailEvents;
+		private boolean checked;
+
+		private AccountFold(long balance, long lastRecordedBalance) {
+			this.balance = balance;
+			this.lastRecordedBalance = lastRecordedBalance;
+		}
+
+		public long getBalance() {
+			return balance;
+		}
+
+		// Balance recorded on the newest folded event
+		public long getLastRecordedBalance() {
+			return lastRecordedBalance;
+		}
+	}
+
+	// Events of one chunk in columns, with the rows of every partition listed in order
+	private static final class Chunk {
+		private final String[] userIds = new String[CHUNK_SIZE];
+		private final long[] deltas = new long[CHUNK_SIZE];
+		private final long[] amounts = new long[CHUNK_SIZE];
+		private final int[][] rows;
+		private final int[] rowCounts;
+		private int size;
+
+		private Chunk(int partitionCount) {
+			rows = new int[partitionCount][16];
+			rowCounts = new int[partitionCount];
+		}
+
+		private void add(String userId, int partition, long delta, long amount) {
+			userIds[size] = userId;
+			deltas[size] = delta;
+			amounts[size] = amount;
+			if (rowCounts[partition] == rows[partition].length) {
+				rows[partition] = Arrays.copyOf(rows[partition], rows[partition].length * 2);
+			}
+			rows[partition][rowCounts[partition]++] = size++;
+		}
+
+		private void clear() {
+			size = 0;
+			Arrays.fill(rowCounts, 0);
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package dev.codescreen.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
+import dev.codescreen.model.entity.HourlyRollup;
+import dev.codescreen.model.response.StatsResponse;
+import dev.codescreen.utils.Money;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hourly rollups of the committed events, per account and for all accounts together: number
+ * and sum of the credits and debits, and the number of declines. {@link BankLedgerService} adds
+ * every event once its transaction has committed. The counters of an hour are LongAdders, so
+ * concurrent requests for the same account or hour update separate cells instead of contending
+ * on one value.
+ *
+ * What was added since the last flush is written to HOURLY_ROLLUP every flush-interval-ms. A
+ * stats query reads at most the rows of the hours it covers and adds what is not flushed yet,
+ * so it costs the same however many events those hours hold.
+ *
+ * Enabled unless ledger.rollups.enabled=false.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.rollups.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class LedgerRollups {
+	// USER_ID of the totals of all accounts, userIds of requests always have text
+	public static final String ALL_ACCOUNTS = "";
+
+	private static final int CREDIT_COUNT = 0;
+	private static final int CREDITS = 1;
+	private static final int DEBIT_COUNT = 2;
+	private static final int DEBITS = 3;
+	private static final int DECLINE_COUNT = 4;
+	private static final int COUNTERS = 5;
+	// Flushed hours kept in memory, an event is counted in the hour its transaction started in
+	private static final int RETAINED_HOURS = 2;
+	private static final int BATCH_SIZE = 1000;
+
+	private static final String UPDATE_ROLLUP = "UPDATE HOURLY_ROLLUP SET CREDIT_COUNT = CREDIT_COUNT + ?, "
+			+ "CREDITS = CREDITS + ?, DEBIT_COUNT = DEBIT_COUNT + ?, DEBITS = DEBITS + ?, DECLINE_COUNT = DECLINE_COUNT + ? "
+			+ "WHERE USER_ID = ? AND ROLLUP_HOUR = ?";
+	private static final String INSERT_ROLLUP = "INSERT INTO HOURLY_ROLLUP (CREDIT_COUNT, CREDITS, DEBIT_COUNT, DEBITS, "
+			+ "DECLINE_COUNT, USER_ID, ROLLUP_HOUR) VALUES (?, ?, ?, ?, ?, ?, ?)";
+	private static final String SELECT_ROLLUPS = "SELECT COALESCE(SUM(CREDIT_COUNT), 0), COALESCE(SUM(CREDITS), 0), "
+			+ "COALESCE(SUM(DEBIT_COUNT), 0), COALESCE(SUM(DEBITS), 0), COALESCE(SUM(DECLINE_COUNT), 0) "
+			+ "FROM HOURLY_ROLLUP WHERE USER_ID = ? AND ROLLUP_HOUR >= ?";
+
+	private final DataSource dataSource;
+	private final Map<HourlyRollup.Key, Counters> counters = new ConcurrentHashMap<>();
+	// Held exclusively by a flush, so a query never counts a delta both in memory and in HOURLY_ROLLUP
+	private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+	public LedgerRollups(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	public void record(Event event) {
+		LocalDateTime hour = event.getAuditTimestamp().truncatedTo(ChronoUnit.HOURS);
+		add(counters(event.getUserId(), hour), event);
+		add(counters(ALL_ACCOUNTS, hour), event);
+	}
+
+	public void recordAll(Collection<Event> events) {
+		for (Event event : events) {
+			record(event);
+		}
+	}
+
+	/**
+	 * @param userId: Unique Identifier of the Account, null for all accounts
+	 * @param from:   Start of the window, rounded down to its hour, the window runs until now
+	 */
+	public StatsResponse stats(String userId, LocalDateTime from) {
+		LocalDateTime firstHour = from.truncatedTo(ChronoUnit.HOURS);
+		String rollupUserId = userId == null ? ALL_ACCOUNTS : userId;
+		long[] totals = new long[COUNTERS];
+		flushLock.readLock().lock();
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_ROLLUPS)) {
+			statement.setString(1, rollupUserId);
+			statement.setObject(2, firstHour);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				totals[CREDIT_COUNT] = resultSet.getLong(1);
+				totals[CREDITS] = Money.fromDecimal(resultSet.getBigDecimal(2));
+				totals[DEBIT_COUNT] = resultSet.getLong(3);
+				totals[DEBITS] = Money.fromDecimal(resultSet.getBigDecimal(4));
+				totals[DECLINE_COUNT] = resultSet.getLong(5);
+			}
+			LocalDateTime lastHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+			for (LocalDateTime hour = firstHour; !hour.isAfter(lastHour); hour = hour.plusHours(1)) {
+				Counters hourCounters = counters.get(new HourlyRollup.Key(rollupUserId, hour));
+				if (hourCounters != null) {
+					for (int i = 0; i < COUNTERS; i++) {
+						totals[i] += hourCounters.values[i].sum() - hourCounters.flushed[i];
+					}
+				}
+			}
+		} catch (SQLException ex) {
+			throw new BankLedgerInternalException("Failed to read HOURLY_ROLLUP", ex);
+		} finally {
+			flushLock.readLock().unlock();
+		}
+		long authorizations = totals[DEBIT_COUNT] + totals[DECLINE_COUNT];
+		return StatsResponse.builder().userId(userId).from(firstHour).creditCount(totals[CREDIT_COUNT])
+				.credits(Money.format(totals[CREDITS])).debitCount(totals[DEBIT_COUNT])
+				.debits(Money.format(totals[DEBITS])).declineCount(totals[DECLINE_COUNT])
+				.declineRate(authorizations == 0 ? 0 : (double) totals[DECLINE_COUNT] / authorizations).build();
+	}
+
+	/**
+	 * Add what was counted since the last flush to HOURLY_ROLLUP in one transaction, then drop
+	 * the hours that are fully flushed and past the retained hours
+	 *
+	 * @return the number of rows written
+	 */
+	public int flush() {
+		flushLock.writeLock().lock();
+		try {
+			List<HourlyRollup.Key> keys = new ArrayList<>();
+			List<long[]> snapshots = new ArrayList<>();
+			for (Map.Entry<HourlyRollup.Key, Counters> entry : counters.entrySet()) {
+				long[] snapshot = entry.getValue().snapshot();
+				if (entry.getValue().unflushed(snapshot)) {
+					keys.add(entry.getKey());
+					snapshots.add(snapshot);
+				}
+			}
+			if (!keys.isEmpty()) {
+				write(keys, snapshots);
+				for (int i = 0; i < keys.size(); i++) {
+					counters.get(keys.get(i)).flushed = snapshots.get(i);
+				}
+			}
+			LocalDateTime retainedFrom = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(RETAINED_HOURS);
+			counters.entrySet().removeIf(entry -> entry.getKey().getRollupHour().isBefore(retainedFrom)
+					&& !entry.getValue().unflushed(entry.getValue().snapshot()));
+			return keys.size();
+		} finally {
+			flushLock.writeLock().unlock();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${ledger.rollups.flush-interval-ms:1000}")
+	public void scheduledFlush() {
+		try {
+			flush();
+		} catch (Exception ex) {
+			log.error("Scheduled rollup flush failed, the counters are written with the next one", ex);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		try {
+			flush();
+		} catch (Exception ex) {
+			log.error("Failed to flush the rollups on shutdown, the counters since the last flush are lost", ex);
+		}
+	}
+
+	private Counters counters(String userId, LocalDateTime hour) {
+		return counters.computeIfAbsent(new HourlyRollup.Key(userId, hour), key -> new Counters());
+	}
+
+	private static void add(Counters hourCounters, Event event) {
+		if (!event.isSuccessIndicator()) {
+			hourCounters.values[DECLINE_COUNT].increment();
+		} else if (event.getTransactionType() == DebitCredit.CREDIT) {
+			hourCounters.values[CREDIT_COUNT].increment();
+			hourCounters.values[CREDITS].add(event.getTransactionAmount());
+		} else {
+			hourCounters.values[DEBIT_COUNT].increment();
+			hourCounters.values[DEBITS].add(event.getTransactionAmount());
+		}
+	}
+
+	private void write(List<HourlyRollup.Key> keys, List<long[]> snapshots) {
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(false);
+			try (PreparedStatement update = connection.prepareStatement(UPDATE_ROLLUP);
+					PreparedStatement insert = connection.prepareStatement(INSERT_ROLLUP)) {
+				for (int from = 0; from < keys.size(); from += BATCH_SIZE) {
+					int to = Math.min(from + BATCH_SIZE, keys.size());
+					for (int i = from; i < to; i++) {
+						bind(update, keys.get(i), counters.get(keys.get(i)), snapshots.get(i));
+						update.addBatch();
+					}
+					int[] updated = update.executeBatch();
+					boolean inserts = false;
+					for (int i = 0; i < updated.length; i++) {
+						// First flush of the account in that hour
+						if (updated[i] == 0) {
+							bind(insert, keys.get(from + i), counters.get(keys.get(from + i)), snapshots.get(from + i));
+							insert.addBatch();
+							inserts = true;
+						}
+					}
+					if (inserts) {
+						insert.executeBatch();
+					}
+				}
+				connection.commit();
+			} catch (SQLException | RuntimeException ex) {
+				connection.rollback();
+				throw ex;
+			}
+		} catch (SQLException ex) {
+			throw new BankLedgerInternalException("Failed to write HOURLY_ROLLUP", ex);
+		}
+	}
+
+	// Same parameter order in UPDATE_ROLLUP and INSERT_ROLLUP
+	private static void bind(PreparedStatement statement, HourlyRollup.Key key, Counters hourCounters, long[] snapshot)
+			throws SQLException {
+		statement.setLong(1, snapshot[CREDIT_COUNT] - hourCounters.flushed[CREDIT_COUNT]);
+		statement.setBigDecimal(2, Money.toDecimal(snapshot[CREDITS] - hourCounters.flushed[CREDITS]));
+		statement.setLong(3, snapshot[DEBIT_COUNT] - hourCounters.flushed[DEBIT_COUNT]);
+		statement.setBigDecimal(4, Money.toDecimal(snapshot[DEBITS] - hourCounters.flushed[DEBITS]));
+		statement.setLong(5, snapshot[DECLINE_COUNT] - hourCounters.flushed[DECLINE_COUNT]);
+		statement.setString(6, key.getUserId());
+		statement.setObject(7, key.getRollupHour());
+	}
+
+	// Counters of one account in one hour, values grow forever, flushed is what HOURLY_ROLLUP already holds
+	private static final class Counters {
+		private final LongAdder[] values = new LongAdder[COUNTERS];
+		// Only replaced by a flush, under the write lock
+		private long[] flushed = new long[COUNTERS];
+
+		private Counters() {
+			for (int i = 0; i < COUNTERS; i++) {
+				values[i] = new LongAdder();
+			}
+		}
+
+		private long[] snapshot() {
+			long[] snapshot = new long[COUNTERS];
+			for (int i = 0; i < COUNTERS; i++) {
+				snapshot[i] = values[i].sum();
+			}
+			return snapshot;
+		}
+
+		private boolean unflushed(long[] snapshot) {
+			for (int i = 0; i < COUNTERS; i++) {
+				if (snapshot[i] != flushed[i]) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package dev.codescreen.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import dev.codescreen.exceptions.LedgerOverloaded;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Partitions accounts across a fixed number of single threaded shards by the hash of the
+ * userId. Every load and authorization of an account runs on the thread that owns its
+ * shard, in arrival order, so two requests for the same account never race each other for
+ * the USER_BALANCE row. The calling thread waits for the result, which keeps the API
+ * synchronous.
+ *
+ * Each shard queues at most queue-capacity requests. A request arriving at a full shard is
+ * rejected straight away with {@link LedgerOverloaded} instead of waiting behind work it
+ * cannot overtake, so overload shows up as fast 503s for the accounts of the busy shard rather
+ * than as growing latency for everyone.
+ *
+ * Enabled with ledger.sharding.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.sharding.enabled", havingValue = "true")
+@Slf4j
+public class LedgerShardExecutor {
+	private final ThreadPoolExecutor[] shards;
+	private final long retryAfterSeconds;
+	private final AtomicLong rejected = new AtomicLong();
+
+	public LedgerShardExecutor(@Value("${ledger.sharding.shards:0}") int shardCount,
+			@Value("${ledger.sharding.queue-capacity:1000}") int queueCapacity,
+			@Value("${ledger.sharding.retry-after-seconds:1}") long retryAfterSeconds) {
+		int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+		this.shards = new ThreadPoolExecutor[count];
+		this.retryAfterSeconds = retryAfterSeconds;
+		for (int i = 0; i < count; i++) {
+			String threadName = "ledger-shard-" + i;
+			shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+					runnable -> new Thread(runnable, threadName));
+		}
+		log.info("Ledger sharding enabled with {} shards of {} queued requests", count, queueCapacity);
+	}
+
+	/**
+	 * Run the task on the shard owning the account and wait for its result. Exceptions
+	 * thrown by the task are rethrown unchanged on the calling thread.
+	 *
+	 * @param userId: Unique Identifier of the Account
+	 * @param task:   Work to apply to the account
+	 * @return the result of the task
+	 */
+	public <T> T execute(String userId, Supplier<T> task) {
+		return await(submit(userId, task));
+	}
+
+	/**
+	 * Queue the task on the shard owning the account without waiting for it, so work for
+	 * several shards can run in parallel
+	 *
+	 * @param userId: Unique Identifier of the Account
+	 * @param task:   Work to apply to the account
+	 * @return a future completed with the result of the task
+	 * @throws LedgerOverloaded when the queue of the shard is full, the task is then not run
+	 */
+	public <T> CompletableFuture<T> submit(String userId, Supplier<T> task) {
+		int shard = shardOf(userId);
+		try {
+			return CompletableFuture.supplyAsync(task, shards[shard]);
+		} catch (RejectedExecutionException ex) {
+			rejected.incrementAndGet();
+			throw new LedgerOverloaded("Shard " + shard + " has too many queued requests", retryAfterSeconds);
+		}
+	}
+
+	/**
+	 * Wait for a task queued with {@link #submit}, rethrowing its exception unchanged
+	 */
+	public static <T> T await(CompletableFuture<T> result) {
+		try {
+			return result.join();
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw ex;
+		}
+	}
+
+	public int shardOf(String userId) {
+		int hash = userId.hashCode();
+		// Spread the high bits so userIds differing only in their last characters do not cluster
+		hash ^= (hash >>> 16);
+		return Math.floorMod(hash, shards.length);
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	// Tasks waiting for the shard thread, not counting the one it is running
+	public int getQueueDepth(int shard) {
+		return shards[shard].getQueue().size();
+	}
+
+	// Tasks rejected because their shard queue was full
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		for (ExecutorService shard : shards) {
+			shard.shutdown();
+		}
+		for (ExecutorService shard : shards) {
+			shard.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+}
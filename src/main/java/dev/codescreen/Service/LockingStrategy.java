@@ -0,0 +1,15 @@
+package dev.codescreen.Service;
+
+/**
+ * How {@link BankLedgerService} keeps concurrent updates of one account in USER_BALANCE from
+ * losing each other or overdrawing it, selected with ledger.locking.strategy. Not used when a
+ * balance engine holds the balances.
+ */
+public enum LockingStrategy {
+	// Read the row, write it back only if its version is unchanged, retry a bounded number of times
+	OPTIMISTIC,
+	// Read the row with SELECT ... FOR UPDATE, concurrent updates of the account wait for the lock
+	PESSIMISTIC,
+	// One conditional UPDATE per transaction, the database applies the change to the current balance
+	ATOMIC
+}
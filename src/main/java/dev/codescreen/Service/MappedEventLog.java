@@ -0,0 +1,338 @@
+package dev.codescreen.Service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.Event;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only ledger log of fixed size {@link LedgerLogRecord}s written through memory
+ * mapped chunks of a single file. Appending claims the next slot with an atomic counter and
+ * copies the record into the mapping, so concurrent requests never block each other and no
+ * entity is managed by Hibernate. Writes survive a crash of the process as soon as they are
+ * copied; ledger.mmap.force-interval-ms controls how often they are forced to the disk.
+ *
+ * Balances are rebuilt from the log on startup. A snapshot of all balances and the log
+ * position it covers is written periodically, so startup only replays the records written
+ * after it. Retried requests are answered from an index of every messageId in the log, which
+ * startup rebuilds by reading the ids of all records. Events whose request transaction did not
+ * commit are retracted by appending a retraction record, see {@link LedgerLogRecord}.
+ *
+ * Enabled with ledger.journal.mode=mmap, usually together with ledger.balance-engine=in-memory
+ * which then loads its balances from this log instead of USER_BALANCE.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.journal.mode", havingValue = "mmap")
+@Slf4j
+public class MappedEventLog implements EventStore {
+	private static final int SNAPSHOT_MAGIC = 0x4C534E50;
+
+	private final Path logPath;
+	private final Path snapshotPath;
+	private final int recordsPerChunk;
+	private final FileChannel channel;
+	private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+	private final AtomicLong nextRecord = new AtomicLong();
+	// A lock rather than a monitor so a virtual thread mapping a chunk does not pin its carrier
+	private final ReentrantLock mappingLock = new ReentrantLock();
+
+	// Position of the record of every message in the log, used to answer retried requests
+	private final ConcurrentHashMap<String, Long> messageIndex = new ConcurrentHashMap<>();
+
+	// Balances as of snapshotRecord, only touched by recovery and the snapshot task
+	private Map<String, Long> snapshotBalances = new HashMap<>();
+	private long snapshotRecord;
+	private Map<String, Long> recoveredBalances;
+
+	public MappedEventLog(@Value("${ledger.mmap.path:./ledger.log}") String path,
+			@Value("${ledger.mmap.chunk-size-mb:64}") int chunkSizeMb) throws IOException {
+		this.logPath = Path.of(path);
+		this.snapshotPath = Path.of(path + ".snapshot");
+		this.recordsPerChunk = chunkSizeMb * 1024 * 1024 / LedgerLogRecord.SIZE;
+		this.channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long existingChunks = (channel.size() + chunkBytes() - 1) / chunkBytes();
+		for (int i = 0; i < existingChunks; i++) {
+			mapChunk(i);
+		}
+		recover();
+	}
+
+	@Override
+	public void append(Event event) {
+		// Encoded before the slot is claimed, a slot that is never committed would stop every reader at it
+		ByteBuffer encoded = LedgerLogRecord.encode(event);
+		long record = nextRecord.getAndIncrement();
+		LedgerLogRecord.write(chunk(record), offset(record), encoded);
+		if (event.getMessageId() != null) {
+			messageIndex.put(event.getMessageId(), record);
+		}
+	}
+
+	@Override
+	public void appendAll(List<Event> events) {
+		// The whole batch is encoded before any slot is claimed, so an event that cannot be stored fails it before
+		// the others are written
+		List<ByteBuffer> encoded = new ArrayList<>(events.size());
+		for (Event event : events) {
+			encoded.add(copy(LedgerLogRecord.encode(event)));
+		}
+		long first = write(encoded);
+		for (int i = 0; i < events.size(); i++) {
+			if (events.get(i).getMessageId() != null) {
+				messageIndex.put(events.get(i).getMessageId(), first + i);
+			}
+		}
+	}
+
+	/**
+	 * Append a retraction for every given event found in the log. It reverses the balance change
+	 * of the event and forgets its messageId, so a retry of the message is applied again.
+	 */
+	@Override
+	public void retract(List<Event> events) {
+		List<ByteBuffer> retractions = new ArrayList<>();
+		List<Event> retracted = new ArrayList<>();
+		for (Event event : events) {
+			Long record = event.getMessageId() == null ? null : messageIndex.get(event.getMessageId());
+			// Events that were never written have nothing to retract
+			if (record != null && LedgerLogRecord.eventId(chunk(record), offset(record)).equals(event.getEventId())) {
+				retractions.add(copy(LedgerLogRecord.encodeRetraction(chunk(record), offset(record))));
+				retracted.add(event);
+			}
+		}
+		if (retractions.isEmpty()) {
+			return;
+		}
+		write(retractions);
+		// Only forgotten once retracted, a retry then appends its record after the retraction
+		for (Event event : retracted) {
+			messageIndex.remove(event.getMessageId());
+		}
+	}
+
+	@Override
+	public Optional<Event> findByMessageId(String messageId) {
+		Long record = messageIndex.get(messageId);
+		if (record == null) {
+			return Optional.empty();
+		}
+		return Optional.of(LedgerLogRecord.read(chunk(record), offset(record)));
+	}
+
+	/**
+	 * @return the balance of every account found in the log when it was opened
+	 */
+	public Map<String, Long> getRecoveredBalances() {
+		return recoveredBalances;
+	}
+
+	public long getRecordCount() {
+		return nextRecord.get();
+	}
+
+	/**
+	 * Fold the committed records written since the last snapshot into it and store it next to
+	 * the log. Stops at the first record still being written, the next run continues there.
+	 */
+	@Scheduled(fixedDelayString = "${ledger.mmap.snapshot-interval-ms:60000}")
+	public synchronized void snapshot() {
+		long end = nextRecord.get();
+		long record = snapshotRecord;
+		Map<String, Long> balances = new HashMap<>(snapshotBalances);
+		while (record < end && LedgerLogRecord.isCommitted(chunk(record), offset(record))) {
+			MappedByteBuffer chunk = chunk(record);
+			int offset = offset(record);
+			if (!LedgerLogRecord.isVoid(chunk, offset)) {
+				balances.merge(LedgerLogRecord.userId(chunk, offset), LedgerLogRecord.balanceChange(chunk, offset),
+						Long::sum);
+			}
+			record++;
+		}
+		if (record == snapshotRecord) {
+			return;
+		}
+		force();
+		Path temporary = Path.of(snapshotPath + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeLong(record);
+			out.writeInt(balances.size());
+			for (Map.Entry<String, Long> balance : balances.entrySet()) {
+				out.writeUTF(balance.getKey());
+				out.writeLong(balance.getValue());
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to write ledger snapshot " + temporary, ex);
+		}
+		try {
+			Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to replace ledger snapshot " + snapshotPath, ex);
+		}
+		snapshotBalances = balances;
+		snapshotRecord = record;
+		log.info("Wrote ledger snapshot of {} balances up to record {}", balances.size(), record);
+	}
+
+	/**
+	 * Force written records to the disk so they also survive a crash of the operating system
+	 */
+	@Scheduled(fixedDelayString = "${ledger.mmap.force-interval-ms:10}")
+	public void force() {
+		for (MappedByteBuffer chunk : chunks) {
+			chunk.force();
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() throws IOException {
+		force();
+		channel.close();
+	}
+
+	// Rebuilds the balances from the latest snapshot and the records written after it, and the
+	// messageId index from the whole log
+
+	private void recover() {
+		loadSnapshot();
+		Map<String, Long> balances = new HashMap<>(snapshotBalances);
+		long totalRecords = (long) chunks.length * recordsPerChunk;
+		long lastCommitted = snapshotRecord - 1;
+		for (long record = 0; record < totalRecords; record++) {
+			MappedByteBuffer chunk = chunk(record);
+			int offset = offset(record);
+			if (!LedgerLogRecord.isCommitted(chunk, offset)) {
+				continue;
+			}
+			lastCommitted = record;
+			if (LedgerLogRecord.isVoid(chunk, offset)) {
+				continue;
+			}
+			String messageId = LedgerLogRecord.messageId(chunk, offset);
+			if (!LedgerLogRecord.isRetraction(chunk, offset)) {
+				messageIndex.put(messageId, record);
+			} else if (messageIndex.containsKey(messageId)) {
+				long retracted = messageIndex.get(messageId);
+				if (LedgerLogRecord.eventId(chunk(retracted), offset(retracted))
+						.equals(LedgerLogRecord.eventId(chunk, offset))) {
+					messageIndex.remove(messageId);
+				}
+			}
+			if (record >= snapshotRecord) {
+				balances.merge(LedgerLogRecord.userId(chunk, offset), LedgerLogRecord.balanceChange(chunk, offset),
+						Long::sum);
+			}
+		}
+		// Slots claimed before a crash but never committed would stop the snapshot task forever
+		for (long record = snapshotRecord; record < lastCommitted; record++) {
+			if (!LedgerLogRecord.isCommitted(chunk(record), offset(record))) {
+				LedgerLogRecord.writeVoid(chunk(record), offset(record));
+			}
+		}
+		nextRecord.set(lastCommitted + 1);
+		log.info("Recovered {} balances from {}, replayed records {} to {}", balances.size(), logPath, snapshotRecord,
+				lastCommitted);
+		recoveredBalances = balances;
+	}
+
+	private void loadSnapshot() {
+		if (!Files.exists(snapshotPath)) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshotPath))) {
+			if (in.readInt() != SNAPSHOT_MAGIC) {
+				throw new BankLedgerInternalException("Not a ledger snapshot: " + snapshotPath);
+			}
+			snapshotRecord = in.readLong();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				snapshotBalances.put(in.readUTF(), in.readLong());
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to read ledger snapshot " + snapshotPath, ex);
+		}
+	}
+
+	// Claims consecutive slots for the records and writes them, returns the first slot
+
+	private long write(List<ByteBuffer> records) {
+		long first = nextRecord.getAndAdd(records.size());
+		for (int i = 0; i < records.size(); i++) {
+			long record = first + i;
+			LedgerLogRecord.write(chunk(record), offset(record), records.get(i));
+		}
+		return first;
+	}
+
+	// The encoded records live in a scratch buffer of the thread, reused by the next encode
+
+	private static ByteBuffer copy(ByteBuffer encoded) {
+		return ByteBuffer.allocate(LedgerLogRecord.SIZE).put(0, encoded, 0, LedgerLogRecord.SIZE);
+	}
+
+	private MappedByteBuffer chunk(long record) {
+		int index = (int) (record / recordsPerChunk);
+		MappedByteBuffer[] mapped = chunks;
+		if (index < mapped.length) {
+			return mapped[index];
+		}
+		return mapChunk(index);
+	}
+
+	private MappedByteBuffer mapChunk(int index) {
+		mappingLock.lock();
+		try {
+			MappedByteBuffer[] mapped = chunks;
+			if (index < mapped.length) {
+				return mapped[index];
+			}
+			MappedByteBuffer[] grown = Arrays.copyOf(mapped, index + 1);
+			try {
+				for (int i = mapped.length; i <= index; i++) {
+					grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * chunkBytes(), chunkBytes());
+				}
+			} catch (IOException ex) {
+				throw new UncheckedIOException("Failed to map chunk " + index + " of " + logPath, ex);
+			}
+			chunks = grown;
+			return grown[index];
+		} finally {
+			mappingLock.unlock();
+		}
+	}
+
+	private int offset(long record) {
+		return (int) (record % recordsPerChunk) * LedgerLogRecord.SIZE;
+	}
+
+	private long chunkBytes() {
+		return (long) recordsPerChunk * LedgerLogRecord.SIZE;
+	}
+}
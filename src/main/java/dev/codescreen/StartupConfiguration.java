@@ -0,0 +1,39 @@
+package dev.codescreen;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import dev.codescreen.Service.AccountRateLimiter;
+import dev.codescreen.Service.BalanceCache;
+import dev.codescreen.Service.BalanceEngine;
+import dev.codescreen.Service.BankLedgerService;
+import dev.codescreen.Service.DailyStatementService;
+import dev.codescreen.Service.EventStore;
+import dev.codescreen.Service.FxRateWatcher;
+import dev.codescreen.Service.IdempotencyCache;
+import dev.codescreen.Service.LedgerReplayService;
+import dev.codescreen.Service.LedgerRollups;
+import dev.codescreen.Service.LedgerShardExecutor;
+import dev.codescreen.controller.BankController;
+import dev.codescreen.logging.TrafficLogWriter;
+import dev.codescreen.metrics.LedgerMetrics;
+
+/**
+ * Beans created at startup even with spring.main.lazy-initialization=true: everything on the
+ * path of a load or authorization, so the first request does not pay for building it, and the
+ * beans that do their work from a thread or schedule of their own and are never asked for by
+ * a request. History, admin and metrics endpoints stay lazy.
+ */
+@Configuration
+public class StartupConfiguration {
+
+	@Bean
+	static LazyInitializationExcludeFilter eagerLedgerBeans() {
+		return LazyInitializationExcludeFilter.forBeanTypes(BankController.class, BankLedgerService.class,
+				BalanceEngine.class, EventStore.class, BalanceCache.class, IdempotencyCache.class,
+				LedgerShardExecutor.class, AccountRateLimiter.class, LedgerMetrics.class, FxRateWatcher.class,
+				LedgerReplayService.class, DailyStatementService.class, LedgerRollups.class,
+				TrafficLogWriter.class);
+	}
+}
@@ -0,0 +1,38 @@
+package dev.codescreen.codec;
+
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Puts the {@link LedgerJsonCodec} in front of Jackson for the endpoints listed in
+ * ledger.codec.endpoints, every other endpoint and every error response stays with Jackson.
+ */
+@Configuration
+@Slf4j
+public class LedgerCodecConfiguration implements WebMvcConfigurer {
+	private static final Set<String> SUPPORTED_ENDPOINTS = Set.of("/load", "/authorization");
+
+	@Value("${ledger.codec.endpoints:}")
+	private List<String> endpoints;
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		for (String endpoint : endpoints) {
+			if (!SUPPORTED_ENDPOINTS.contains(endpoint)) {
+				throw new IllegalStateException("ledger.codec.endpoints only supports " + SUPPORTED_ENDPOINTS
+						+ ", not " + endpoint);
+			}
+		}
+		if (!endpoints.isEmpty()) {
+			converters.add(0, new LedgerJsonCodec(endpoints.contains("/load"), endpoints.contains("/authorization")));
+			log.info("Ledger JSON codec enabled for {}", endpoints);
+		}
+	}
+}
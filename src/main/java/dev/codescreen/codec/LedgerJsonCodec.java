@@ -0,0 +1,627 @@
+package dev.codescreen.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import dev.codescreen.model.Amount;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Error;
+import dev.codescreen.model.request.AuthorizationRequest;
+import dev.codescreen.model.request.LoadRequest;
+import dev.codescreen.model.response.AuthorizationResponse;
+import dev.codescreen.model.response.LoadResponse;
+
+/**
+ * JSON codec specialised for the fixed /load and /authorization schemas of service.yml. The
+ * request body is read once into a pooled buffer and the fields are parsed straight out of its
+ * bytes, allocating only the strings of the request objects; responses are written into a pooled
+ * buffer and copied to the servlet stream in one call. The JSON it reads and writes is the same
+ * as with Jackson: unknown fields are skipped, scalars are accepted for string fields and null
+ * fields of the responses are left out. Validation stays with the Bean Validation constraints of
+ * the request classes so both codecs report the same errors.
+ *
+ * Buffers are pooled in a queue rather than per thread so the pool also works with one virtual
+ * thread per request.
+ */
+public class LedgerJsonCodec extends AbstractHttpMessageConverter<Object> {
+	private static final int INITIAL_BUFFER_SIZE = 1024;
+	// Larger bodies are not one of the fixed requests, and their buffer would not be pooled
+	private static final int MAX_BODY_SIZE = 64 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 256;
+	// Nesting of skipped unknown values, the same limit as Jackson's default
+	private static final int MAX_DEPTH = 1000;
+
+	private static final byte[] USER_ID = ascii("userId");
+	private static final byte[] MESSAGE_ID = ascii("messageId");
+	private static final byte[] TRANSACTION_AMOUNT = ascii("transactionAmount");
+	private static final byte[] AMOUNT = ascii("amount");
+	private static final byte[] CURRENCY = ascii("currency");
+	private static final byte[] DEBIT_OR_CREDIT = ascii("debitOrCredit");
+	private static final byte[] HEX = ascii("0123456789abcdef");
+
+	private final Set<Class<?>> readable;
+	private final Set<Class<?>> writable;
+	private final ConcurrentLinkedQueue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param load:          Handle the request and response of /load
+	 * @param authorization: Handle the request and response of /authorization
+	 */
+	public LedgerJsonCodec(boolean load, boolean authorization) {
+		super(MediaType.APPLICATION_JSON);
+		if (load && authorization) {
+			readable = Set.of(LoadRequest.class, AuthorizationRequest.class);
+			writable = Set.of(LoadResponse.class, AuthorizationResponse.class);
+		} else if (load) {
+			readable = Set.of(LoadRequest.class);
+			writable = Set.of(LoadResponse.class);
+		} else if (authorization) {
+			readable = Set.of(AuthorizationRequest.class);
+			writable = Set.of(AuthorizationResponse.class);
+		} else {
+			readable = Set.of();
+			writable = Set.of();
+		}
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return readable.contains(clazz) || writable.contains(clazz);
+	}
+
+	@Override
+	public boolean canRead(Class<?> clazz, MediaType mediaType) {
+		return readable.contains(clazz) && canRead(mediaType);
+	}
+
+	@Override
+	public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+		return writable.contains(clazz) && canWrite(mediaType);
+	}
+
+	@Override
+	protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+			throws IOException, HttpMessageNotReadableException {
+		byte[] buffer = acquire();
+		try {
+			InputStream body = inputMessage.getBody();
+			int length = 0;
+			int read;
+			while ((read = body.read(buffer, length, buffer.length - length)) != -1) {
+				length += read;
+				if (length == buffer.length) {
+					if (length >= MAX_BODY_SIZE) {
+						throw new HttpMessageNotReadableException(
+								"Request body is larger than " + MAX_BODY_SIZE + " bytes", inputMessage);
+					}
+					buffer = Arrays.copyOf(buffer, length * 2);
+				}
+			}
+			return read(clazz, buffer, length);
+		} catch (IllegalArgumentException ex) {
+			throw new HttpMessageNotReadableException("JSON parse error: " + ex.getMessage(), ex, inputMessage);
+		} finally {
+			release(buffer);
+		}
+	}
+
+	@Override
+	protected void writeInternal(Object value, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		Writer writer = new Writer(acquire());
+		try {
+			if (value instanceof LoadResponse response) {
+				writer.writeLoadResponse(response);
+			} else {
+				writer.writeAuthorizationResponse((AuthorizationResponse) value);
+			}
+			outputMessage.getHeaders().setContentLength(writer.length);
+			outputMessage.getBody().write(writer.buffer, 0, writer.length);
+		} finally {
+			release(writer.buffer);
+		}
+	}
+
+	/**
+	 * Parse a request body of the given class, visible for tests and benchmarks
+	 *
+	 * @param clazz:  LoadRequest or AuthorizationRequest
+	 * @param body:   JSON bytes, UTF-8 encoded
+	 * @param length: Number of bytes of the body
+	 * @throws IllegalArgumentException when the body is not valid JSON for the class
+	 */
+	public static Object read(Class<?> clazz, byte[] body, int length) {
+		Reader reader = new Reader(body, length);
+		String userId = null;
+		String messageId = null;
+		Amount transactionAmount = null;
+		if (reader.nextNull()) {
+			throw new IllegalArgumentException("request body is null");
+		}
+		reader.expect('{');
+		if (!reader.tryConsume('}')) {
+			do {
+				int keyStart = reader.keyStart();
+				int keyEnd = reader.keyEnd();
+				reader.expect(':');
+				if (reader.keyEquals(keyStart, keyEnd, USER_ID)) {
+					userId = reader.readString();
+				} else if (reader.keyEquals(keyStart, keyEnd, MESSAGE_ID)) {
+					messageId = reader.readString();
+				} else if (reader.keyEquals(keyStart, keyEnd, TRANSACTION_AMOUNT)) {
+					transactionAmount = readAmount(reader);
+				} else {
+					reader.skipValue();
+				}
+			} while (reader.tryConsume(','));
+			reader.expect('}');
+		}
+		reader.expectEnd();
+		if (clazz == LoadRequest.class) {
+			return new LoadRequest(userId, messageId, transactionAmount);
+		}
+		return new AuthorizationRequest(userId, messageId, transactionAmount);
+	}
+
+	/**
+	 * Write a LoadResponse or AuthorizationResponse, visible for tests and benchmarks
+	 *
+	 * @return the JSON bytes
+	 */
+	public static byte[] write(Object value) {
+		Writer writer = new Writer(new byte[INITIAL_BUFFER_SIZE]);
+		if (value instanceof LoadResponse response) {
+			writer.writeLoadResponse(response);
+		} else {
+			writer.writeAuthorizationResponse((AuthorizationResponse) value);
+		}
+		return Arrays.copyOf(writer.buffer, writer.length);
+	}
+
+	private static Amount readAmount(Reader reader) {
+		if (reader.nextNull()) {
+			return null;
+		}
+		Amount amount = new Amount();
+		reader.expect('{');
+		if (reader.tryConsume('}')) {
+			return amount;
+		}
+		do {
+			int keyStart = reader.keyStart();
+			int keyEnd = reader.keyEnd();
+			reader.expect(':');
+			if (reader.keyEquals(keyStart, keyEnd, AMOUNT)) {
+				amount.setAmount(reader.readString());
+			} else if (reader.keyEquals(keyStart, keyEnd, CURRENCY)) {
+				amount.setCurrency(reader.readString());
+			} else if (reader.keyEquals(keyStart, keyEnd, DEBIT_OR_CREDIT)) {
+				String debitOrCredit = reader.readString();
+				try {
+					amount.setDebitOrCredit(debitOrCredit == null ? null : DebitCredit.valueOf(debitOrCredit));
+				} catch (IllegalArgumentException ex) {
+					throw new IllegalArgumentException("debitOrCredit should be DEBIT or CREDIT");
+				}
+			} else {
+				reader.skipValue();
+			}
+		} while (reader.tryConsume(','));
+		reader.expect('}');
+		return amount;
+	}
+
+	private byte[] acquire() {
+		byte[] buffer = buffers.poll();
+		return buffer != null ? buffer : new byte[INITIAL_BUFFER_SIZE];
+	}
+
+	private void release(byte[] buffer) {
+		if (buffer.length <= MAX_BODY_SIZE && buffers.size() < MAX_POOLED_BUFFERS) {
+			buffers.offer(buffer);
+		}
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	// Cursor over the JSON bytes, every method throws IllegalArgumentException on malformed input
+	private static final class Reader {
+		private final byte[] bytes;
+		private final int end;
+		private int position;
+		private int depth;
+
+		private Reader(byte[] bytes, int end) {
+			this.bytes = bytes;
+			this.end = end;
+		}
+
+		private void skipWhitespace() {
+			while (position < end) {
+				byte b = bytes[position];
+				if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+					return;
+				}
+				position++;
+			}
+		}
+
+		private boolean tryConsume(char c) {
+			skipWhitespace();
+			if (position < end && bytes[position] == c) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char c) {
+			if (!tryConsume(c)) {
+				throw unexpected("'" + c + "'");
+			}
+		}
+
+		private void expectEnd() {
+			skipWhitespace();
+			if (position != end) {
+				throw unexpected("end of input");
+			}
+		}
+
+		private boolean nextNull() {
+			skipWhitespace();
+			return literal("null");
+		}
+
+		private boolean literal(String literal) {
+			int length = literal.length();
+			if (position + length > end) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (bytes[position + i] != literal.charAt(i)) {
+					return false;
+				}
+			}
+			position += length;
+			return true;
+		}
+
+		// Position of the first byte of the key after its opening quote
+		private int keyStart() {
+			skipWhitespace();
+			if (position >= end || bytes[position] != '"') {
+				throw unexpected("field name");
+			}
+			return ++position;
+		}
+
+		// Position of the closing quote of the key, escaped keys never match a known field
+		private int keyEnd() {
+			skipString();
+			return position - 1;
+		}
+
+		private boolean keyEquals(int start, int keyEnd, byte[] name) {
+			return Arrays.equals(bytes, start, keyEnd, name, 0, name.length);
+		}
+
+		/**
+		 * Read a string field. Numbers and booleans are accepted as their text, as Jackson coerces
+		 * them into String fields.
+		 */
+		private String readString() {
+			skipWhitespace();
+			if (position >= end) {
+				throw unexpected("value");
+			}
+			byte first = bytes[position];
+			if (first == '"') {
+				return parseString();
+			}
+			if (literal("null")) {
+				return null;
+			}
+			if (literal("true")) {
+				return "true";
+			}
+			if (literal("false")) {
+				return "false";
+			}
+			if (first == '-' || (first >= '0' && first <= '9')) {
+				int start = position;
+				skipNumber();
+				return new String(bytes, start, position - start, StandardCharsets.US_ASCII);
+			}
+			throw unexpected("string");
+		}
+
+		private String parseString() {
+			int start = ++position;
+			boolean ascii = true;
+			while (position < end) {
+				byte b = bytes[position];
+				if (b == '"') {
+					String value = new String(bytes, start, position - start,
+							ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+					position++;
+					return value;
+				}
+				if (b == '\\') {
+					position = start;
+					return parseEscapedString();
+				}
+				if (b >= 0 && b < 0x20) {
+					throw new IllegalArgumentException("control character in string at " + position);
+				}
+				ascii &= b >= 0;
+				position++;
+			}
+			throw unexpected("'\"'");
+		}
+
+		private String parseEscapedString() {
+			StringBuilder value = new StringBuilder(32);
+			int segment = position;
+			while (position < end) {
+				byte b = bytes[position];
+				if (b == '"') {
+					value.append(new String(bytes, segment, position - segment, StandardCharsets.UTF_8));
+					position++;
+					return value.toString();
+				}
+				if (b >= 0 && b < 0x20) {
+					throw new IllegalArgumentException("control character in string at " + position);
+				}
+				if (b != '\\') {
+					position++;
+					continue;
+				}
+				value.append(new String(bytes, segment, position - segment, StandardCharsets.UTF_8));
+				if (++position >= end) {
+					break;
+				}
+				byte escaped = bytes[position++];
+				switch (escaped) {
+				case '"', '\\', '/' -> value.append((char) escaped);
+				case 'b' -> value.append('\b');
+				case 'f' -> value.append('\f');
+				case 'n' -> value.append('\n');
+				case 'r' -> value.append('\r');
+				case 't' -> value.append('\t');
+				case 'u' -> {
+					if (position + 4 > end) {
+						throw unexpected("unicode escape");
+					}
+					value.append((char) Integer.parseInt(new String(bytes, position, 4, StandardCharsets.US_ASCII), 16));
+					position += 4;
+				}
+				default -> throw new IllegalArgumentException("invalid escape at " + (position - 1));
+				}
+				segment = position;
+			}
+			throw unexpected("'\"'");
+		}
+
+		private void skipString() {
+			while (position < end) {
+				byte b = bytes[position++];
+				if (b == '"') {
+					return;
+				}
+				if (b == '\\') {
+					position++;
+				}
+			}
+			throw unexpected("'\"'");
+		}
+
+		private void skipNumber() {
+			int start = position;
+			while (position < end) {
+				byte b = bytes[position];
+				if ((b < '0' || b > '9') && b != '-' && b != '+' && b != '.' && b != 'e' && b != 'E') {
+					break;
+				}
+				position++;
+			}
+			if (position == start) {
+				throw unexpected("number");
+			}
+		}
+
+		private void skipValue() {
+			skipWhitespace();
+			if (position >= end) {
+				throw unexpected("value");
+			}
+			byte first = bytes[position];
+			if (first == '"') {
+				position++;
+				skipString();
+			} else if (first == '{' || first == '[') {
+				if (++depth > MAX_DEPTH) {
+					throw new IllegalArgumentException("nesting deeper than " + MAX_DEPTH + " at " + position);
+				}
+				position++;
+				byte close = first == '{' ? (byte) '}' : (byte) ']';
+				if (!tryConsume((char) close)) {
+					do {
+						if (first == '{') {
+							keyStart();
+							keyEnd();
+							expect(':');
+						}
+						skipValue();
+					} while (tryConsume(','));
+					expect((char) close);
+				}
+				depth--;
+			} else if (!literal("null") && !literal("true") && !literal("false")) {
+				skipNumber();
+			}
+		}
+
+		private IllegalArgumentException unexpected(String expected) {
+			return new IllegalArgumentException("expected " + expected + " at " + position);
+		}
+	}
+
+	// Appends JSON to a byte array, growing it when needed
+	private static final class Writer {
+		private byte[] buffer;
+		private int length;
+
+		private Writer(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		private void writeLoadResponse(LoadResponse response) {
+			append('{');
+			boolean first = field(true, "userId", response.getUserId());
+			first = field(first, "messageId", response.getMessageId());
+			first = amount(first, "balance", response.getBalance());
+			error(first, response.getError());
+			append('}');
+		}
+
+		private void writeAuthorizationResponse(AuthorizationResponse response) {
+			append('{');
+			boolean first = field(true, "userId", response.getUserId());
+			first = field(first, "messageId", response.getMessageId());
+			first = field(first, "responseCode",
+					response.getResponseCode() == null ? null : response.getResponseCode().name());
+			first = amount(first, "balance", response.getBalance());
+			error(first, response.getError());
+			append('}');
+		}
+
+		// Amount and Error are written with their null fields, they are not annotated NON_NULL
+		private boolean amount(boolean first, String name, Amount amount) {
+			if (amount == null) {
+				return first;
+			}
+			name(first, name);
+			append('{');
+			nullableField(true, "amount", amount.getAmount());
+			nullableField(false, "currency", amount.getCurrency());
+			nullableField(false, "debitOrCredit",
+					amount.getDebitOrCredit() == null ? null : amount.getDebitOrCredit().name());
+			append('}');
+			return false;
+		}
+
+		private void error(boolean first, Error error) {
+			if (error == null) {
+				return;
+			}
+			name(first, "error");
+			append('{');
+			nullableField(true, "message", error.getMessage());
+			nullableField(false, "code", error.getCode());
+			append('}');
+		}
+
+		private boolean field(boolean first, String name, String value) {
+			if (value == null) {
+				return first;
+			}
+			nullableField(first, name, value);
+			return false;
+		}
+
+		private void nullableField(boolean first, String name, String value) {
+			name(first, name);
+			if (value == null) {
+				appendAscii("null");
+			} else {
+				string(value);
+			}
+		}
+
+		private void name(boolean first, String name) {
+			if (!first) {
+				append(',');
+			}
+			append('"');
+			appendAscii(name);
+			append('"');
+			append(':');
+		}
+
+		private void string(String value) {
+			append('"');
+			int length = value.length();
+			for (int i = 0; i < length; i++) {
+				char c = value.charAt(i);
+				if (c >= 0x80) {
+					// Rare for the ledger fields, escape the rest after encoding it as UTF-8
+					utf8(value.substring(i).getBytes(StandardCharsets.UTF_8));
+					break;
+				}
+				escaped((byte) c);
+			}
+			append('"');
+		}
+
+		private void utf8(byte[] bytes) {
+			for (byte b : bytes) {
+				if (b < 0) {
+					append(b);
+				} else {
+					escaped(b);
+				}
+			}
+		}
+
+		private void escaped(byte b) {
+			switch (b) {
+			case '"' -> appendAscii("\\\"");
+			case '\\' -> appendAscii("\\\\");
+			case '\n' -> appendAscii("\\n");
+			case '\r' -> appendAscii("\\r");
+			case '\t' -> appendAscii("\\t");
+			case '\b' -> appendAscii("\\b");
+			case '\f' -> appendAscii("\\f");
+			default -> {
+				if (b < 0x20) {
+					appendAscii("\\u00");
+					append(HEX[b >> 4]);
+					append(HEX[b & 0xF]);
+				} else {
+					append(b);
+				}
+			}
+			}
+		}
+
+		private void appendAscii(String value) {
+			for (int i = 0; i < value.length(); i++) {
+				append((byte) value.charAt(i));
+			}
+		}
+
+		private void append(char c) {
+			append((byte) c);
+		}
+
+		private void append(byte b) {
+			if (length == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			buffer[length++] = b;
+		}
+	}
+}
@@ -1,24 +1,51 @@
 package dev.codescreen.controller;
 
+import dev.codescreen.Service.AccountRateLimiter;
 import dev.codescreen.Service.BankLedgerService;
+import dev.codescreen.Service.LedgerShardExecutor;
 import dev.codescreen.exceptions.BankLedgerInternalException;
-import dev.codescreen.exceptions.InsufficientFunds;
+import dev.codescreen.exceptions.LedgerOverloaded;
+import dev.codescreen.exceptions.RateLimited;
+import dev.codescreen.exceptions.ReplicaLagging;
+import dev.codescreen.exceptions.UnsupportedCurrency;
+import dev.codescreen.logging.TrafficLog;
+import dev.codescreen.metrics.LedgerMetrics;
+import dev.codescreen.metrics.LedgerMetrics.Endpoint;
 import dev.codescreen.model.Amount;
+import dev.codescreen.model.AuthorizationResult;
+import dev.codescreen.model.BatchItem;
+import dev.codescreen.model.BatchResult;
 import dev.codescreen.model.DebitCredit;
 import dev.codescreen.model.request.AuthorizationRequest;
 import dev.codescreen.model.request.LoadRequest;
 import dev.codescreen.model.response.AuthorizationResponse;
+import dev.codescreen.model.response.BalanceResponse;
 import dev.codescreen.model.response.LoadResponse;
 import dev.codescreen.model.response.ResponseCode;
 import dev.codescreen.model.response.ServerError;
 import dev.codescreen.utils.Utils;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -27,11 +54,22 @@ import lombok.extern.slf4j.Slf4j;
 @RestController
 @Slf4j
 public class BankController {
+	private static final int MAX_BATCH_SIZE = 1000;
+
 	@Autowired
 	private BankLedgerService ledgerService;
+	@Autowired(required = false)
+	private LedgerShardExecutor shardExecutor;
+	@Autowired(required = false)
+	private AccountRateLimiter rateLimiter;
+	@Autowired
+	private Validator validator;
+	@Autowired
+	private LedgerMetrics metrics;
 
-	public BankController(BankLedgerService ledgerService) {
+	public BankController(BankLedgerService ledgerService, LedgerMetrics metrics) {
 		this.ledgerService = ledgerService;
+		this.metrics = metrics;
 	}
 	
 	// This method handles "/authorization" end-point and it is used for DEBIT transaction.
@@ -39,7 +77,7 @@ public class BankController {
 	@PutMapping(path = "/authorization", consumes = "application/json", produces = "application/json")
 	public ResponseEntity<?> authorizeTransaction(@Valid @RequestBody AuthorizationRequest authRequest,
 			BindingResult bindingResult) {
-		log.info("A New Authorization Request received {}", authRequest);
+		TrafficLog.request(Endpoint.AUTHORIZATION, authRequest);
 		String errorCode = "";
 		String errorMessage = "";
 
@@ -58,28 +96,28 @@ public class BankController {
 		}
 		
 		try {
-			
-			double amountInUSD = Utils.convertAmountToUSD(Utils.parseAmount(transactionAmount.getAmount()),
-					transactionAmount.getCurrency());
-			double updatedBalance = ledgerService.authorizeTransaction(authRequest.getUserId(),
-					authRequest.getMessageId(), amountInUSD);
+			long amountInUSD = toUSD(transactionAmount);
+			admit(authRequest.getUserId(), authRequest.getMessageId());
+			AuthorizationResult result = dispatch(Endpoint.AUTHORIZATION, authRequest.getUserId(),
+					() -> ledgerService.authorizeTransaction(authRequest.getUserId(), authRequest.getMessageId(),
+							amountInUSD));
+			ResponseCode responseCode = result.isApproved() ? ResponseCode.APPROVED : ResponseCode.DECLINED;
 			AuthorizationResponse response = AuthorizationResponse.builder().userId(authRequest.getUserId())
 					.messageId(authRequest.getMessageId())
 					.balance(Amount.builder().currency("USD").debitOrCredit(DebitCredit.DEBIT)
-							.amount(Utils.formatAmount(updatedBalance)).build())
-					.responseCode(ResponseCode.APPROVED).build();
-			return new ResponseEntity<>(response, HttpStatus.CREATED);
-		} catch (InsufficientFunds ex) {
-			AuthorizationResponse response = AuthorizationResponse.builder().userId(authRequest.getUserId())
-					.messageId(authRequest.getMessageId())
-					.balance(Amount.builder().currency("USD").debitOrCredit(DebitCredit.DEBIT)
-							.amount(Utils.formatAmount(ex.getUserBalance())).build())
-					.responseCode(ResponseCode.DECLINED).build();
+							.amount(Utils.formatAmount(result.getBalance())).build())
+					.responseCode(responseCode).build();
+			metrics.recordOutcome(Endpoint.AUTHORIZATION, responseCode);
 			return new ResponseEntity<>(response, HttpStatus.CREATED);
 		} catch (NumberFormatException ex) {
 			errorMessage = "Please provide valid Input for amount";
 			log.error(errorMessage);
 			return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
+		} catch (UnsupportedCurrency ex) {
+			log.error(ex.getMessage());
+			return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+		} catch (RateLimited | LedgerOverloaded ex) {
+			return rejected(Endpoint.AUTHORIZATION, ex);
 		} catch (BankLedgerInternalException ex) {
 			errorMessage = "Failed to Load the Balance.";
 			errorCode = "INTERNAL_EXCEPTION";
@@ -89,6 +127,7 @@ public class BankController {
 			errorCode = "UNKNOWN_EXCEPTION";
 			log.error(errorMessage, ex);
 		}
+		metrics.recordError(Endpoint.AUTHORIZATION);
 		ServerError serverError = ServerError.builder()
 				.error(dev.codescreen.model.Error.builder().code(errorCode).message(errorMessage).build()).build();
 		return new ResponseEntity<>(serverError, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -98,7 +137,7 @@ public class BankController {
 	
 	@PutMapping(path = "/load", consumes = "application/json", produces = "application/json")
 	public ResponseEntity<?> loadFunds(@Valid @RequestBody LoadRequest loadRequest, BindingResult bindingResult) {
-		log.info("A New Load Request received {}", loadRequest);
+		TrafficLog.request(Endpoint.LOAD, loadRequest);
 		String errorCode = "";
 		String errorMessage = "";
 
@@ -117,19 +156,25 @@ public class BankController {
 		}
 
 		try {
-			double amountInUSD = Utils.convertAmountToUSD(Utils.parseAmount(transactionAmount.getAmount()),
-					transactionAmount.getCurrency());
-			double updatedBalance = ledgerService.loadFunds(loadRequest.getUserId(), loadRequest.getMessageId(),
-					amountInUSD);
+			long amountInUSD = toUSD(transactionAmount);
+			admit(loadRequest.getUserId(), loadRequest.getMessageId());
+			long updatedBalance = dispatch(Endpoint.LOAD, loadRequest.getUserId(),
+					() -> ledgerService.loadFunds(loadRequest.getUserId(), loadRequest.getMessageId(), amountInUSD));
 			LoadResponse loadResponse = LoadResponse.builder().userId(loadRequest.getUserId())
 					.messageId(loadRequest.getMessageId()).balance(Amount.builder().currency("USD")
 							.debitOrCredit(DebitCredit.CREDIT).amount(Utils.formatAmount(updatedBalance)).build())
 					.build();
+			metrics.recordOutcome(Endpoint.LOAD, ResponseCode.APPROVED);
 			return new ResponseEntity<>(loadResponse, HttpStatus.CREATED);
 		} catch (NumberFormatException ex) {
 			errorMessage = "Please provide valid Input for amount";
 			log.error(errorMessage);
 			return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
+		} catch (UnsupportedCurrency ex) {
+			log.error(ex.getMessage());
+			return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+		} catch (RateLimited | LedgerOverloaded ex) {
+			return rejected(Endpoint.LOAD, ex);
 		} catch (BankLedgerInternalException ex) {
 			errorMessage = "Failed to Load the Balance.";
 			errorCode = "INTERNAL_EXCEPTION";
@@ -139,9 +184,315 @@ public class BankController {
 			errorCode = "UNKNOWN_EXCEPTION";
 			log.error(errorMessage, ex);
 		}
+		metrics.recordError(Endpoint.LOAD);
 		ServerError serverError = ServerError.builder()
 				.error(dev.codescreen.model.Error.builder().code(errorCode).message(errorMessage).build()).build();
 		return new ResponseEntity<>(serverError, HttpStatus.INTERNAL_SERVER_ERROR);
 	}
 
+	// This method handles "/balance/{userId}" end-point, it reads the current balance without a transaction.
+
+	@GetMapping(path = "/balance/{userId}", produces = "application/json")
+	public ResponseEntity<?> getBalance(@PathVariable("userId") String userId) {
+		try {
+			Optional<Long> balance = ledgerService.getBalance(userId);
+			if (balance.isEmpty()) {
+				ServerError serverError = ServerError.builder().error(dev.codescreen.model.Error.builder()
+						.code("USER_NOT_FOUND").message(String.format("User %s is not found in the system", userId))
+						.build()).build();
+				return new ResponseEntity<>(serverError, HttpStatus.NOT_FOUND);
+			}
+			BalanceResponse response = BalanceResponse.builder().userId(userId)
+					.balance(Amount.builder().currency("USD").debitOrCredit(DebitCredit.CREDIT)
+							.amount(Utils.formatAmount(balance.get())).build())
+					.build();
+			return new ResponseEntity<>(response, HttpStatus.OK);
+		} catch (ReplicaLagging ex) {
+			ServerError serverError = ServerError.builder().error(
+					dev.codescreen.model.Error.builder().code("REPLICA_LAGGING").message(ex.getMessage()).build())
+					.build();
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds())).body(serverError);
+		} catch (Exception ex) {
+			String errorMessage = "Unknown Exception occurred while reading the balance";
+			log.error(errorMessage, ex);
+			metrics.recordError(Endpoint.BALANCE);
+			ServerError serverError = ServerError.builder().error(
+					dev.codescreen.model.Error.builder().code("UNKNOWN_EXCEPTION").message(errorMessage).build())
+					.build();
+			return new ResponseEntity<>(serverError, HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	// This method handles "/authorization/batch" end-point, it applies many DEBIT transactions in one transaction.
+
+	@PutMapping(path = "/authorization/batch", consumes = "application/json", produces = "application/json")
+	public ResponseEntity<?> authorizeTransactionBatch(@RequestBody List<AuthorizationRequest> authRequests) {
+		TrafficLog.batch(Endpoint.AUTHORIZATION_BATCH, authRequests);
+		if (authRequests == null || authRequests.isEmpty() || authRequests.size() > MAX_BATCH_SIZE) {
+			return new ResponseEntity<>("Batch should contain between 1 and " + MAX_BATCH_SIZE + " requests",
+					HttpStatus.BAD_REQUEST);
+		}
+
+		AuthorizationResponse[] responses = new AuthorizationResponse[authRequests.size()];
+		List<BatchItem> items = new ArrayList<>();
+		List<Integer> positions = new ArrayList<>();
+		for (int i = 0; i < authRequests.size(); i++) {
+			AuthorizationRequest authRequest = authRequests.get(i);
+			String userId = authRequest == null ? null : authRequest.getUserId();
+			String messageId = authRequest == null ? null : authRequest.getMessageId();
+			try {
+				items.add(toBatchItem(authRequest, userId, messageId,
+						authRequest == null ? null : authRequest.getTransactionAmount(), DebitCredit.DEBIT,
+						"Authorization API should always have DEBIT Amount"));
+				positions.add(i);
+			} catch (IllegalArgumentException ex) {
+				responses[i] = AuthorizationResponse.builder().userId(userId).messageId(messageId)
+						.error(dev.codescreen.model.Error.builder().code("INVALID_REQUEST").message(ex.getMessage())
+								.build())
+						.build();
+			} catch (RateLimited ex) {
+				metrics.recordRejection(Endpoint.AUTHORIZATION_BATCH, true);
+				responses[i] = AuthorizationResponse.builder().userId(userId).messageId(messageId)
+						.error(dev.codescreen.model.Error.builder().code("RATE_LIMITED").message(ex.getMessage())
+								.build())
+						.build();
+			}
+		}
+
+		try {
+			List<BatchResult> results = dispatchBatch(Endpoint.AUTHORIZATION_BATCH, items,
+					ledgerService::authorizeTransactionBatch);
+			for (int i = 0; i < results.size(); i++) {
+				BatchItem item = items.get(i);
+				BatchResult result = results.get(i);
+				AuthorizationResponse.AuthorizationResponseBuilder response = AuthorizationResponse.builder()
+						.userId(item.getUserId()).messageId(item.getMessageId());
+				if (result.isFailed()) {
+					response.error(dev.codescreen.model.Error.builder().code("INTERNAL_EXCEPTION")
+							.message(result.getError()).build());
+					metrics.recordError(Endpoint.AUTHORIZATION_BATCH);
+				} else {
+					ResponseCode responseCode = result.isApproved() ? ResponseCode.APPROVED : ResponseCode.DECLINED;
+					response.balance(Amount.builder().currency("USD").debitOrCredit(DebitCredit.DEBIT)
+							.amount(Utils.formatAmount(result.getBalance())).build()).responseCode(responseCode);
+					metrics.recordOutcome(Endpoint.AUTHORIZATION_BATCH, responseCode);
+				}
+				responses[positions.get(i)] = response.build();
+			}
+			return new ResponseEntity<>(Arrays.asList(responses), HttpStatus.CREATED);
+		} catch (Exception ex) {
+			return batchFailure(Endpoint.AUTHORIZATION_BATCH, ex);
+		}
+	}
+
+	// This method handles "/load/batch" end-point, it applies many CREDIT transactions in one transaction.
+
+	@PutMapping(path = "/load/batch", consumes = "application/json", produces = "application/json")
+	public ResponseEntity<?> loadFundsBatch(@RequestBody List<LoadRequest> loadRequests) {
+		TrafficLog.batch(Endpoint.LOAD_BATCH, loadRequests);
+		if (loadRequests == null || loadRequests.isEmpty() || loadRequests.size() > MAX_BATCH_SIZE) {
+			return new ResponseEntity<>("Batch should contain between 1 and " + MAX_BATCH_SIZE + " requests",
+					HttpStatus.BAD_REQUEST);
+		}
+
+		LoadResponse[] responses = new LoadResponse[loadRequests.size()];
+		List<BatchItem> items = new ArrayList<>();
+		List<Integer> positions = new ArrayList<>();
+		for (int i = 0; i < loadRequests.size(); i++) {
+			LoadRequest loadRequest = loadRequests.get(i);
+			String userId = loadRequest == null ? null : loadRequest.getUserId();
+			String messageId = loadRequest == null ? null : loadRequest.getMessageId();
+			try {
+				items.add(toBatchItem(loadRequest, userId, messageId,
+						loadRequest == null ? null : loadRequest.getTransactionAmount(), DebitCredit.CREDIT,
+						"Load API should always have CREDIT Amount"));
+				positions.add(i);
+			} catch (IllegalArgumentException ex) {
+				responses[i] = LoadResponse.builder().userId(userId).messageId(messageId)
+						.error(dev.codescreen.model.Error.builder().code("INVALID_REQUEST").message(ex.getMessage())
+								.build())
+						.build();
+			} catch (RateLimited ex) {
+				metrics.recordRejection(Endpoint.LOAD_BATCH, true);
+				responses[i] = LoadResponse.builder().userId(userId).messageId(messageId)
+						.error(dev.codescreen.model.Error.builder().code("RATE_LIMITED").message(ex.getMessage())
+								.build())
+						.build();
+			}
+		}
+
+		try {
+			List<BatchResult> results = dispatchBatch(Endpoint.LOAD_BATCH, items, ledgerService::loadFundsBatch);
+			for (int i = 0; i < results.size(); i++) {
+				BatchItem item = items.get(i);
+				BatchResult result = results.get(i);
+				LoadResponse.LoadResponseBuilder response = LoadResponse.builder().userId(item.getUserId())
+						.messageId(item.getMessageId());
+				if (result.isFailed()) {
+					response.error(dev.codescreen.model.Error.builder().code("INTERNAL_EXCEPTION")
+							.message(result.getError()).build());
+					metrics.recordError(Endpoint.LOAD_BATCH);
+				} else {
+					response.balance(Amount.builder().currency("USD").debitOrCredit(DebitCredit.CREDIT)
+							.amount(Utils.formatAmount(result.getBalance())).build());
+					metrics.recordOutcome(Endpoint.LOAD_BATCH, ResponseCode.APPROVED);
+				}
+				responses[positions.get(i)] = response.build();
+			}
+			return new ResponseEntity<>(Arrays.asList(responses), HttpStatus.CREATED);
+		} catch (Exception ex) {
+			return batchFailure(Endpoint.LOAD_BATCH, ex);
+		}
+	}
+
+	// Validates one request of a batch and converts it to USD minor units, the exception message explains a rejection.
+	// A valid request over the rate limit of its account throws RateLimited.
+
+	private BatchItem toBatchItem(Object request, String userId, String messageId, Amount transactionAmount,
+			DebitCredit expectedType, String wrongTypeMessage) {
+		if (request == null) {
+			throw new IllegalArgumentException("Request cannot be empty");
+		}
+		String errorMessage = "";
+		for (ConstraintViolation<Object> violation : validator.validate(request)) {
+			errorMessage += violation.getMessage() + "\n";
+		}
+		if (!errorMessage.isEmpty()) {
+			throw new IllegalArgumentException(errorMessage);
+		}
+		if (!transactionAmount.getDebitOrCredit().equals(expectedType)) {
+			throw new IllegalArgumentException(wrongTypeMessage);
+		}
+		try {
+			BatchItem item = new BatchItem(userId, messageId, toUSD(transactionAmount));
+			admit(userId, messageId);
+			return item;
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Please provide valid Input for amount");
+		} catch (UnsupportedCurrency ex) {
+			throw new IllegalArgumentException(ex.getMessage());
+		}
+	}
+
+	// Converts the amount to USD minor units, a zero or negative amount is not valid input for a load or authorization.
+
+	private long toUSD(Amount transactionAmount) {
+		long amountInUSD = Utils.convertAmountToUSD(Utils.parseAmount(transactionAmount.getAmount()),
+				transactionAmount.getCurrency());
+		if (amountInUSD <= 0) {
+			throw new NumberFormatException("Amount should be greater than zero: " + transactionAmount.getAmount());
+		}
+		return amountInUSD;
+	}
+
+	// Applies the batch in one ledger call, or with sharding one ledger call per shard on that shard's thread.
+
+	private List<BatchResult> dispatchBatch(Endpoint endpoint, List<BatchItem> items,
+			Function<List<BatchItem>, List<BatchResult>> ledgerCall) {
+		if (items.isEmpty()) {
+			return List.of();
+		}
+		if (shardExecutor == null) {
+			return timed(endpoint, () -> ledgerCall.apply(items));
+		}
+		Map<Integer, List<Integer>> positionsByShard = new TreeMap<>();
+		for (int i = 0; i < items.size(); i++) {
+			positionsByShard.computeIfAbsent(shardExecutor.shardOf(items.get(i).getUserId()), shard -> new ArrayList<>())
+					.add(i);
+		}
+		List<CompletableFuture<List<BatchResult>>> shardResults = new ArrayList<>(positionsByShard.size());
+		for (List<Integer> positions : positionsByShard.values()) {
+			List<BatchItem> shardItems = new ArrayList<>(positions.size());
+			for (int position : positions) {
+				shardItems.add(items.get(position));
+			}
+			try {
+				shardResults.add(shardExecutor.submit(shardItems.get(0).getUserId(),
+						() -> timed(endpoint, () -> ledgerCall.apply(shardItems))));
+			} catch (LedgerOverloaded ex) {
+				// Let the shards that accepted their part finish, a retry of the batch then replays them by messageId
+				CompletableFuture.allOf(shardResults.toArray(new CompletableFuture[0])).handle((done, failure) -> null)
+						.join();
+				throw ex;
+			}
+		}
+		BatchResult[] results = new BatchResult[items.size()];
+		int shard = 0;
+		for (List<Integer> positions : positionsByShard.values()) {
+			List<BatchResult> shardResult = LedgerShardExecutor.await(shardResults.get(shard++));
+			for (int i = 0; i < shardResult.size(); i++) {
+				results[positions.get(i)] = shardResult.get(i);
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+	private ResponseEntity<?> batchFailure(Endpoint endpoint, Exception ex) {
+		if (ex instanceof LedgerOverloaded overloaded) {
+			return rejected(endpoint, overloaded);
+		}
+		String errorMessage;
+		String errorCode;
+		if (ex instanceof BankLedgerInternalException) {
+			errorMessage = "Failed to apply the batch.";
+			errorCode = "INTERNAL_EXCEPTION";
+		} else {
+			errorMessage = "Unknown Exception occurred while applying the batch";
+			errorCode = "UNKNOWN_EXCEPTION";
+		}
+		log.error(errorMessage, ex);
+		metrics.recordError(endpoint);
+		ServerError serverError = ServerError.builder()
+				.error(dev.codescreen.model.Error.builder().code(errorCode).message(errorMessage).build()).build();
+		return new ResponseEntity<>(serverError, HttpStatus.INTERNAL_SERVER_ERROR);
+	}
+
+	// Takes a token from the rate limit of the account when rate limiting is enabled, called once the request is valid.
+	// A retry the ledger answers from its idempotency cache is free.
+
+	private void admit(String userId, String messageId) {
+		if (rateLimiter == null || ledgerService.isReplay(messageId)) {
+			return;
+		}
+		long waitMillis = rateLimiter.tryAcquire(userId);
+		if (waitMillis > 0) {
+			throw new RateLimited(String.format("User %s is over its rate limit", userId),
+					Math.max(1, (waitMillis + 999) / 1000));
+		}
+	}
+
+	// Builds the 429 or 503 answer for a request turned away before reaching the ledger, with a Retry-After hint.
+
+	private ResponseEntity<?> rejected(Endpoint endpoint, RuntimeException ex) {
+		boolean rateLimited = ex instanceof RateLimited;
+		long retryAfterSeconds = rateLimited ? ((RateLimited) ex).getRetryAfterSeconds()
+				: ((LedgerOverloaded) ex).getRetryAfterSeconds();
+		metrics.recordRejection(endpoint, rateLimited);
+		ServerError serverError = ServerError.builder().error(dev.codescreen.model.Error.builder()
+				.code(rateLimited ? "RATE_LIMITED" : "OVERLOADED").message(ex.getMessage()).build()).build();
+		return ResponseEntity.status(rateLimited ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds)).body(serverError);
+	}
+
+	// Runs the ledger call on the shard owning the account when sharding is enabled, otherwise on the request thread.
+
+	private <T> T dispatch(Endpoint endpoint, String userId, Supplier<T> ledgerCall) {
+		if (shardExecutor == null) {
+			return timed(endpoint, ledgerCall);
+		}
+		return shardExecutor.execute(userId, () -> timed(endpoint, ledgerCall));
+	}
+
+	// Records how long the ledger call took, excluding any time spent waiting for a shard.
+
+	private <T> T timed(Endpoint endpoint, Supplier<T> ledgerCall) {
+		long start = System.nanoTime();
+		try {
+			return ledgerCall.get();
+		} finally {
+			metrics.recordTransaction(endpoint, System.nanoTime() - start);
+		}
+	}
+
 }
@@ -0,0 +1,106 @@
+package dev.codescreen.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.codescreen.Service.EventHistoryService;
+import dev.codescreen.exceptions.ReplicaLagging;
+import dev.codescreen.model.response.EventPage;
+import dev.codescreen.model.response.ServerError;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@Slf4j
+public class EventHistoryController {
+	private static final int MAX_PAGE_SIZE = 500;
+	private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+	@Autowired
+	private EventHistoryService eventHistoryService;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	public EventHistoryController(EventHistoryService eventHistoryService) {
+		this.eventHistoryService = eventHistoryService;
+	}
+
+	// This method handles "/events/{userId}" end-point, it returns one page of the transaction history, newest first.
+
+	@GetMapping(path = "/events/{userId}", produces = "application/json")
+	public ResponseEntity<?> getEvents(@PathVariable("userId") String userId,
+			@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "limit", defaultValue = "50") int limit) {
+		if (limit < 1 || limit > MAX_PAGE_SIZE) {
+			return new ResponseEntity<>("Limit should be between 1 and " + MAX_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+		}
+		if (!eventHistoryService.isAvailable()) {
+			return historyUnavailable();
+		}
+		try {
+			EventPage page = eventHistoryService.getEvents(userId, cursor, limit);
+			return new ResponseEntity<>(page, HttpStatus.OK);
+		} catch (IllegalArgumentException ex) {
+			return new ResponseEntity<>("Please provide a cursor returned by a previous page", HttpStatus.BAD_REQUEST);
+		} catch (ReplicaLagging ex) {
+			return replicaLagging(ex);
+		} catch (Exception ex) {
+			String errorMessage = "Unknown Exception occurred while reading the transaction history";
+			log.error(errorMessage, ex);
+			ServerError serverError = ServerError.builder().error(
+					dev.codescreen.model.Error.builder().code("UNKNOWN_EXCEPTION").message(errorMessage).build())
+					.build();
+			return new ResponseEntity<>(serverError, HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	// This method handles "/events/{userId}?format=ndjson", it streams the whole history as newline delimited JSON.
+
+	@GetMapping(path = "/events/{userId}", params = "format=ndjson")
+	public ResponseEntity<StreamingResponseBody> exportEvents(@PathVariable("userId") String userId) {
+		// Declared as a StreamingResponseBody so Spring streams it, error answers are streamed as well
+		if (!eventHistoryService.isAvailable()) {
+			return streamed(historyUnavailable());
+		}
+		try {
+			eventHistoryService.checkReplicaLag();
+		} catch (ReplicaLagging ex) {
+			return streamed(replicaLagging(ex));
+		}
+		StreamingResponseBody body = out -> {
+			long written = eventHistoryService.exportEvents(userId, out);
+			log.info("Exported {} events of user {}", written, userId);
+		};
+		return ResponseEntity.ok().contentType(NDJSON).body(body);
+	}
+
+	private ResponseEntity<StreamingResponseBody> streamed(ResponseEntity<?> error) {
+		Object serverError = error.getBody();
+		return ResponseEntity.status(error.getStatusCode()).headers(error.getHeaders())
+				.contentType(MediaType.APPLICATION_JSON).body(out -> objectMapper.writeValue(out, serverError));
+	}
+
+	private ResponseEntity<?> replicaLagging(ReplicaLagging ex) {
+		ServerError serverError = ServerError.builder().error(
+				dev.codescreen.model.Error.builder().code("REPLICA_LAGGING").message(ex.getMessage()).build()).build();
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds())).body(serverError);
+	}
+
+	private ResponseEntity<?> historyUnavailable() {
+		ServerError serverError = ServerError.builder().error(dev.codescreen.model.Error.builder()
+				.code("HISTORY_UNAVAILABLE")
+				.message("Transaction history is not kept in BANK_EVENTS with ledger.journal.mode=mmap").build())
+				.build();
+		return new ResponseEntity<>(serverError, HttpStatus.NOT_IMPLEMENTED);
+	}
+}
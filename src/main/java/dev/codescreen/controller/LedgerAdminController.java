@@ -0,0 +1,109 @@
+package dev.codescreen.controller;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import dev.codescreen.Service.DailyStatementService;
+import dev.codescreen.Service.LedgerReplayService;
+import dev.codescreen.model.entity.SnapshotWatermark;
+import dev.codescreen.model.entity.StatementWatermark;
+import dev.codescreen.model.response.ServerError;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@Slf4j
+public class LedgerAdminController {
+	@Autowired
+	private LedgerReplayService ledgerReplayService;
+	@Autowired
+	private DailyStatementService dailyStatementService;
+
+	// This method handles "/admin/reconciliation" end-point, it replays BANK_EVENTS and reports the accounts whose
+	// USER_BALANCE drifted from it.
+
+	@GetMapping(path = "/admin/reconciliation", produces = "application/json")
+	public ResponseEntity<?> reconcile(
+			@RequestParam(name = "fromScratch", defaultValue = "false") boolean fromScratch) {
+		if (!ledgerReplayService.isAvailable()) {
+			return replayUnavailable();
+		}
+		try {
+			return new ResponseEntity<>(ledgerReplayService.reconcile(fromScratch), HttpStatus.OK);
+		} catch (Exception ex) {
+			return unknownException("Unknown Exception occurred while reconciling balances", ex);
+		}
+	}
+
+	// This method handles "/admin/snapshot" end-point, it writes a balance snapshot now instead of waiting for the
+	// scheduled one.
+
+	@PostMapping(path = "/admin/snapshot", produces = "application/json")
+	public ResponseEntity<?> snapshot() {
+		if (!ledgerReplayService.isAvailable()) {
+			return replayUnavailable();
+		}
+		try {
+			SnapshotWatermark watermark = ledgerReplayService.snapshot();
+			return watermark == null ? ResponseEntity.noContent().build() : new ResponseEntity<>(watermark, HttpStatus.OK);
+		} catch (Exception ex) {
+			return unknownException("Unknown Exception occurred while writing the balance snapshot", ex);
+		}
+	}
+
+	// This method handles "/admin/statements" end-point, it adds the events since the last run to the daily statements
+	// now instead of waiting for the scheduled run.
+
+	@PostMapping(path = "/admin/statements", produces = "application/json")
+	public ResponseEntity<?> generateStatements() {
+		if (!dailyStatementService.isAvailable()) {
+			return replayUnavailable();
+		}
+		try {
+			StatementWatermark watermark = dailyStatementService.generate();
+			return watermark == null ? ResponseEntity.noContent().build() : new ResponseEntity<>(watermark, HttpStatus.OK);
+		} catch (Exception ex) {
+			return unknownException("Unknown Exception occurred while writing the daily statements", ex);
+		}
+	}
+
+	// This method handles "/admin/statements/{userId}" end-point, it returns the daily statements of the account from
+	// "from" to "to" inclusive, the last 30 days by default.
+
+	@GetMapping(path = "/admin/statements/{userId}", produces = "application/json")
+	public ResponseEntity<?> statements(@PathVariable("userId") String userId,
+			@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+		LocalDate last = to == null ? LocalDate.now() : to;
+		LocalDate first = from == null ? last.minusDays(30) : from;
+		try {
+			return new ResponseEntity<>(dailyStatementService.statements(userId, first, last), HttpStatus.OK);
+		} catch (Exception ex) {
+			return unknownException("Unknown Exception occurred while reading the daily statements", ex);
+		}
+	}
+
+	private ResponseEntity<?> unknownException(String errorMessage, Exception ex) {
+		log.error(errorMessage, ex);
+		ServerError serverError = ServerError.builder()
+				.error(dev.codescreen.model.Error.builder().code("UNKNOWN_EXCEPTION").message(errorMessage).build())
+				.build();
+		return new ResponseEntity<>(serverError, HttpStatus.INTERNAL_SERVER_ERROR);
+	}
+
+	private ResponseEntity<?> replayUnavailable() {
+		ServerError serverError = ServerError.builder().error(dev.codescreen.model.Error.builder()
+				.code("REPLAY_UNAVAILABLE")
+				.message("Balances are not replayed from BANK_EVENTS with ledger.journal.mode=mmap").build())
+				.build();
+		return new ResponseEntity<>(serverError, HttpStatus.NOT_IMPLEMENTED);
+	}
+}
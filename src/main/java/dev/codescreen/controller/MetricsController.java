@@ -0,0 +1,20 @@
+package dev.codescreen.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import dev.codescreen.metrics.LedgerMetrics;
+
+@RestController
+public class MetricsController {
+	@Autowired
+	private LedgerMetrics metrics;
+
+	// This method handles "/metrics" end-point, it is scraped by Prometheus.
+
+	@GetMapping(path = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+	public String scrape() {
+		return metrics.scrape();
+	}
+}
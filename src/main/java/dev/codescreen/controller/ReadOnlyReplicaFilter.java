@@ -0,0 +1,47 @@
+package dev.codescreen.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.codescreen.model.response.ServerError;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Refuses every request that could change state on a follower, only GET and HEAD reach the
+ * controllers. Loads and authorizations have to be sent to the primary.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.role", havingValue = "follower")
+public class ReadOnlyReplicaFilter extends OncePerRequestFilter {
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String method = request.getMethod();
+		if ("GET".equals(method) || "HEAD".equals(method)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		ServerError serverError = ServerError.builder().error(dev.codescreen.model.Error.builder()
+				.code("READ_ONLY_REPLICA").message("This node is a read-only follower, send writes to the primary")
+				.build()).build();
+		response.setStatus(HttpStatus.METHOD_NOT_ALLOWED.value());
+		response.setHeader(HttpHeaders.ALLOW, "GET, HEAD");
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		objectMapper.writeValue(response.getOutputStream(), serverError);
+	}
+}
@@ -0,0 +1,67 @@
+package dev.codescreen.controller;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import dev.codescreen.Service.LedgerRollups;
+import dev.codescreen.model.response.ServerError;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@Slf4j
+public class StatsController {
+	@Autowired(required = false)
+	private LedgerRollups ledgerRollups;
+
+	// This method handles "/stats" end-point, it returns the totals of all accounts from the hourly rollups, for
+	// today or for the current and the previous hour.
+
+	@GetMapping(path = "/stats", produces = "application/json")
+	public ResponseEntity<?> getStats(@RequestParam(name = "window", defaultValue = "today") String window) {
+		return stats(null, window);
+	}
+
+	// This method handles "/stats/{userId}" end-point, it returns the totals of one account the same way.
+
+	@GetMapping(path = "/stats/{userId}", produces = "application/json")
+	public ResponseEntity<?> getUserStats(@PathVariable("userId") String userId,
+			@RequestParam(name = "window", defaultValue = "today") String window) {
+		return stats(userId, window);
+	}
+
+	private ResponseEntity<?> stats(String userId, String window) {
+		LocalDateTime from;
+		if ("today".equals(window)) {
+			from = LocalDate.now().atStartOfDay();
+		} else if ("hour".equals(window)) {
+			// Whole hours only, so the last 60 to 120 minutes
+			from = LocalDateTime.now().minusHours(1);
+		} else {
+			return new ResponseEntity<>("Window should be today or hour", HttpStatus.BAD_REQUEST);
+		}
+		if (ledgerRollups == null) {
+			ServerError serverError = ServerError.builder().error(dev.codescreen.model.Error.builder()
+					.code("STATS_UNAVAILABLE").message("Rollups are disabled with ledger.rollups.enabled=false").build())
+					.build();
+			return new ResponseEntity<>(serverError, HttpStatus.NOT_IMPLEMENTED);
+		}
+		try {
+			return new ResponseEntity<>(ledgerRollups.stats(userId, from), HttpStatus.OK);
+		} catch (Exception ex) {
+			String errorMessage = "Unknown Exception occurred while reading the stats";
+			log.error(errorMessage, ex);
+			ServerError serverError = ServerError.builder().error(
+					dev.codescreen.model.Error.builder().code("UNKNOWN_EXCEPTION").message(errorMessage).build())
+					.build();
+			return new ResponseEntity<>(serverError, HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+}
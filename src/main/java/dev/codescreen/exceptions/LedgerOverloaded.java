@@ -0,0 +1,20 @@
+package dev.codescreen.exceptions;
+
+import lombok.Getter;
+
+/**
+ * The request was not admitted because the ledger is saturated, nothing was applied and the
+ * client may retry after the hinted delay
+ */
+@Getter
+public class LedgerOverloaded extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+	private long retryAfterSeconds;
+
+	public LedgerOverloaded(String errorMessage, long retryAfterSeconds) {
+		super(errorMessage);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+}
@@ -0,0 +1,20 @@
+package dev.codescreen.exceptions;
+
+import lombok.Getter;
+
+/**
+ * The account sent more requests than its rate limit allows, nothing was applied and the
+ * client may retry after the hinted delay
+ */
+@Getter
+public class RateLimited extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+	private long retryAfterSeconds;
+
+	public RateLimited(String errorMessage, long retryAfterSeconds) {
+		super(errorMessage);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+}
@@ -0,0 +1,20 @@
+package dev.codescreen.exceptions;
+
+import lombok.Getter;
+
+/**
+ * The read was not served because this follower is further behind the primary than the
+ * configured bound, the client may retry after the hinted delay or read from the primary
+ */
+@Getter
+public class ReplicaLagging extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+	private long retryAfterSeconds;
+
+	public ReplicaLagging(String errorMessage, long retryAfterSeconds) {
+		super(errorMessage);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+}
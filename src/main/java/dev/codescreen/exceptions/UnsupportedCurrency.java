@@ -0,0 +1,16 @@
+package dev.codescreen.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class UnsupportedCurrency extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+	private String currency;
+
+	public UnsupportedCurrency(String currency) {
+		super("Currency " + currency + " is not supported");
+		this.currency = currency;
+	}
+
+}
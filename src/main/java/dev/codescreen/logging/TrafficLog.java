@@ -0,0 +1,253 @@
+package dev.codescreen.logging;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import dev.codescreen.metrics.LedgerMetrics.Endpoint;
+import dev.codescreen.model.Amount;
+import dev.codescreen.model.request.AuthorizationRequest;
+import dev.codescreen.model.request.LoadRequest;
+import dev.codescreen.utils.Money;
+
+/**
+ * Structured log of ledger traffic, encoded and written off the request path. Recording an
+ * entry stores references to the request and a few longs in a preallocated slot of a bounded
+ * ring, claimed with one CAS; nothing is formatted and no toString() is called on the request
+ * thread. {@link TrafficLogWriter} drains the ring on its own thread and encodes every entry
+ * as one JSON line from the fields of the objects it references. Request objects are not
+ * changed once bound, so reading them later is safe.
+ *
+ * Each category is sampled with its own rate, and entries are dropped rather than waiting when
+ * the ring is full, so logging never slows a request down. Errors are still logged directly.
+ *
+ * The static methods record into the log installed at startup, or into a default one when no
+ * Spring context configured it.
+ */
+public final class TrafficLog {
+	public enum Category {
+		// A load or authorization received
+		REQUEST,
+		// A batch received, logged with its size
+		BATCH,
+		// A debit declined for insufficient funds
+		DECLINE,
+		// A retried message answered with its original result
+		REPLAY
+	}
+
+	private static final Category[] CATEGORIES = Category.values();
+
+	private static volatile TrafficLog current = new TrafficLog(1024, Map.of());
+
+	private final Entry[] entries;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	// Only touched by the draining thread
+	private long head;
+	private final double[] sampleRates = new double[CATEGORIES.length];
+	private final LongAdder dropped = new LongAdder();
+	private final StringBuilder line = new StringBuilder(256);
+
+	/**
+	 * @param capacity:    Entries buffered before new ones are dropped, rounded up to a power of two
+	 * @param sampleRates: Share of the entries of each category that is recorded, 1.0 for missing ones
+	 */
+	public TrafficLog(int capacity, Map<Category, Double> sampleRates) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.entries = new Entry[size];
+		for (int i = 0; i < size; i++) {
+			entries[i] = new Entry(i);
+		}
+		this.mask = size - 1;
+		Map<Category, Double> rates = new EnumMap<>(Category.class);
+		rates.putAll(sampleRates);
+		for (Category category : CATEGORIES) {
+			this.sampleRates[category.ordinal()] = rates.getOrDefault(category, 1.0);
+		}
+	}
+
+	public static TrafficLog current() {
+		return current;
+	}
+
+	public static void install(TrafficLog trafficLog) {
+		current = trafficLog;
+	}
+
+	/**
+	 * @param endpoint: Endpoint that received the request
+	 * @param request:  The bound request body, read when the entry is encoded
+	 */
+	public static void request(Endpoint endpoint, Object request) {
+		current.record(Category.REQUEST, endpoint, request, null, null, 0, 0);
+	}
+
+	/**
+	 * @param endpoint: Endpoint that received the batch
+	 * @param requests: The bound requests of the batch, only their number is logged
+	 */
+	public static void batch(Endpoint endpoint, Collection<?> requests) {
+		current.record(Category.BATCH, endpoint, requests, null, null, 0, 0);
+	}
+
+	/**
+	 * @param amount:  Requested amount in minor units
+	 * @param balance: Balance that did not cover it, in minor units
+	 */
+	public static void decline(String userId, String messageId, long amount, long balance) {
+		current.record(Category.DECLINE, null, null, userId, messageId, amount, balance);
+	}
+
+	public static void replay(String messageId) {
+		current.record(Category.REPLAY, null, null, null, messageId, 0, 0);
+	}
+
+	/**
+	 * Record an entry unless it is sampled out or the ring is full, never blocks
+	 */
+	public void record(Category category, Endpoint endpoint, Object payload, String userId, String messageId,
+			long amount, long balance) {
+		double rate = sampleRates[category.ordinal()];
+		if (rate < 1.0 && (rate <= 0.0 || ThreadLocalRandom.current().nextDouble() >= rate)) {
+			return;
+		}
+		long position = tail.get();
+		while (true) {
+			Entry entry = entries[(int) position & mask];
+			long sequence = entry.sequence;
+			if (sequence == position) {
+				if (tail.compareAndSet(position, position + 1)) {
+					entry.category = category;
+					entry.time = System.currentTimeMillis();
+					entry.endpoint = endpoint;
+					entry.payload = payload;
+					entry.userId = userId;
+					entry.messageId = messageId;
+					entry.amount = amount;
+					entry.balance = balance;
+					// Publishes the fields to the draining thread
+					entry.sequence = position + 1;
+					return;
+				}
+				position = tail.get();
+			} else if (sequence < position) {
+				// The slot still holds the entry of the previous lap, the ring is full
+				dropped.increment();
+				return;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Encode up to max recorded entries as JSON lines, only one thread may drain a log
+	 *
+	 * @return the number of entries passed to the sink
+	 */
+	public int drain(Consumer<String> sink, int max) {
+		int drained = 0;
+		while (drained < max) {
+			Entry entry = entries[(int) head & mask];
+			if (entry.sequence != head + 1) {
+				break;
+			}
+			line.setLength(0);
+			try {
+				encode(entry, line);
+			} finally {
+				entry.payload = null;
+				entry.userId = null;
+				entry.messageId = null;
+				entry.sequence = head + entries.length;
+				head++;
+			}
+			drained++;
+			sink.accept(line.toString());
+		}
+		return drained;
+	}
+
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	private static void encode(Entry entry, StringBuilder out) {
+		out.append("{\"category\":\"").append(entry.category.name()).append('"');
+		out.append(",\"time\":\"").append(Instant.ofEpochMilli(entry.time)).append('"');
+		if (entry.endpoint != null) {
+			out.append(",\"endpoint\":\"").append(entry.endpoint.getPath()).append('"');
+		}
+		switch (entry.category) {
+		case REQUEST -> encodeRequest(entry.payload, out);
+		case BATCH -> out.append(",\"size\":").append(entry.payload == null ? 0 : ((Collection<?>) entry.payload).size());
+		case DECLINE -> {
+			field(out, "userId", entry.userId);
+			field(out, "messageId", entry.messageId);
+			field(out, "requested", Money.format(entry.amount));
+			field(out, "balance", Money.format(entry.balance));
+		}
+		case REPLAY -> field(out, "messageId", entry.messageId);
+		}
+		out.append('}');
+	}
+
+	private static void encodeRequest(Object request, StringBuilder out) {
+		Amount amount = null;
+		if (request instanceof AuthorizationRequest authRequest) {
+			field(out, "userId", authRequest.getUserId());
+			field(out, "messageId", authRequest.getMessageId());
+			amount = authRequest.getTransactionAmount();
+		} else if (request instanceof LoadRequest loadRequest) {
+			field(out, "userId", loadRequest.getUserId());
+			field(out, "messageId", loadRequest.getMessageId());
+			amount = loadRequest.getTransactionAmount();
+		}
+		if (amount != null) {
+			field(out, "amount", amount.getAmount());
+			field(out, "currency", amount.getCurrency());
+			field(out, "debitOrCredit", amount.getDebitOrCredit() == null ? null : amount.getDebitOrCredit().name());
+		}
+	}
+
+	private static void field(StringBuilder out, String name, String value) {
+		if (value == null) {
+			return;
+		}
+		out.append(",\"").append(name).append("\":\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.append('\\').append(c);
+			} else if (c < 0x20) {
+				out.append(String.format("\\u%04x", (int) c));
+			} else {
+				out.append(c);
+			}
+		}
+		out.append('"');
+	}
+
+	// One slot of the ring, sequence tells which lap it belongs to and whether it is filled
+	private static final class Entry {
+		private volatile long sequence;
+		private Category category;
+		private long time;
+		private Endpoint endpoint;
+		private Object payload;
+		private String userId;
+		private String messageId;
+		private long amount;
+		private long balance;
+
+		private Entry(long sequence) {
+			this.sequence = sequence;
+		}
+	}
+}
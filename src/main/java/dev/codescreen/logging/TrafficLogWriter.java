@@ -0,0 +1,76 @@
+package dev.codescreen.logging;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import dev.codescreen.logging.TrafficLog.Category;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Installs the {@link TrafficLog} configured by the ledger.traffic-log properties and writes
+ * its entries to the "ledger.traffic" logger from a single thread, one JSON line per entry.
+ * Setting that logger below INFO turns recording off on the request path as well.
+ */
+@Component
+@Slf4j
+public class TrafficLogWriter {
+	private static final Logger trafficLogger = LoggerFactory.getLogger("ledger.traffic");
+	// Entries written between two checks for shutdown
+	private static final int DRAIN_BATCH = 256;
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final TrafficLog trafficLog;
+	private volatile boolean running = true;
+	private Thread writer;
+
+	public TrafficLogWriter(@Value("${ledger.traffic-log.capacity:8192}") int capacity,
+			@Value("${ledger.traffic-log.sample-rate.request:1.0}") double requestRate,
+			@Value("${ledger.traffic-log.sample-rate.batch:1.0}") double batchRate,
+			@Value("${ledger.traffic-log.sample-rate.decline:1.0}") double declineRate,
+			@Value("${ledger.traffic-log.sample-rate.replay:1.0}") double replayRate) {
+		Map<Category, Double> sampleRates = trafficLogger.isInfoEnabled()
+				? Map.of(Category.REQUEST, requestRate, Category.BATCH, batchRate, Category.DECLINE, declineRate,
+						Category.REPLAY, replayRate)
+				: Map.of(Category.REQUEST, 0.0, Category.BATCH, 0.0, Category.DECLINE, 0.0, Category.REPLAY, 0.0);
+		this.trafficLog = new TrafficLog(capacity, sampleRates);
+	}
+
+	@PostConstruct
+	public void start() {
+		TrafficLog.install(trafficLog);
+		writer = new Thread(this::writeLoop, "ledger-traffic-log");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		running = false;
+		LockSupport.unpark(writer);
+		writer.join(1000);
+		if (!writer.isAlive()) {
+			// Entries recorded until the writer stopped
+			trafficLog.drain(trafficLogger::info, Integer.MAX_VALUE);
+		}
+	}
+
+	private void writeLoop() {
+		while (running) {
+			try {
+				if (trafficLog.drain(trafficLogger::info, DRAIN_BATCH) == 0) {
+					LockSupport.parkNanos(IDLE_NANOS);
+				}
+			} catch (RuntimeException ex) {
+				log.error("Failed to write the traffic log, skipping the entry", ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package dev.codescreen.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import dev.codescreen.Service.BalanceCache;
+import dev.codescreen.Service.EventJournal;
+import dev.codescreen.Service.IdempotencyCache;
+import dev.codescreen.Service.InMemoryBalanceEngine;
+import dev.codescreen.Service.LedgerFollower;
+import dev.codescreen.Service.LedgerShardExecutor;
+import dev.codescreen.logging.TrafficLog;
+import dev.codescreen.model.response.ResponseCode;
+
+/**
+ * Latency and outcome metrics of the ledger endpoints, exposed in the Prometheus text format
+ * on /metrics. Two latencies are kept per endpoint: the whole request as seen by the servlet
+ * filter, and the time spent in the BankLedgerService transaction, so the difference is the
+ * HTTP, JSON and queueing overhead. Queue depths of the optional ledger components are read
+ * at scrape time.
+ *
+ * Every record method is allocation free. Percentiles cover everything recorded since
+ * startup.
+ */
+@Component
+public class LedgerMetrics {
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+	private static final String[] OUTCOMES = { "APPROVED", "DECLINED", "ERROR" };
+	private static final int ERROR = 2;
+	private static final String[] STATUS_CLASSES = { "1xx", "2xx", "3xx", "4xx", "5xx" };
+	private static final String[] REJECTIONS = { "RATE_LIMITED", "OVERLOADED" };
+
+	public enum Endpoint {
+		LOAD("/load", false), AUTHORIZATION("/authorization", false), LOAD_BATCH("/load/batch", false),
+		AUTHORIZATION_BATCH("/authorization/batch", false), BALANCE("/balance", true), EVENTS("/events", true);
+
+		private static final Endpoint[] ALL = values();
+
+		private final String path;
+		// The userId follows the path, as in /balance/{userId}
+		private final boolean userPath;
+
+		Endpoint(String path, boolean userPath) {
+			this.path = path;
+			this.userPath = userPath;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @return the endpoint served at the path, or null for any other path
+		 */
+		public static Endpoint ofPath(String path) {
+			for (Endpoint endpoint : ALL) {
+				if (endpoint.userPath ? path.startsWith(endpoint.path) && path.length() > endpoint.path.length()
+						&& path.charAt(endpoint.path.length()) == '/' : endpoint.path.equals(path)) {
+					return endpoint;
+				}
+			}
+			return null;
+		}
+	}
+
+	@Autowired(required = false)
+	private IdempotencyCache idempotencyCache;
+	@Autowired(required = false)
+	private BalanceCache balanceCache;
+	@Autowired(required = false)
+	private EventJournal eventJournal;
+	@Autowired(required = false)
+	private LedgerShardExecutor shardExecutor;
+	@Autowired(required = false)
+	private InMemoryBalanceEngine balanceEngine;
+	@Autowired(required = false)
+	private LedgerFollower ledgerFollower;
+
+	private final LatencyHistogram[] requestLatency = histograms();
+	private final LatencyHistogram[] transactionLatency = histograms();
+	private final AtomicLongArray outcomes = new AtomicLongArray(Endpoint.ALL.length * OUTCOMES.length);
+	private final AtomicLongArray statuses = new AtomicLongArray(Endpoint.ALL.length * STATUS_CLASSES.length);
+	private final AtomicLongArray rejections = new AtomicLongArray(Endpoint.ALL.length * REJECTIONS.length);
+
+	/**
+	 * Record a completed HTTP request
+	 *
+	 * @param endpoint: Endpoint that served the request
+	 * @param nanos:    Time from the request entering the filter chain to the response being written
+	 * @param status:   HTTP status of the response
+	 */
+	public void recordRequest(Endpoint endpoint, long nanos, int status) {
+		requestLatency[endpoint.ordinal()].record(nanos);
+		int statusClass = Math.min(Math.max(status / 100, 1), 5) - 1;
+		statuses.incrementAndGet(endpoint.ordinal() * STATUS_CLASSES.length + statusClass);
+	}
+
+	/**
+	 * Record the time one call into BankLedgerService took, including its commit
+	 */
+	public void recordTransaction(Endpoint endpoint, long nanos) {
+		transactionLatency[endpoint.ordinal()].record(nanos);
+	}
+
+	public void recordOutcome(Endpoint endpoint, ResponseCode responseCode) {
+		outcomes.incrementAndGet(endpoint.ordinal() * OUTCOMES.length + responseCode.ordinal());
+	}
+
+	public void recordError(Endpoint endpoint) {
+		outcomes.incrementAndGet(endpoint.ordinal() * OUTCOMES.length + ERROR);
+	}
+
+	/**
+	 * Record a request turned away before reaching the ledger
+	 *
+	 * @param endpoint:    Endpoint that received the request
+	 * @param rateLimited: true when the account was over its rate limit, false when the ledger was overloaded
+	 */
+	public void recordRejection(Endpoint endpoint, boolean rateLimited) {
+		rejections.incrementAndGet(endpoint.ordinal() * REJECTIONS.length + (rateLimited ? 0 : 1));
+	}
+
+	public LatencyHistogram getRequestLatency(Endpoint endpoint) {
+		return requestLatency[endpoint.ordinal()];
+	}
+
+	public LatencyHistogram getTransactionLatency(Endpoint endpoint) {
+		return transactionLatency[endpoint.ordinal()];
+	}
+
+	public long getOutcomeCount(Endpoint endpoint, String outcome) {
+		for (int i = 0; i < OUTCOMES.length; i++) {
+			if (OUTCOMES[i].equals(outcome)) {
+				return outcomes.get(endpoint.ordinal() * OUTCOMES.length + i);
+			}
+		}
+		throw new IllegalArgumentException("Unknown outcome " + outcome);
+	}
+
+	/**
+	 * @return all metrics in the Prometheus text exposition format, version 0.0.4
+	 */
+	public String scrape() {
+		StringBuilder out = new StringBuilder(8192);
+		writeSummary(out, "ledger_request_seconds", "Latency of ledger HTTP requests", requestLatency);
+		writeSummary(out, "ledger_transaction_seconds",
+				"Time spent in the BankLedgerService transaction of a request, including the commit",
+				transactionLatency);
+
+		out.append("# HELP ledger_responses_total Ledger responses by response code\n");
+		out.append("# TYPE ledger_responses_total counter\n");
+		for (Endpoint endpoint : Endpoint.ALL) {
+			for (int i = 0; i < OUTCOMES.length; i++) {
+				out.append("ledger_responses_total{endpoint=\"").append(endpoint.path).append("\",code=\"")
+						.append(OUTCOMES[i]).append("\"} ")
+						.append(outcomes.get(endpoint.ordinal() * OUTCOMES.length + i)).append('\n');
+			}
+		}
+		out.append("# HELP ledger_http_responses_total Ledger HTTP responses by status class\n");
+		out.append("# TYPE ledger_http_responses_total counter\n");
+		for (Endpoint endpoint : Endpoint.ALL) {
+			for (int i = 0; i < STATUS_CLASSES.length; i++) {
+				out.append("ledger_http_responses_total{endpoint=\"").append(endpoint.path).append("\",status=\"")
+						.append(STATUS_CLASSES[i]).append("\"} ")
+						.append(statuses.get(endpoint.ordinal() * STATUS_CLASSES.length + i)).append('\n');
+			}
+		}
+
+		out.append("# HELP ledger_rejections_total Requests rejected before reaching the ledger by reason\n");
+		out.append("# TYPE ledger_rejections_total counter\n");
+		for (Endpoint endpoint : Endpoint.ALL) {
+			for (int i = 0; i < REJECTIONS.length; i++) {
+				out.append("ledger_rejections_total{endpoint=\"").append(endpoint.path).append("\",reason=\"")
+						.append(REJECTIONS[i]).append("\"} ")
+						.append(rejections.get(endpoint.ordinal() * REJECTIONS.length + i)).append('\n');
+			}
+		}
+
+		if (idempotencyCache != null) {
+			writeGauge(out, "ledger_idempotency_in_flight", "Messages claimed by a request still being processed",
+					idempotencyCache.getInFlightCount());
+		}
+		if (balanceCache != null) {
+			writeCounter(out, "ledger_balance_cache_hits_total", "Balance reads answered by the balance cache",
+					balanceCache.getHitCount());
+			writeCounter(out, "ledger_balance_cache_misses_total", "Balance reads that went to USER_BALANCE",
+					balanceCache.getMissCount());
+		}
+		if (eventJournal != null) {
+			writeGauge(out, "ledger_journal_queue_depth", "Events waiting for the next journal batch",
+					eventJournal.getQueueDepth());
+			writeCounter(out, "ledger_journal_batches_written_total", "Journal batches committed",
+					eventJournal.getBatchesWritten());
+			writeCounter(out, "ledger_journal_events_written_total", "Journal events committed",
+					eventJournal.getEventsWritten());
+			writeCounter(out, "ledger_journal_events_failed_total", "Journal events that could not be written",
+					eventJournal.getEventsFailed());
+		}
+		if (shardExecutor != null) {
+			out.append("# HELP ledger_shard_queue_depth Requests waiting for their shard thread\n");
+			out.append("# TYPE ledger_shard_queue_depth gauge\n");
+			for (int shard = 0; shard < shardExecutor.getShardCount(); shard++) {
+				out.append("ledger_shard_queue_depth{shard=\"").append(shard).append("\"} ")
+						.append(shardExecutor.getQueueDepth(shard)).append('\n');
+			}
+			writeCounter(out, "ledger_shard_rejected_total", "Requests rejected because their shard queue was full",
+					shardExecutor.getRejectedCount());
+		}
+		if (balanceEngine != null) {
+			writeGauge(out, "ledger_balance_engine_dirty_accounts", "Accounts waiting to be flushed to USER_BALANCE",
+					balanceEngine.getDirtyCount());
+		}
+		if (ledgerFollower != null) {
+			writeGauge(out, "ledger_replica_lag_ms",
+					"Milliseconds since the follower last reached the head of the primary's log, -1 before it first did",
+					ledgerFollower.getLagMillis());
+			writeCounter(out, "ledger_replica_records_applied_total", "Ledger log records applied by the follower",
+					ledgerFollower.getAppliedRecords());
+			writeCounter(out, "ledger_replica_lagging_reads_total",
+					"Reads refused because the follower was too far behind", ledgerFollower.getLaggingReads());
+		}
+		writeCounter(out, "ledger_traffic_log_dropped_total", "Traffic log entries dropped because the ring was full",
+				TrafficLog.current().getDroppedCount());
+		return out.toString();
+	}
+
+	private void writeSummary(StringBuilder out, String name, String help, LatencyHistogram[] histograms) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" summary\n");
+		for (Endpoint endpoint : Endpoint.ALL) {
+			LatencyHistogram histogram = histograms[endpoint.ordinal()];
+			for (double quantile : QUANTILES) {
+				out.append(name).append("{endpoint=\"").append(endpoint.path).append("\",quantile=\"").append(quantile)
+						.append("\"} ").append(seconds(histogram.valueAtPercentile(quantile * 100))).append('\n');
+			}
+			out.append(name).append("_sum{endpoint=\"").append(endpoint.path).append("\"} ")
+					.append(seconds(histogram.getSum())).append('\n');
+			out.append(name).append("_count{endpoint=\"").append(endpoint.path).append("\"} ")
+					.append(histogram.getCount()).append('\n');
+		}
+		out.append("# HELP ").append(name).append("_max Highest recorded value of ").append(name).append('\n');
+		out.append("# TYPE ").append(name).append("_max gauge\n");
+		for (Endpoint endpoint : Endpoint.ALL) {
+			out.append(name).append("_max{endpoint=\"").append(endpoint.path).append("\"} ")
+					.append(seconds(histograms[endpoint.ordinal()].getMax())).append('\n');
+		}
+	}
+
+	private void writeGauge(StringBuilder out, String name, String help, long value) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" gauge\n");
+		out.append(name).append(' ').append(value).append('\n');
+	}
+
+	private void writeCounter(StringBuilder out, String name, String help, long value) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" counter\n");
+		out.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static double seconds(long nanos) {
+		return nanos / 1e9;
+	}
+
+	private static LatencyHistogram[] histograms() {
+		LatencyHistogram[] histograms = new LatencyHistogram[Endpoint.ALL.length];
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new LatencyHistogram();
+		}
+		return histograms;
+	}
+}
@@ -0,0 +1,39 @@
+package dev.codescreen.metrics;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import dev.codescreen.metrics.LedgerMetrics.Endpoint;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Times every request to a ledger endpoint from the moment it enters the filter chain until
+ * the response has been written, including JSON binding and validation.
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+	@Autowired
+	private LedgerMetrics metrics;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		Endpoint endpoint = Endpoint.ofPath(request.getRequestURI());
+		if (endpoint == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			metrics.recordRequest(endpoint, System.nanoTime() - start, response.getStatus());
+		}
+	}
+}
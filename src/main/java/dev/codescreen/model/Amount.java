@@ -1,7 +1,7 @@
 package dev.codescreen.model;
 
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Pattern;
+import dev.codescreen.validation.HasText;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,11 +13,11 @@ import lombok.NoArgsConstructor;
 @Builder
 public class Amount {
     @NotNull(message="Amount cannot be empty")
-    @Pattern(regexp = ".*\\S.*", message = "Amount must not contain whitespace and should have at least one character")
+    @HasText(message = "Amount must not contain whitespace and should have at least one character")
 	private String amount;
 	
 	@NotNull(message="Currency cannot be empty")
-	@Pattern(regexp = ".*\\S.*", message = "Currency must not contain whitespace and should have at least one character")
+	@HasText(message = "Currency must not contain whitespace and should have at least one character")
 	private String currency;
 	
 	@NotNull(message="Transation type cannot be empty")
@@ -0,0 +1,23 @@
+package dev.codescreen.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of an authorization. A decline is a normal result, not a failure, and carries the
+ * balance that was too low.
+ */
+@Getter
+@AllArgsConstructor
+public class AuthorizationResult {
+	private final long balance;
+	private final boolean approved;
+
+	public static AuthorizationResult approved(long balance) {
+		return new AuthorizationResult(balance, true);
+	}
+
+	public static AuthorizationResult declined(long balance) {
+		return new AuthorizationResult(balance, false);
+	}
+}
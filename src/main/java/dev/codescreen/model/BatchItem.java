@@ -0,0 +1,17 @@
+package dev.codescreen.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One load or authorization of a batch, with the amount already converted to USD minor units.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItem {
+	private String userId;
+	private String messageId;
+	private long amount;
+}
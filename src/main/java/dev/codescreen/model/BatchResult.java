@@ -0,0 +1,32 @@
+package dev.codescreen.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one item of a batch. Failed items carry an error message and no balance; declined
+ * authorizations are not failures and carry the balance that was too low.
+ */
+@Getter
+@AllArgsConstructor
+public class BatchResult {
+	private final long balance;
+	private final boolean approved;
+	private final String error;
+
+	public static BatchResult approved(long balance) {
+		return new BatchResult(balance, true, null);
+	}
+
+	public static BatchResult declined(long balance) {
+		return new BatchResult(balance, false, null);
+	}
+
+	public static BatchResult failed(String error) {
+		return new BatchResult(0, false, error);
+	}
+
+	public boolean isFailed() {
+		return error != null;
+	}
+}
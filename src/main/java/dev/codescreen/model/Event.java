@@ -3,10 +3,12 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -15,7 +17,12 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Entity
-@Table(name = "BANK_EVENTS")
+@Table(name = "BANK_EVENTS", indexes = {
+		@Index(name = "UK_BANK_EVENTS_MESSAGE_ID", columnList = "MESSAGE_ID", unique = true),
+		// Keyset pagination of the history of an account, newest first
+		@Index(name = "IDX_BANK_EVENTS_USER_TIME", columnList = "USER_ID, AUDIT_TIMESTAMP, EVENT_ID"),
+		// Reading the events after the balance snapshot watermark
+		@Index(name = "IDX_BANK_EVENTS_TIME", columnList = "AUDIT_TIMESTAMP, EVENT_ID") })
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -30,15 +37,21 @@ public class Event {
 	@Column(name = "USER_ID")
 	private String userId;
 	
-	@Column(name = "AMOUNT")
-	private double amount;
+	@Column(name = "MESSAGE_ID")
+	private String messageId;
+	
+	// Balance after the transaction, in minor units
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name = "AMOUNT", precision = 19, scale = 2)
+	private long amount;
 	
 	@Enumerated(EnumType.STRING)
 	@Column(name = "TRANSACTION_TYPE")
 	private DebitCredit transactionType;
 	
-	@Column(name = "TRANSACTION_AMOUNT")
-	private double transactionAmount;
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name = "TRANSACTION_AMOUNT", precision = 19, scale = 2)
+	private long transactionAmount;
 	
 	@Column(name = "IS_SUCCESS_INDICATOR")
 	private boolean isSuccessIndicator;
@@ -0,0 +1,25 @@
+package dev.codescreen.model;
+
+import java.math.BigDecimal;
+
+import dev.codescreen.utils.Money;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores amounts held in minor units as decimals in major units, so the columns keep their
+ * meaning for anything reading the database directly.
+ */
+@Converter
+public class MinorUnitsConverter implements AttributeConverter<Long, BigDecimal> {
+
+	@Override
+	public BigDecimal convertToDatabaseColumn(Long minorUnits) {
+		return minorUnits == null ? null : Money.toDecimal(minorUnits);
+	}
+
+	@Override
+	public Long convertToEntityAttribute(BigDecimal amount) {
+		return amount == null ? null : Money.fromDecimal(amount);
+	}
+}
@@ -0,0 +1,28 @@
+package dev.codescreen.model.entity;
+
+import dev.codescreen.model.MinorUnitsConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Balance of an account folded from BANK_EVENTS up to the snapshot watermark, written by LedgerReplayService
+@Data
+@Entity
+@Table(name = "BALANCE_SNAPSHOT")
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshot {
+	@Id
+	@Column(name = "USER_ID")
+	private String userId;
+
+	// Balance in minor units
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name = "BALANCE", precision = 19, scale = 2)
+	private long balance;
+}
@@ -0,0 +1,78 @@
+package dev.codescreen.model.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import dev.codescreen.model.MinorUnitsConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Totals of one account for one day of BANK_EVENTS up to the statement watermark, written by DailyStatementService
+@Data
+@Entity
+@Table(name = "DAILY_STATEMENT", indexes = {
+		// The primary key starts with STATEMENT_DATE, statements are read per account
+		@Index(name = "IDX_DAILY_STATEMENT_USER_DATE", columnList = "USER_ID, STATEMENT_DATE") })
+@IdClass(DailyStatement.Key.class)
+@NoArgsConstructor
+public class DailyStatement {
+	@Id
+	@Column(name = "USER_ID")
+	private String userId;
+
+	// Day of the AUDIT_TIMESTAMP of the events
+	@Id
+	@Column(name = "STATEMENT_DATE")
+	private LocalDate statementDate;
+
+	// Amounts in minor units
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name = "CREDITS", precision = 19, scale = 2)
+	private long credits;
+
+	@Column(name = "CREDIT_COUNT")
+	private long creditCount;
+
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name = "DEBITS", precision = 19, scale = 2)
+	private long debits;
+
+	@Column(name = "DEBIT_COUNT")
+	private long debitCount;
+
+	// Authorizations declined for insufficient funds and the amount they asked for
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name = "DECLINED", precision = 19, scale = 2)
+	private long declined;
+
+	@Column(name = "DECLINE_COUNT")
+	private long declineCount;
+
+	// Balance recorded on the last event of the day
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name = "CLOSING_BALANCE", precision = 19, scale = 2)
+	private long closingBalance;
+
+	public DailyStatement(String userId, LocalDate statementDate) {
+		this.userId = userId;
+		this.statementDate = statementDate;
+	}
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Key implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private String userId;
+		private LocalDate statementDate;
+	}
+}
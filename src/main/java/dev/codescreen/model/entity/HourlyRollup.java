@@ -0,0 +1,63 @@
+package dev.codescreen.model.entity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import dev.codescreen.model.MinorUnitsConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Totals of the events of one account in one clock hour, written by LedgerRollups; USER_ID '' holds all accounts
+@Data
+@Entity
+@Table(name = "HOURLY_ROLLUP", indexes = {
+		// The primary key starts with ROLLUP_HOUR, rollups are read per account
+		@Index(name = "IDX_HOURLY_ROLLUP_USER_HOUR", columnList = "USER_ID, ROLLUP_HOUR") })
+@IdClass(HourlyRollup.Key.class)
+@NoArgsConstructor
+public class HourlyRollup {
+	@Id
+	@Column(name = "USER_ID")
+	private String userId;
+
+	// Start of the hour of the AUDIT_TIMESTAMP of the events
+	@Id
+	@Column(name = "ROLLUP_HOUR")
+	private LocalDateTime rollupHour;
+
+	@Column(name = "CREDIT_COUNT")
+	private long creditCount;
+
+	// Amounts in minor units
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name = "CREDITS", precision = 19, scale = 2)
+	private long credits;
+
+	@Column(name = "DEBIT_COUNT")
+	private long debitCount;
+
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name = "DEBITS", precision = 19, scale = 2)
+	private long debits;
+
+	@Column(name = "DECLINE_COUNT")
+	private long declineCount;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Key implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private String userId;
+		private LocalDateTime rollupHour;
+	}
+}
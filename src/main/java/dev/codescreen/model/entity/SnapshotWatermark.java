@@ -0,0 +1,33 @@
+package dev.codescreen.model.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Key of the last event folded into BALANCE_SNAPSHOT, a single row with ID 1
+@Data
+@Entity
+@Table(name = "SNAPSHOT_WATERMARK")
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotWatermark {
+	@Id
+	@Column(name = "ID")
+	private int id;
+
+	@Column(name = "AUDIT_TIMESTAMP")
+	private LocalDateTime auditTimestamp;
+
+	@Column(name = "EVENT_ID")
+	private UUID eventId;
+
+	@Column(name = "SNAPSHOT_TIMESTAMP")
+	private LocalDateTime snapshotTimestamp;
+}
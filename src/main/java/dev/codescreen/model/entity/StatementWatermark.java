@@ -0,0 +1,33 @@
+package dev.codescreen.model.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Key of the last event added to DAILY_STATEMENT, a single row with ID 1
+@Data
+@Entity
+@Table(name = "STATEMENT_WATERMARK")
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementWatermark {
+	@Id
+	@Column(name = "ID")
+	private int id;
+
+	@Column(name = "AUDIT_TIMESTAMP")
+	private LocalDateTime auditTimestamp;
+
+	@Column(name = "EVENT_ID")
+	private UUID eventId;
+
+	@Column(name = "RUN_TIMESTAMP")
+	private LocalDateTime runTimestamp;
+}
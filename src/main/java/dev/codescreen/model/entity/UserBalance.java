@@ -1,9 +1,12 @@
 package dev.codescreen.model.entity;
 
+import dev.codescreen.model.MinorUnitsConverter;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,6 +22,18 @@ public class UserBalance {
 	@Column(name="USER_ID")
 	private String userId;
 	
-	@Column(name="BALANCE")
-	private double balance;
+	// Balance in minor units
+	@Convert(converter = MinorUnitsConverter.class)
+	@Column(name="BALANCE", precision = 19, scale = 2)
+	private long balance;
+
+	// Incremented by every write, null until the row is inserted
+	@Version
+	@Column(name = "VERSION", columnDefinition = "bigint default 0 not null")
+	private Long version;
+
+	public UserBalance(String userId, long balance) {
+		this.userId = userId;
+		this.balance = balance;
+	}
 }
@@ -3,7 +3,8 @@ package dev.codescreen.model.request;
 import dev.codescreen.model.Amount;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import dev.codescreen.validation.HasText;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,11 +14,13 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor 
 public class AuthorizationRequest {
 	@NotNull(message="UserId cannot be empty")
-	@Pattern(regexp = ".*\\S.*", message = "UserId must not contain whitespace and should have at least one character")
+	@HasText(message = "UserId must not contain whitespace and should have at least one character")
+	@Size(max = 100, message = "UserId cannot be longer than 100 characters")
     private String userId;
 	
 	@NotNull(message="MessageId cannot be empty")
-	@Pattern(regexp = ".*\\S.*", message = "Message Id must not contain whitespace and should have at least one character")
+	@HasText(message = "Message Id must not contain whitespace and should have at least one character")
+	@Size(max = 100, message = "Message Id cannot be longer than 100 characters")
 	private String messageId;
 	
 	@NotNull(message="TransactionAmount is a mandatory parameter, cannot be empty.")
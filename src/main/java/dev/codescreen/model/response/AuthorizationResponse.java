@@ -1,14 +1,20 @@
 package dev.codescreen.model.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import dev.codescreen.model.Amount;
+import dev.codescreen.model.Error;
 import lombok.Builder;
 import lombok.Data;
 
 @Data
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class AuthorizationResponse {
     private String userId;
 	private String messageId;
 	private ResponseCode responseCode;
 	private Amount balance;
+	// Only set on items of a batch that could not be processed
+	private Error error;
 }
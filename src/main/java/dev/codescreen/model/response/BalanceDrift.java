@@ -0,0 +1,19 @@
+package dev.codescreen.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BalanceDrift {
+	private String userId;
+	// Absent when USER_BALANCE has no row for the account
+	private String storedBalance;
+	// Absent when BANK_EVENTS has no event for the account
+	private String replayedBalance;
+	// Balance recorded on the newest event of the account
+	private String lastRecordedBalance;
+}
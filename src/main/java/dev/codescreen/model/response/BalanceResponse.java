@@ -0,0 +1,12 @@
+package dev.codescreen.model.response;
+
+import dev.codescreen.model.Amount;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BalanceResponse {
+	private String userId;
+	private Amount balance;
+}
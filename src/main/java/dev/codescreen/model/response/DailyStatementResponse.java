@@ -0,0 +1,21 @@
+package dev.codescreen.model.response;
+
+import java.time.LocalDate;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DailyStatementResponse {
+	private String userId;
+	private LocalDate date;
+	private String credits;
+	private long creditCount;
+	private String debits;
+	private long debitCount;
+	// Amount asked for by the declined authorizations
+	private String declined;
+	private long declineCount;
+	private String closingBalance;
+}
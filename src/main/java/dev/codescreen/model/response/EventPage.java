@@ -0,0 +1,18 @@
+package dev.codescreen.model.response;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EventPage {
+	private String userId;
+	private List<EventResponse> events;
+	// Pass as cursor to read the next page, absent on the last page
+	private String nextCursor;
+}
@@ -0,0 +1,20 @@
+package dev.codescreen.model.response;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import dev.codescreen.model.Amount;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class EventResponse {
+	private UUID eventId;
+	private String messageId;
+	private LocalDateTime auditTimestamp;
+	private ResponseCode responseCode;
+	private Amount transactionAmount;
+	// Balance after the transaction
+	private Amount balance;
+}
@@ -1,13 +1,19 @@
 package dev.codescreen.model.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import dev.codescreen.model.Amount;
+import dev.codescreen.model.Error;
 import lombok.Builder;
 import lombok.Data;
 
 @Data
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class LoadResponse {
 	private String userId;
 	private String messageId;
 	private Amount balance;
+	// Only set on items of a batch that could not be processed
+	private Error error;
 }
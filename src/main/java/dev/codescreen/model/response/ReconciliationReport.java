@@ -0,0 +1,19 @@
+package dev.codescreen.model.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ReconciliationReport {
+	private LocalDateTime replayedUpTo;
+	private long accountsReplayed;
+	private long eventsReplayed;
+	private long accountsChecked;
+	private long accountsInDrift;
+	// The first drifting accounts, at most a thousand
+	private List<BalanceDrift> drifts;
+}
@@ -0,0 +1,25 @@
+package dev.codescreen.model.response;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StatsResponse {
+	// Absent for the totals of all accounts
+	private String userId;
+	// Start of the first hour counted, the window runs until now
+	private LocalDateTime from;
+	private long creditCount;
+	private String credits;
+	private long debitCount;
+	private String debits;
+	private long declineCount;
+	// Declined authorizations over all authorizations, 0 without any
+	private double declineRate;
+}
@@ -0,0 +1,51 @@
+package dev.codescreen.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates event IDs as version 7 UUIDs (RFC 9562): the first 48 bits are the Unix time in
+ * milliseconds, so IDs created later sort higher and inserts land at the right edge of the
+ * EVENT_ID index instead of all over it. The 12 bits after the version are a counter within the
+ * millisecond, making the IDs of this process strictly increasing across all threads; when the
+ * counter runs out the timestamp is borrowed from the next millisecond. The remaining 62 bits
+ * are random from ThreadLocalRandom, event IDs are not secrets so SecureRandom is not needed.
+ *
+ * Lock free, the only allocation is the UUID itself.
+ */
+public final class EventIds {
+	private static final int COUNTER_BITS = 12;
+	private static final long VERSION = 7L << COUNTER_BITS;
+	private static final long VARIANT = 0x8000000000000000L;
+	private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+	// Timestamp and counter of the last ID, (millis << COUNTER_BITS) | counter
+	private static final AtomicLong LAST = new AtomicLong();
+
+	private EventIds() {
+	}
+
+	/**
+	 * @return an ID greater than every ID returned before by this process
+	 */
+	public static UUID next() {
+		long now = System.currentTimeMillis() << COUNTER_BITS;
+		long last;
+		long next;
+		do {
+			last = LAST.get();
+			next = Math.max(now, last + 1);
+		} while (!LAST.compareAndSet(last, next));
+		long mostSignificant = (next >>> COUNTER_BITS) << 16 | VERSION | (next & ((1L << COUNTER_BITS) - 1));
+		long leastSignificant = VARIANT | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+		return new UUID(mostSignificant, leastSignificant);
+	}
+
+	/**
+	 * @return the Unix time in milliseconds encoded in a version 7 UUID
+	 */
+	public static long timestamp(UUID eventId) {
+		return eventId.getMostSignificantBits() >>> 16;
+	}
+}
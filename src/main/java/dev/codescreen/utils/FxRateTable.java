@@ -0,0 +1,147 @@
+package dev.codescreen.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import dev.codescreen.exceptions.UnsupportedCurrency;
+
+/**
+ * Immutable table of conversion rates to USD. Every three letter ISO 4217 code has a fixed slot
+ * in an array of 26^3 rates, so converting an amount is an index computed from the three
+ * characters of the code and one array read, with no hashing or string comparison. Rates are
+ * USD per unit of the currency, stored as fixed point longs with nine decimal places; a slot
+ * holding zero is a currency without a rate.
+ */
+public final class FxRateTable {
+	public static final int RATE_SCALE = 9;
+	private static final long RATE_UNIT = 1_000_000_000L;
+	private static final int LETTERS = 26;
+	private static final int SLOTS = LETTERS * LETTERS * LETTERS;
+
+	// Only USD, used until a rate file is loaded
+	public static final FxRateTable USD_ONLY = new FxRateTable(usdOnly());
+
+	private final long[] rates;
+	private final int currencies;
+
+	private FxRateTable(long[] rates) {
+		this.rates = rates;
+		int count = 0;
+		for (long rate : rates) {
+			if (rate != 0) {
+				count++;
+			}
+		}
+		this.currencies = count;
+	}
+
+	/**
+	 * Build a table from properties such as "EUR=1.0842", the USD value of one unit of the
+	 * currency. USD is always present with a rate of 1.
+	 *
+	 * @throws IllegalArgumentException when a code is not three letters A-Z or a rate is not a
+	 *                                  positive decimal
+	 */
+	public static FxRateTable of(Map<String, String> usdPerUnit) {
+		long[] rates = usdOnly();
+		for (Map.Entry<String, String> entry : usdPerUnit.entrySet()) {
+			String currency = entry.getKey().trim();
+			int slot = slot(currency);
+			if (slot < 0) {
+				throw new IllegalArgumentException("Invalid currency code " + currency);
+			}
+			BigDecimal rate;
+			try {
+				rate = new BigDecimal(entry.getValue().trim());
+			} catch (NumberFormatException ex) {
+				throw new IllegalArgumentException("Invalid rate for " + currency + ": " + entry.getValue());
+			}
+			if (rate.signum() <= 0) {
+				throw new IllegalArgumentException("Rate for " + currency + " must be positive");
+			}
+			if (!"USD".equals(currency)) {
+				rates[slot] = rate.setScale(RATE_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+			}
+		}
+		return new FxRateTable(rates);
+	}
+
+	/**
+	 * Read a table from a properties file, see {@link #of}
+	 */
+	public static FxRateTable read(Reader reader) throws IOException {
+		Properties properties = new Properties();
+		properties.load(reader);
+		Map<String, String> usdPerUnit = new HashMap<>();
+		properties.forEach((currency, rate) -> usdPerUnit.put((String) currency, (String) rate));
+		return of(usdPerUnit);
+	}
+
+	/**
+	 * Convert an amount to USD, rounding half even to the cent
+	 *
+	 * @param amount:   Amount in minor units of the currency, two decimal places
+	 * @param currency: ISO 4217 code in upper case
+	 * @return the amount in USD minor units
+	 * @throws UnsupportedCurrency when the table has no rate for the currency
+	 */
+	public long toUSD(long amount, String currency) {
+		int slot = currency == null ? -1 : slot(currency);
+		long rate = slot < 0 ? 0 : rates[slot];
+		if (rate == 0) {
+			throw new UnsupportedCurrency(currency);
+		}
+		if (rate == RATE_UNIT) {
+			return amount;
+		}
+		long high = Math.multiplyHigh(amount, rate);
+		long low = amount * rate;
+		// The product fits in a long when the high half is only the sign extension of the low half
+		if (high == (low >> 63)) {
+			long quotient = low / RATE_UNIT;
+			long remainder = low % RATE_UNIT;
+			long twice = Math.abs(remainder) * 2;
+			if (twice > RATE_UNIT || (twice == RATE_UNIT && (quotient & 1) != 0)) {
+				quotient += Long.signum(low);
+			}
+			return quotient;
+		}
+		return BigDecimal.valueOf(amount).multiply(BigDecimal.valueOf(rate, RATE_SCALE))
+				.setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+	}
+
+	public boolean supports(String currency) {
+		int slot = currency == null ? -1 : slot(currency);
+		return slot >= 0 && rates[slot] != 0;
+	}
+
+	// Number of currencies with a rate, USD included
+	public int size() {
+		return currencies;
+	}
+
+	// Slot of a three letter upper case code, or -1 for anything else
+	private static int slot(String currency) {
+		if (currency.length() != 3) {
+			return -1;
+		}
+		int first = currency.charAt(0) - 'A';
+		int second = currency.charAt(1) - 'A';
+		int third = currency.charAt(2) - 'A';
+		if ((first | second | third) < 0 || first >= LETTERS || second >= LETTERS || third >= LETTERS) {
+			return -1;
+		}
+		return (first * LETTERS + second) * LETTERS + third;
+	}
+
+	private static long[] usdOnly() {
+		long[] rates = new long[SLOTS];
+		rates[slot("USD")] = RATE_UNIT;
+		return rates;
+	}
+}
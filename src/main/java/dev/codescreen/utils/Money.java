@@ -0,0 +1,139 @@
+package dev.codescreen.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money is carried through the ledger as a primitive long of minor units (cents), so all
+ * arithmetic is exact and nothing is boxed. This class converts between that representation
+ * and the decimal strings used by the API without going through double or
+ * java.util.Formatter.
+ */
+public final class Money {
+	public static final int SCALE = 2;
+	private static final long MAX_BEFORE_DIGIT = Long.MAX_VALUE / 10;
+	private static final int MAX_FORMATTED_LENGTH = 32;
+	private static final ThreadLocal<char[]> FORMAT_BUFFER = ThreadLocal
+			.withInitial(() -> new char[MAX_FORMATTED_LENGTH]);
+
+	private Money() {
+	}
+
+	/**
+	 * Parse a decimal amount such as "1", "3.2" or "-10.25" into minor units. Surrounding
+	 * whitespace is ignored. Digits beyond the second decimal place are only accepted if they
+	 * are zero, since the amount could not be represented exactly otherwise.
+	 *
+	 * @param amount: Amount in major units
+	 * @return the amount in minor units
+	 * @throws NumberFormatException when the amount is not a valid decimal or does not fit
+	 */
+	public static long parse(CharSequence amount) {
+		if (amount == null) {
+			throw new NumberFormatException("Amount is null");
+		}
+		int end = amount.length();
+		int i = 0;
+		while (i < end && Character.isWhitespace(amount.charAt(i))) {
+			i++;
+		}
+		while (end > i && Character.isWhitespace(amount.charAt(end - 1))) {
+			end--;
+		}
+		boolean negative = false;
+		if (i < end && (amount.charAt(i) == '-' || amount.charAt(i) == '+')) {
+			negative = amount.charAt(i) == '-';
+			i++;
+		}
+		long units = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		for (; i < end; i++) {
+			char c = amount.charAt(i);
+			if (c == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+				continue;
+			}
+			if (c < '0' || c > '9') {
+				throw invalid(amount);
+			}
+			digits++;
+			if (fractionDigits >= 0 && ++fractionDigits > SCALE) {
+				if (c != '0') {
+					throw new NumberFormatException("Amount has more than " + SCALE + " decimal places: " + amount);
+				}
+				continue;
+			}
+			if (units > MAX_BEFORE_DIGIT) {
+				throw invalid(amount);
+			}
+			units = units * 10 + (c - '0');
+			if (units < 0) {
+				throw invalid(amount);
+			}
+		}
+		if (digits == 0) {
+			throw invalid(amount);
+		}
+		for (int scale = Math.max(fractionDigits, 0); scale < SCALE; scale++) {
+			if (units > MAX_BEFORE_DIGIT) {
+				throw invalid(amount);
+			}
+			units *= 10;
+		}
+		return negative ? -units : units;
+	}
+
+	/**
+	 * Format minor units with two decimals and grouping separators, for example 123456 as
+	 * "1,234.56", matching the previous String.format("%,.2f") output for the en locale
+	 *
+	 * @param minorUnits: Amount in minor units
+	 * @return the formatted amount
+	 */
+	public static String format(long minorUnits) {
+		if (minorUnits == Long.MIN_VALUE) {
+			return String.format("%,.2f", BigDecimal.valueOf(minorUnits, SCALE));
+		}
+		char[] buffer = FORMAT_BUFFER.get();
+		int position = buffer.length;
+		long remaining = Math.abs(minorUnits);
+		for (int i = 0; i < SCALE; i++) {
+			buffer[--position] = (char) ('0' + remaining % 10);
+			remaining /= 10;
+		}
+		buffer[--position] = '.';
+		int groupDigits = 0;
+		do {
+			if (groupDigits == 3) {
+				buffer[--position] = ',';
+				groupDigits = 0;
+			}
+			buffer[--position] = (char) ('0' + remaining % 10);
+			remaining /= 10;
+			groupDigits++;
+		} while (remaining > 0);
+		if (minorUnits < 0) {
+			buffer[--position] = '-';
+		}
+		return new String(buffer, position, buffer.length - position);
+	}
+
+	/**
+	 * @return the minor units as a decimal in major units, for storage and display
+	 */
+	public static BigDecimal toDecimal(long minorUnits) {
+		return BigDecimal.valueOf(minorUnits, SCALE);
+	}
+
+	/**
+	 * @return the decimal in minor units, rounding half even beyond two decimal places
+	 */
+	public static long fromDecimal(BigDecimal amount) {
+		return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+	}
+
+	private static NumberFormatException invalid(CharSequence amount) {
+		return new NumberFormatException("Invalid amount: " + amount);
+	}
+}
@@ -1,16 +1,29 @@
 package dev.codescreen.utils;
 
 public class Utils {
+	// Swapped as a whole by FxRateWatcher, readers never see a partially loaded table
+	private static volatile FxRateTable fxRates = FxRateTable.USD_ONLY;
 	
-	public static double convertAmountToUSD(double amount, String sourceCurrency) {
-		return amount;
+	/**
+	 * @throws dev.codescreen.exceptions.UnsupportedCurrency when there is no rate for the currency
+	 */
+	public static long convertAmountToUSD(long amount, String sourceCurrency) {
+		return fxRates.toUSD(amount, sourceCurrency);
 	}
 	
-	public static double parseAmount(String amountInString) {
-		return Double.parseDouble(amountInString);
+	public static FxRateTable getFxRates() {
+		return fxRates;
 	}
-	public static String formatAmount(double amount) {
-		return String.format("%,.2f", amount);
+	
+	public static void setFxRates(FxRateTable rates) {
+		fxRates = rates;
+	}
+	
+	public static long parseAmount(String amountInString) {
+		return Money.parse(amountInString);
+	}
+	public static String formatAmount(long amount) {
+		return Money.format(amount);
 	}
 	
 }
@@ -0,0 +1,27 @@
+package dev.codescreen.validation;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+/**
+ * The string must contain at least one non-whitespace character, checked with a plain scan
+ * instead of the ".*\S.*" regex it replaces. Null is valid, combine with NotNull.
+ */
+@Documented
+@Constraint(validatedBy = HasTextValidator.class)
+@Target(FIELD)
+@Retention(RUNTIME)
+public @interface HasText {
+	String message() default "must contain at least one non-whitespace character";
+
+	Class<?>[] groups() default {};
+
+	Class<? extends Payload>[] payload() default {};
+}
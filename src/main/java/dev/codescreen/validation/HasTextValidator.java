@@ -0,0 +1,28 @@
+package dev.codescreen.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class HasTextValidator implements ConstraintValidator<HasText, CharSequence> {
+
+	@Override
+	public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+		return value == null || hasText(value);
+	}
+
+	/**
+	 * @return true when the value has a character that is not whitespace and no line terminator,
+	 *         the values matched by the regex ".*\S.*"
+	 */
+	public static boolean hasText(CharSequence value) {
+		boolean text = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				return false;
+			}
+			text |= c != ' ' && c != '\t' && c != 0x0B && c != '\f';
+		}
+		return text;
+	}
+}
@@ -0,0 +1,11 @@
+-- Brings databases created by earlier versions of the ledger up to the entities before Hibernate sees them.
+-- Every statement is a no-op once applied and on tables that do not exist yet.
+-- Amounts were stored as DOUBLE PRECISION in major units, they are rounded to cents
+alter table if exists bank_events alter column amount set data type numeric(19,2);
+alter table if exists bank_events alter column transaction_amount set data type numeric(19,2);
+alter table if exists user_balance alter column balance set data type numeric(19,2);
+-- Retried requests are answered from the event recorded for their messageId
+alter table if exists bank_events add column if not exists message_id varchar(255);
+alter table if exists bank_events add constraint if not exists UK_BANK_EVENTS_MESSAGE_ID unique (message_id);
+-- USER_BALANCE is versioned for the optimistic locking strategy
+alter table if exists user_balance add column if not exists version bigint default 0 not null;
@@ -0,0 +1,25 @@
+-- Ledger schema applied by the faststart profile before Hibernate validates the entities against it, after
+-- db/migration.sql has updated the tables of an existing database. The same DDL Hibernate generates with
+-- ddl-auto=update; keep in sync with the entities
+create table if not exists balance_snapshot (balance numeric(19,2), user_id varchar(255) not null, primary key (user_id));
+create table if not exists bank_events (amount numeric(19,2), is_success_indicator boolean, transaction_amount numeric(19,2),
+	audit_timestamp timestamp(6), event_id uuid not null, message_id varchar(255),
+	transaction_type varchar(255) check (transaction_type in ('DEBIT','CREDIT')), user_id varchar(255),
+	primary key (event_id), constraint UK_BANK_EVENTS_MESSAGE_ID unique (message_id));
+create table if not exists daily_statement (closing_balance numeric(19,2), credit_count bigint not null,
+	credits numeric(19,2), debit_count bigint not null, debits numeric(19,2), decline_count bigint not null,
+	declined numeric(19,2), statement_date date not null, user_id varchar(255) not null,
+	primary key (statement_date, user_id));
+create table if not exists hourly_rollup (credit_count bigint not null, credits numeric(19,2),
+	debit_count bigint not null, debits numeric(19,2), decline_count bigint not null, rollup_hour timestamp(6) not null,
+	user_id varchar(255) not null, primary key (rollup_hour, user_id));
+create table if not exists snapshot_watermark (id integer not null, audit_timestamp timestamp(6),
+	snapshot_timestamp timestamp(6), event_id uuid, primary key (id));
+create table if not exists statement_watermark (id integer not null, audit_timestamp timestamp(6),
+	run_timestamp timestamp(6), event_id uuid, primary key (id));
+create table if not exists user_balance (balance numeric(19,2), version bigint default 0 not null,
+	user_id varchar(255) not null, primary key (user_id));
+create index if not exists IDX_BANK_EVENTS_USER_TIME on bank_events (user_id, audit_timestamp, event_id);
+create index if not exists IDX_BANK_EVENTS_TIME on bank_events (audit_timestamp, event_id);
+create index if not exists IDX_DAILY_STATEMENT_USER_DATE on daily_statement (user_id, statement_date);
+create index if not exists IDX_HOURLY_ROLLUP_USER_HOUR on hourly_rollup (user_id, rollup_hour);
@@ -0,0 +1,76 @@
+package dev.codescreen.codec.test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.codescreen.codec.LedgerJsonCodec;
+import dev.codescreen.model.Amount;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.request.AuthorizationRequest;
+import dev.codescreen.model.request.LoadRequest;
+import dev.codescreen.model.response.AuthorizationResponse;
+import dev.codescreen.model.response.LoadResponse;
+import dev.codescreen.model.response.ResponseCode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerJsonCodecTest {
+
+    // Configured as by Spring Boot, which does not fail on unknown properties
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    void read_MatchesJackson() throws Exception {
+        String[] bodies = {
+                "{\"userId\":\"user1\",\"messageId\":\"msg1\",\"transactionAmount\":{\"amount\":\"100.23\",\"currency\":\"USD\",\"debitOrCredit\":\"DEBIT\"}}",
+                " { \"messageId\" : \"m\\\"s\\u0067\\n\" , \"extra\" : [1, {\"a\": null}, \"x\"], \"userId\" : \"üser\" ,"
+                        + " \"transactionAmount\" : { \"amount\" : 12.5, \"currency\" : null, \"debitOrCredit\" : \"DEBIT\" } } ",
+                "{\"userId\":\"   \",\"transactionAmount\":null}",
+                "{}" };
+        for (String body : bodies) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            assertEquals(objectMapper.readValue(bytes, AuthorizationRequest.class),
+                    LedgerJsonCodec.read(AuthorizationRequest.class, bytes, bytes.length), body);
+            assertEquals(objectMapper.readValue(bytes, LoadRequest.class),
+                    LedgerJsonCodec.read(LoadRequest.class, bytes, bytes.length), body);
+        }
+    }
+
+    @Test
+    void read_RejectsMalformedBodies() {
+        String[] bodies = { "null", "{\"userId\":\"user1\"", "{\"userId\":\"user1\"}}", "{\"userId\":{}}",
+                "{\"transactionAmount\":{\"debitOrCredit\":\"REFUND\"}}", "{\"userId\":\"a\nb\"}" };
+        for (String body : bodies) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            assertThrows(IllegalArgumentException.class,
+                    () -> LedgerJsonCodec.read(LoadRequest.class, bytes, bytes.length), body);
+        }
+    }
+
+    @Test
+    void read_RejectsDeeplyNestedUnknownFields() throws Exception {
+        byte[] nested = ("{\"extra\":" + "[".repeat(1000) + "]".repeat(1000) + ",\"userId\":\"user1\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] tooDeep = ("{\"extra\":" + "[".repeat(20000) + "]".repeat(20000) + "}").getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("user1", ((LoadRequest) LedgerJsonCodec.read(LoadRequest.class, nested, nested.length)).getUserId());
+        assertThrows(IllegalArgumentException.class,
+                () -> LedgerJsonCodec.read(LoadRequest.class, tooDeep, tooDeep.length));
+    }
+
+    @Test
+    void write_MatchesJackson() throws Exception {
+        Amount balance = Amount.builder().amount("1,234.56").currency("USD").debitOrCredit(DebitCredit.DEBIT).build();
+        AuthorizationResponse authorizationResponse = AuthorizationResponse.builder().userId("us\"eré1")
+                .messageId("msg\t1").responseCode(ResponseCode.DECLINED).balance(balance).build();
+        LoadResponse loadResponse = LoadResponse.builder().userId("user1").messageId("msg1").balance(balance).build();
+
+        assertEquals(objectMapper.writeValueAsString(authorizationResponse),
+                new String(LedgerJsonCodec.write(authorizationResponse), StandardCharsets.UTF_8));
+        assertEquals(objectMapper.writeValueAsString(loadResponse),
+                new String(LedgerJsonCodec.write(loadResponse), StandardCharsets.UTF_8));
+    }
+}
@@ -3,26 +3,34 @@ package dev.codescreen.controller.integration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.codescreen.Service.BankLedgerService;
 import dev.codescreen.controller.BankController;
+import dev.codescreen.metrics.LedgerMetrics;
 import dev.codescreen.model.Amount;
+import dev.codescreen.model.AuthorizationResult;
+import dev.codescreen.model.BatchResult;
 import dev.codescreen.model.DebitCredit;
 import dev.codescreen.model.request.AuthorizationRequest;
 import dev.codescreen.model.request.LoadRequest;
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
-import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BankController.class)
+@Import(LedgerMetrics.class)
 @AutoConfigureMockMvc
 public class BankControllerIntegrationTest {
 
@@ -37,8 +45,8 @@ public class BankControllerIntegrationTest {
         AuthorizationRequest authorizationRequest = new AuthorizationRequest("user123", "msg123",
                 new Amount("100", "USD", DebitCredit.DEBIT));
 
-        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyDouble()))
-                .thenReturn(100.0);
+        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyLong()))
+                .thenReturn(AuthorizationResult.approved(10000));
 
         mockMvc.perform(MockMvcRequestBuilders.put("/authorization")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -57,8 +65,8 @@ public class BankControllerIntegrationTest {
         LoadRequest loadRequest = new LoadRequest("user123", "msg123",
                 new Amount("100", "USD", DebitCredit.CREDIT));
 
-        when(ledgerService.loadFunds(anyString(), anyString(), anyDouble()))
-                .thenReturn(100.0);
+        when(ledgerService.loadFunds(anyString(), anyString(), anyLong()))
+                .thenReturn(10000L);
 
         mockMvc.perform(MockMvcRequestBuilders.put("/load")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -71,6 +79,54 @@ public class BankControllerIntegrationTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.balance.debitOrCredit").value("CREDIT"));
     }
 
+    @Test
+    public void testLoadFundsBatch() throws Exception {
+        List<LoadRequest> loadRequests = List.of(
+                new LoadRequest("user123", "msg123", new Amount("100", "USD", DebitCredit.CREDIT)),
+                new LoadRequest("user456", "msg456", new Amount("100", "USD", DebitCredit.DEBIT)),
+                new LoadRequest("user789", "msg789", new Amount("2.50", "USD", DebitCredit.CREDIT)));
+
+        when(ledgerService.loadFundsBatch(anyList()))
+                .thenReturn(List.of(BatchResult.approved(10000L), BatchResult.approved(250L)));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/load/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(loadRequests)))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].balance.amount").value("100.00"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].userId").value("user456"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].error.code").value("INVALID_REQUEST"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].balance").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].messageId").value("msg789"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].balance.amount").value("2.50"));
+    }
+
+    @Test
+    public void testAuthorizeTransactionBatch_Declined() throws Exception {
+        List<AuthorizationRequest> authorizationRequests = List.of(
+                new AuthorizationRequest("user123", "msg123", new Amount("100", "USD", DebitCredit.DEBIT)));
+
+        when(ledgerService.authorizeTransactionBatch(anyList())).thenReturn(List.of(BatchResult.declined(5000L)));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/authorization/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(authorizationRequests)))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].responseCode").value("DECLINED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].balance.amount").value("50.00"));
+    }
+
+    @Test
+    public void testLoadFunds_MessageIdTooLong() throws Exception {
+        LoadRequest loadRequest = new LoadRequest("user123", "m".repeat(101),
+                new Amount("100", "USD", DebitCredit.CREDIT));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/load")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(loadRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
     // Utility method to convert object to JSON string
     private String asJsonString(Object object) {
         try {
@@ -0,0 +1,100 @@
+package dev.codescreen.controller.integration;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import dev.codescreen.Service.BankLedgerService;
+
+// Goes through the dispatcher so the path variable and request parameter bindings are exercised,
+// own database since surefire runs the other integration tests in parallel forks against ./testdb
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:readendpoints;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+public class LedgerReadEndpointsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BankLedgerService bankLedgerService;
+
+    @Test
+    public void getBalance_ReturnsTheStoredBalance() throws Exception {
+        String userId = loadedUser();
+
+        mockMvc.perform(get("/balance/{userId}", userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(userId))
+                .andExpect(jsonPath("$.balance.amount").value("120.00"));
+    }
+
+    @Test
+    public void getBalance_UnknownUserIsNotFound() throws Exception {
+        mockMvc.perform(get("/balance/{userId}", "missing-" + UUID.randomUUID()))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error.code").value("USER_NOT_FOUND"));
+    }
+
+    @Test
+    public void getEvents_ReturnsThePageNewestFirst() throws Exception {
+        String userId = loadedUser();
+
+        mockMvc.perform(get("/events/{userId}", userId).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(userId))
+                .andExpect(jsonPath("$.events.length()").value(1))
+                .andExpect(jsonPath("$.events[0].messageId").value(userId + "-2"))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty());
+    }
+
+    @Test
+    public void getEvents_RejectsALimitOutOfRange() throws Exception {
+        mockMvc.perform(get("/events/{userId}", "any").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void exportEvents_StreamsOneLinePerEvent() throws Exception {
+        String userId = loadedUser();
+
+        MvcResult result = mockMvc.perform(get("/events/{userId}", userId).param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(containsString("\"messageId\":\"" + userId + "-1\"")))
+                .andExpect(content().string(containsString("\"messageId\":\"" + userId + "-2\"")));
+    }
+
+    @Test
+    public void reconcile_ReportsTheReplayedAccounts() throws Exception {
+        loadedUser();
+
+        mockMvc.perform(get("/admin/reconciliation").param("fromScratch", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountsReplayed").isNumber())
+                .andExpect(jsonPath("$.accountsInDrift").value(0));
+    }
+
+    // Loads 100.00 and 20.00 into a fresh account
+    private String loadedUser() {
+        String userId = "read-" + UUID.randomUUID();
+        bankLedgerService.loadFunds(userId, userId + "-1", 10000);
+        bankLedgerService.loadFunds(userId, userId + "-2", 2000);
+        return userId;
+    }
+}
@@ -1,33 +1,43 @@
 package dev.codescreen.controller.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 
+import dev.codescreen.Service.AccountRateLimiter;
 import dev.codescreen.Service.BankLedgerService;
 import dev.codescreen.controller.BankController;
 import dev.codescreen.exceptions.BankLedgerInternalException;
-import dev.codescreen.exceptions.InsufficientFunds;
+import dev.codescreen.metrics.LedgerMetrics;
+import dev.codescreen.metrics.LedgerMetrics.Endpoint;
 import dev.codescreen.model.Amount;
+import dev.codescreen.model.AuthorizationResult;
 import dev.codescreen.model.DebitCredit;
 import dev.codescreen.model.request.AuthorizationRequest;
 import dev.codescreen.model.request.LoadRequest;
 import dev.codescreen.model.response.AuthorizationResponse;
+import dev.codescreen.model.response.BalanceResponse;
 import dev.codescreen.model.response.LoadResponse;
+import dev.codescreen.model.response.ResponseCode;
 import dev.codescreen.model.response.ServerError;
 
 class BankControllerTest {
@@ -35,6 +45,9 @@ class BankControllerTest {
     @Mock
     private BankLedgerService ledgerService;
 
+    @Spy
+    private LedgerMetrics metrics = new LedgerMetrics();
+
     @InjectMocks
     private BankController bankController;
 
@@ -47,8 +60,8 @@ class BankControllerTest {
     void authorizeTransaction_Success() {
         AuthorizationRequest authRequest = new AuthorizationRequest("userId", "messageId", new Amount("100", "USD", DebitCredit.DEBIT));
         BindingResult bindingResult = mock(BindingResult.class);
-        double updatedBalance = 500;
-        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyDouble())).thenReturn(updatedBalance);
+        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyLong()))
+                .thenReturn(AuthorizationResult.approved(50000));
         
         ResponseEntity<?> responseEntity = bankController.authorizeTransaction(authRequest,bindingResult);
         assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
@@ -58,35 +71,52 @@ class BankControllerTest {
         assertEquals(DebitCredit.DEBIT, responseBody.getBalance().getDebitOrCredit());
         assertEquals("USD", responseBody.getBalance().getCurrency());
         assertEquals("500.00", responseBody.getBalance().getAmount());
+        assertEquals(1, metrics.getOutcomeCount(Endpoint.AUTHORIZATION, "APPROVED"));
+        assertEquals(1, metrics.getTransactionLatency(Endpoint.AUTHORIZATION).getCount());
     }
   	
     @Test
     void authorizeTransaction_InsufficientFunds() {
     	BindingResult bindingResult = mock(BindingResult.class);
         AuthorizationRequest authRequest = new AuthorizationRequest("userId", "messageId", new Amount("100", "USD", DebitCredit.DEBIT));
-        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyDouble())).thenThrow(new InsufficientFunds("Insufficient funds",100.00));
+        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyLong())).thenReturn(AuthorizationResult.declined(10000));
         
         ResponseEntity<?> responseEntity = bankController.authorizeTransaction(authRequest,bindingResult);
 
         assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
+        assertEquals(1, metrics.getOutcomeCount(Endpoint.AUTHORIZATION, "DECLINED"));
         AuthorizationResponse responseBody = (AuthorizationResponse) responseEntity.getBody();
         assertEquals("userId", responseBody.getUserId());
         assertEquals("messageId", responseBody.getMessageId());
         assertEquals(DebitCredit.DEBIT, responseBody.getBalance().getDebitOrCredit());
         assertEquals("USD", responseBody.getBalance().getCurrency());
+        assertEquals("100.00", responseBody.getBalance().getAmount());
+        assertEquals(ResponseCode.DECLINED, responseBody.getResponseCode());
     }
 
     @Test
     void authorizeTransaction_InvalidInput() {
     	BindingResult bindingResult = mock(BindingResult.class);
         AuthorizationRequest authRequest = new AuthorizationRequest("userId", "messageId", new Amount("somestring", "USD", DebitCredit.DEBIT));
-        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyDouble())).thenThrow(new NumberFormatException("Invalid input"));
+        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyLong())).thenThrow(new NumberFormatException("Invalid input"));
 
         ResponseEntity<?> responseEntity = bankController.authorizeTransaction(authRequest,bindingResult);
 
         assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
         assertEquals("Please provide valid Input for amount", responseEntity.getBody());
         }
+    @Test
+    void authorizeTransaction_ZeroAmount_ReturnsBadRequestError() {
+        BindingResult bindingResult = mock(BindingResult.class);
+        AuthorizationRequest authRequest = new AuthorizationRequest("userId", "messageId", new Amount("0.00", "USD", DebitCredit.DEBIT));
+
+        ResponseEntity<?> responseEntity = bankController.authorizeTransaction(authRequest, bindingResult);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Please provide valid Input for amount", responseEntity.getBody());
+        verify(ledgerService, never()).authorizeTransaction(anyString(), anyString(), anyLong());
+    }
+
     @Test
     void authorizeTransaction_InvalidTransactionType() {
     	BindingResult bindingResult = mock(BindingResult.class);
@@ -104,7 +134,7 @@ class BankControllerTest {
     void authorizeTransaction_InternalException() {
     	BindingResult bindingResult = mock(BindingResult.class);
         AuthorizationRequest authRequest = new AuthorizationRequest("userId", "messageId", new Amount("100", "USD", DebitCredit.DEBIT));
-        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyDouble())).thenThrow(new BankLedgerInternalException("Internal error"));
+        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyLong())).thenThrow(new BankLedgerInternalException("Internal error"));
 
         ResponseEntity<?> responseEntity = bankController.authorizeTransaction(authRequest,bindingResult);
 
@@ -130,6 +160,7 @@ class BankControllerTest {
     void authorizeTransaction_NullRequest() throws Exception  { 
     	BindingResult bindingResult = mock(BindingResult.class);
     	AuthorizationRequest authRequest = new AuthorizationRequest("userId", "messageId", new Amount("100", "USD", DebitCredit.DEBIT));
+        when(ledgerService.authorizeTransaction(anyString(), anyString(), anyLong())).thenReturn(AuthorizationResult.approved(0));
 
         when(bankController.authorizeTransaction(authRequest,bindingResult)).thenThrow(new RuntimeException("Simulated RuntimeException"));
 
@@ -161,12 +192,73 @@ class BankControllerTest {
     }
  
 
+    @Test
+    void loadFunds_WithUnsupportedCurrency_ReturnsBadRequestError() {
+        BindingResult bindingResult = mock(BindingResult.class);
+        LoadRequest loadRequest = new LoadRequest("userId", "messageId", new Amount("100", "XYZ", DebitCredit.CREDIT));
+
+        ResponseEntity<?> responseEntity = bankController.loadFunds(loadRequest, bindingResult);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Currency XYZ is not supported", responseEntity.getBody());
+    }
+
+    @Test
+    void loadFunds_NegativeAmount_ReturnsBadRequestError() {
+        BindingResult bindingResult = mock(BindingResult.class);
+        LoadRequest loadRequest = new LoadRequest("userId", "messageId", new Amount("-10", "USD", DebitCredit.CREDIT));
+
+        ResponseEntity<?> responseEntity = bankController.loadFunds(loadRequest, bindingResult);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Please provide valid Input for amount", responseEntity.getBody());
+        verify(ledgerService, never()).loadFunds(anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void loadFunds_OverRateLimit_ReturnsTooManyRequests() {
+        ReflectionTestUtils.setField(bankController, "rateLimiter", new AccountRateLimiter(1, 1, 16));
+        BindingResult bindingResult = mock(BindingResult.class);
+        LoadRequest loadRequest = new LoadRequest("userId", "messageId", new Amount("100", "USD", DebitCredit.CREDIT));
+        when(ledgerService.loadFunds(anyString(), anyString(), anyLong())).thenReturn(10000L);
+
+        assertEquals(HttpStatus.CREATED, bankController.loadFunds(loadRequest, bindingResult).getStatusCode());
+        ResponseEntity<?> responseEntity = bankController.loadFunds(loadRequest, bindingResult);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, responseEntity.getStatusCode());
+        assertEquals("1", responseEntity.getHeaders().getFirst("Retry-After"));
+        assertEquals("RATE_LIMITED", ((ServerError) responseEntity.getBody()).getError().getCode());
+    }
+
+    @Test
+    void loadFunds_OnlyAdmittedRequestsUseTheRateLimit() {
+        ReflectionTestUtils.setField(bankController, "rateLimiter", new AccountRateLimiter(1, 1, 16));
+        BindingResult bindingResult = mock(BindingResult.class);
+        when(ledgerService.loadFunds(anyString(), anyString(), anyLong())).thenReturn(10000L);
+        when(ledgerService.isReplay("processed")).thenReturn(true);
+
+        assertEquals(HttpStatus.BAD_REQUEST, bankController.loadFunds(
+                new LoadRequest("userId", "invalid", new Amount("-10", "USD", DebitCredit.CREDIT)), bindingResult)
+                .getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, bankController.loadFunds(
+                new LoadRequest("userId", "unsupported", new Amount("100", "XYZ", DebitCredit.CREDIT)), bindingResult)
+                .getStatusCode());
+        assertEquals(HttpStatus.CREATED, bankController.loadFunds(
+                new LoadRequest("userId", "processed", new Amount("100", "USD", DebitCredit.CREDIT)), bindingResult)
+                .getStatusCode());
+
+        // The single token of the bucket is still there
+        assertEquals(HttpStatus.CREATED, bankController.loadFunds(
+                new LoadRequest("userId", "messageId", new Amount("100", "USD", DebitCredit.CREDIT)), bindingResult)
+                .getStatusCode());
+    }
+
     @Test
     void loadFunds_Success() {
     	BindingResult bindingResult = mock(BindingResult.class);
         LoadRequest loadRequest = new LoadRequest("userId", "messageId", new Amount("100", "USD", DebitCredit.CREDIT));
-        double updatedBalance = 500;
-        when(ledgerService.loadFunds(anyString(), anyString(), anyDouble())).thenReturn(updatedBalance);
+        long updatedBalance = 50000;
+        when(ledgerService.loadFunds(anyString(), anyString(), anyLong())).thenReturn(updatedBalance);
 
         ResponseEntity<?> responseEntity = bankController.loadFunds(loadRequest,bindingResult);
 
@@ -183,7 +275,7 @@ class BankControllerTest {
     void loadFunds_InvalidInput() {
     	BindingResult bindingResult = mock(BindingResult.class);
         LoadRequest loadRequest = new LoadRequest("userId", "messageId", new Amount("100", "USD", DebitCredit.CREDIT));
-        when(ledgerService.loadFunds(anyString(), anyString(), anyDouble())).thenThrow(new NumberFormatException("Invalid input"));
+        when(ledgerService.loadFunds(anyString(), anyString(), anyLong())).thenThrow(new NumberFormatException("Invalid input"));
 
         ResponseEntity<?> responseEntity = bankController.loadFunds(loadRequest,bindingResult);
 
@@ -208,7 +300,7 @@ class BankControllerTest {
     void loadFunds_InternalException() {
     	BindingResult bindingResult = mock(BindingResult.class);
         LoadRequest loadRequest = new LoadRequest("userId", "messageId", new Amount("100", "USD", DebitCredit.CREDIT));
-        when(ledgerService.loadFunds(anyString(), anyString(), anyDouble())).thenThrow(new BankLedgerInternalException("Internal error"));
+        when(ledgerService.loadFunds(anyString(), anyString(), anyLong())).thenThrow(new BankLedgerInternalException("Internal error"));
 
         ResponseEntity<?> responseEntity = bankController.loadFunds(loadRequest,bindingResult);
 
@@ -235,4 +327,25 @@ class BankControllerTest {
         assertEquals(serverError, responseEntity.getBody());
     }
 
-}
\ No newline at end of file
+    @Test
+    void getBalance_Success() {
+        when(ledgerService.getBalance("userId")).thenReturn(Optional.of(123456L));
+
+        ResponseEntity<?> responseEntity = bankController.getBalance("userId");
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        BalanceResponse responseBody = (BalanceResponse) responseEntity.getBody();
+        assertEquals("userId", responseBody.getUserId());
+        assertEquals("1,234.56", responseBody.getBalance().getAmount());
+    }
+
+    @Test
+    void getBalance_UnknownUser() {
+        when(ledgerService.getBalance("userId")).thenReturn(Optional.empty());
+
+        ResponseEntity<?> responseEntity = bankController.getBalance("userId");
+
+        assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
+        assertEquals("USER_NOT_FOUND", ((ServerError) responseEntity.getBody()).getError().getCode());
+    }
+}
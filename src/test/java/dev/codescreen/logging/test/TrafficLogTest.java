@@ -0,0 +1,61 @@
+package dev.codescreen.logging.test;
+
+import dev.codescreen.logging.TrafficLog;
+import dev.codescreen.logging.TrafficLog.Category;
+import dev.codescreen.metrics.LedgerMetrics.Endpoint;
+import dev.codescreen.model.Amount;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.request.LoadRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficLogTest {
+
+    @Test
+    void drain_EncodesEntriesFromTheirFields() {
+        TrafficLog trafficLog = new TrafficLog(16, Map.of());
+        LoadRequest loadRequest = new LoadRequest();
+        loadRequest.setUserId("user\"1");
+        loadRequest.setMessageId("msg1");
+        loadRequest.setTransactionAmount(new Amount("10.50", "USD", DebitCredit.CREDIT));
+        trafficLog.record(Category.REQUEST, Endpoint.LOAD, loadRequest, null, null, 0, 0);
+        trafficLog.record(Category.BATCH, Endpoint.LOAD_BATCH, List.of(loadRequest, loadRequest), null, null, 0, 0);
+        trafficLog.record(Category.DECLINE, null, null, "user2", "msg2", 1050, 25);
+
+        List<String> lines = new ArrayList<>();
+        assertEquals(3, trafficLog.drain(lines::add, 10));
+
+        assertTrue(lines.get(0).startsWith("{\"category\":\"REQUEST\",\"time\":\""));
+        assertTrue(lines.get(0).endsWith("\"endpoint\":\"/load\",\"userId\":\"user\\\"1\",\"messageId\":\"msg1\","
+                + "\"amount\":\"10.50\",\"currency\":\"USD\",\"debitOrCredit\":\"CREDIT\"}"));
+        assertTrue(lines.get(1).endsWith("\"endpoint\":\"/load/batch\",\"size\":2}"));
+        assertTrue(lines.get(2).endsWith("\"userId\":\"user2\",\"messageId\":\"msg2\",\"requested\":\"10.50\","
+                + "\"balance\":\"0.25\"}"));
+        assertEquals(0, trafficLog.drain(lines::add, 10));
+    }
+
+    @Test
+    void record_DropsWhenFullAndSkipsSampledOutCategories() {
+        TrafficLog trafficLog = new TrafficLog(4, Map.of(Category.REPLAY, 0.0));
+        for (int i = 0; i < 6; i++) {
+            trafficLog.record(Category.DECLINE, null, null, "user1", "msg" + i, 100, 0);
+        }
+        trafficLog.record(Category.REPLAY, null, null, null, "msg0", 0, 0);
+
+        List<String> lines = new ArrayList<>();
+        assertEquals(4, trafficLog.drain(lines::add, 10));
+        assertEquals(2, trafficLog.getDroppedCount());
+        assertTrue(lines.get(3).contains("\"messageId\":\"msg3\""));
+
+        // Drained slots are reused
+        trafficLog.record(Category.DECLINE, null, null, "user1", "msg6", 100, 0);
+        lines.clear();
+        assertEquals(1, trafficLog.drain(lines::add, 10));
+        assertTrue(lines.get(0).contains("\"messageId\":\"msg6\""));
+    }
+}
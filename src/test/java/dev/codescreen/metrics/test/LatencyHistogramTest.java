@@ -0,0 +1,47 @@
+package dev.codescreen.metrics.test;
+
+import dev.codescreen.metrics.LatencyHistogram;
+import dev.codescreen.metrics.LedgerMetrics;
+import dev.codescreen.metrics.LedgerMetrics.Endpoint;
+import dev.codescreen.model.response.ResponseCode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void valueAtPercentile_WithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_000, histogram.valueAtPercentile(50), 500_000 * 0.04);
+        assertEquals(990_000, histogram.valueAtPercentile(99), 990_000 * 0.04);
+        assertEquals(1_000_000, histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    void valueAtPercentile_EmptyHistogram() {
+        assertEquals(0, new LatencyHistogram().valueAtPercentile(99));
+    }
+
+    @Test
+    void scrape_WritesPrometheusText() {
+        LedgerMetrics metrics = new LedgerMetrics();
+        metrics.recordRequest(Endpoint.LOAD, 2_000_000, 201);
+        metrics.recordOutcome(Endpoint.LOAD, ResponseCode.APPROVED);
+        metrics.recordError(Endpoint.AUTHORIZATION);
+
+        String text = metrics.scrape();
+
+        assertTrue(text.contains("# TYPE ledger_request_seconds summary"));
+        assertTrue(text.contains("ledger_request_seconds_count{endpoint=\"/load\"} 1"));
+        assertTrue(text.contains("ledger_responses_total{endpoint=\"/load\",code=\"APPROVED\"} 1"));
+        assertTrue(text.contains("ledger_responses_total{endpoint=\"/authorization\",code=\"ERROR\"} 1"));
+        assertTrue(text.contains("ledger_http_responses_total{endpoint=\"/load\",status=\"2xx\"} 1"));
+    }
+}
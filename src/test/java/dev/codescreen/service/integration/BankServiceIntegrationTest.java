@@ -1,7 +1,17 @@
 package dev.codescreen.service.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,7 +21,12 @@ import org.springframework.transaction.annotation.Transactional;
 import dev.codescreen.Repository.EventRepository;
 import dev.codescreen.Repository.UserBalanceRepository;
 import dev.codescreen.Service.BankLedgerService;
-import dev.codescreen.exceptions.InsufficientFunds;
+import dev.codescreen.Service.EventHistoryService;
+import dev.codescreen.model.AuthorizationResult;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
+import dev.codescreen.model.response.EventPage;
+import dev.codescreen.model.response.EventResponse;
 import dev.codescreen.model.entity.UserBalance;
 
 @SpringBootTest
@@ -26,19 +41,22 @@ public class BankServiceIntegrationTest {
 
     @Autowired
     private EventRepository eventRepository;
+
+    @Autowired
+    private EventHistoryService eventHistoryService;
     
     @Test
     public void testLoadFunds() {
         // Given
         String userId = "user123";
-        double initialBalance = 500.0;
-        double amountToAdd = 100.0;
+        long initialBalance = 50000;
+        long amountToAdd = 10000;
 
         // Create a user with initial balance
         userBalanceRepository.save(new UserBalance(userId, initialBalance));
 
         // When
-        double updatedBalance = bankLedgerService.loadFunds(userId, "msg123", amountToAdd);
+        long updatedBalance = bankLedgerService.loadFunds(userId, "msg123", amountToAdd);
 
         // Then
         assertEquals(initialBalance + amountToAdd, updatedBalance);
@@ -51,17 +69,18 @@ public class BankServiceIntegrationTest {
     public void testAuthorizeTransaction() {
         // Given
         String userId = "user123";
-        double initialBalance = 500.0;
-        double transactionAmount = 100.0;
+        long initialBalance = 50000;
+        long transactionAmount = 10000;
 
         // Create a user with initial balance
         userBalanceRepository.save(new UserBalance(userId, initialBalance));
 
         // When
-        double updatedBalance = bankLedgerService.authorizeTransaction(userId, "msg123", transactionAmount);
+        AuthorizationResult result = bankLedgerService.authorizeTransaction(userId, "msg123", transactionAmount);
 
         // Then
-        assertEquals(initialBalance - transactionAmount, updatedBalance);
+        assertTrue(result.isApproved());
+        assertEquals(initialBalance - transactionAmount, result.getBalance());
 
         // Check if the event was recorded
         assertEquals(1, eventRepository.count());
@@ -71,19 +90,57 @@ public class BankServiceIntegrationTest {
     public void testAuthorizeTransactionInsufficientFunds() {
         // Given
         String userId = "user123";
-        double initialBalance = 50.0;
-        double transactionAmount = 100.0;
+        long initialBalance = 5000;
+        long transactionAmount = 10000;
 
         // Create a user with initial balance
         userBalanceRepository.save(new UserBalance(userId, initialBalance));
 
         // When
+        AuthorizationResult result = bankLedgerService.authorizeTransaction(userId, "msg123", transactionAmount);
+
         // Then
-        assertThrows(InsufficientFunds.class, () -> {
-            bankLedgerService.authorizeTransaction(userId, "msg123", transactionAmount);
-        });
+        assertFalse(result.isApproved());
+        assertEquals(initialBalance, result.getBalance());
 
         // Check if the event was recorded
         assertEquals(1, eventRepository.count());
     }
+
+    @Test
+    public void testEventHistoryPagination() throws Exception {
+        // Given five events, two of them sharing a timestamp, and one event of another user
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            events.add(Event.builder().eventId(UUID.randomUUID()).auditTimestamp(start.plusSeconds(Math.min(i, 3)))
+                    .userId("user123").messageId("history" + i).amount(100L * i).transactionType(DebitCredit.CREDIT)
+                    .transactionAmount(100).isSuccessIndicator(true).build());
+        }
+        events.add(Event.builder().eventId(UUID.randomUUID()).auditTimestamp(start).userId("user456")
+                .messageId("history5").amount(100).transactionType(DebitCredit.CREDIT).transactionAmount(100)
+                .isSuccessIndicator(true).build());
+        eventRepository.saveAll(events);
+
+        // When
+        List<String> messageIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            EventPage page = eventHistoryService.getEvents("user123", cursor, 2);
+            for (EventResponse event : page.getEvents()) {
+                messageIds.add(event.getMessageId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Then every event is returned once, newest first
+        assertEquals(5, messageIds.size());
+        assertEquals("history0", messageIds.get(4));
+        assertEquals(5, messageIds.stream().distinct().count());
+
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        assertEquals(5, eventHistoryService.exportEvents("user123", export));
+        assertEquals(5, export.toString(StandardCharsets.UTF_8).split("\n").length);
+        assertNull(eventHistoryService.getEvents("user123", null, 10).getNextCursor());
+    }
 }
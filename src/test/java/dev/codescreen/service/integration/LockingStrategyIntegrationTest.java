@@ -0,0 +1,77 @@
+package dev.codescreen.service.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import dev.codescreen.Repository.UserBalanceRepository;
+import dev.codescreen.Service.BankLedgerService;
+import dev.codescreen.Service.LockingStrategy;
+import dev.codescreen.exceptions.LedgerOverloaded;
+
+// Own database, surefire runs the other integration tests in parallel forks against ./testdb
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:locking;DB_CLOSE_DELAY=-1")
+public class LockingStrategyIntegrationTest {
+
+    @Autowired
+    private BankLedgerService bankLedgerService;
+
+    @Autowired
+    private UserBalanceRepository userBalanceRepository;
+
+    @AfterEach
+    void restoreStrategy() {
+        setStrategy(LockingStrategy.OPTIMISTIC);
+    }
+
+    @Test
+    public void concurrentDebits_NeitherLoseUpdatesNorOverdraw() throws Exception {
+        for (LockingStrategy strategy : LockingStrategy.values()) {
+            setStrategy(strategy);
+            String userId = "locking-" + strategy + "-" + UUID.randomUUID();
+            bankLedgerService.loadFunds(userId, UUID.randomUUID().toString(), 100);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger approved = new AtomicInteger();
+            for (int i = 0; i < 200; i++) {
+                executor.submit(() -> {
+                    start.await();
+                    try {
+                        if (bankLedgerService.authorizeTransaction(userId, UUID.randomUUID().toString(), 1)
+                                .isApproved()) {
+                            approved.incrementAndGet();
+                        }
+                    } catch (LedgerOverloaded ex) {
+                        // optimistic retries exhausted, nothing was applied
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+            assertTrue(approved.get() <= 100, strategy + " overdrew the account");
+            assertEquals(100 - approved.get(), userBalanceRepository.findById(userId).get().getBalance(),
+                    strategy + " lost an update");
+        }
+    }
+
+    private void setStrategy(LockingStrategy strategy) {
+        BankLedgerService target = AopTestUtils.getTargetObject(bankLedgerService);
+        ReflectionTestUtils.setField(target, "lockingStrategy", strategy);
+    }
+}
@@ -0,0 +1,54 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Service.AccountRateLimiter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountRateLimiterTest {
+
+    @Test
+    void tryAcquire_AdmitsTheBurstThenRejectsWithAWait() {
+        AccountRateLimiter rateLimiter = new AccountRateLimiter(1, 3, 1024);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("hot-account"));
+        }
+        long waitMillis = rateLimiter.tryAcquire("hot-account");
+
+        assertTrue(waitMillis > 0 && waitMillis <= 1000, "wait " + waitMillis);
+        assertEquals(0, rateLimiter.tryAcquire("other-account"));
+    }
+
+    @Test
+    void tryAcquire_RefillsOverTime() throws Exception {
+        AccountRateLimiter rateLimiter = new AccountRateLimiter(100, 1, 1024);
+
+        assertEquals(0, rateLimiter.tryAcquire("userId"));
+        assertTrue(rateLimiter.tryAcquire("userId") > 0);
+        Thread.sleep(50);
+
+        assertEquals(0, rateLimiter.tryAcquire("userId"));
+    }
+
+    @Test
+    void tryAcquire_HoldsRatesAboveOnePerMillisecond() throws Exception {
+        for (long ratePerSecond : new long[] { 1500, 2500, 5000 }) {
+            AccountRateLimiter rateLimiter = new AccountRateLimiter(ratePerSecond, 10, 1024);
+            long admitted = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            while ((elapsed = System.nanoTime() - start) < 200_000_000L) {
+                if (rateLimiter.tryAcquire("userId") == 0) {
+                    admitted++;
+                }
+            }
+
+            long allowed = 10 + ratePerSecond * elapsed / 1_000_000_000L;
+            assertTrue(admitted <= allowed + 1, ratePerSecond + "/s admitted " + admitted + " of " + allowed);
+            // Two milliseconds refill at least three tokens at these rates
+            Thread.sleep(2);
+            assertEquals(0, rateLimiter.tryAcquire("userId"));
+        }
+    }
+}
@@ -2,16 +2,34 @@ package dev.codescreen.service.test;
 
 import dev.codescreen.Repository.EventRepository;
 import dev.codescreen.Repository.UserBalanceRepository;
+import dev.codescreen.Service.BalanceCache;
 import dev.codescreen.Service.BankLedgerService;
+import dev.codescreen.Service.EventStore;
+import dev.codescreen.Service.IdempotencyCache;
+import dev.codescreen.Service.InMemoryBalanceEngine;
+import dev.codescreen.Service.LedgerRollups;
+import dev.codescreen.Service.LockingStrategy;
 import dev.codescreen.exceptions.BankLedgerInternalException;
-import dev.codescreen.exceptions.InsufficientFunds;
+import dev.codescreen.exceptions.LedgerOverloaded;
+import dev.codescreen.model.AuthorizationResult;
+import dev.codescreen.model.BatchItem;
+import dev.codescreen.model.BatchResult;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
 import dev.codescreen.model.entity.UserBalance;
+import dev.codescreen.utils.Money;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,41 +44,66 @@ class BankLedgerServiceTest {
     @Mock
     private EventRepository eventRepository;
 
+    @Mock
+    private LedgerRollups ledgerRollups;
+
+    @Spy
+    private IdempotencyCache idempotencyCache = new IdempotencyCache(1000, 60);
+
+    @Spy
+    private BalanceCache balanceCache = new BalanceCache(1000, 60);
+
     @InjectMocks
     private BankLedgerService bankLedgerService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        // No concurrent writer unless a test says otherwise
+        when(userBalanceRepository.updateIfVersion(anyString(), any(), any())).thenReturn(1);
     }
 
     @Test
     void loadFunds_Success() {
-        double amount = 100;
+        long amount = 10000;
         String userId = "userId";
-        UserBalance userBalance = new UserBalance(userId, 200);
+        UserBalance userBalance = new UserBalance(userId, 20000);
         when(userBalanceRepository.findById(userId)).thenReturn(Optional.of(userBalance));
         when(userBalanceRepository.save(any(UserBalance.class))).thenReturn(userBalance);
 
-        double updatedBalance = bankLedgerService.loadFunds(userId, "messageId", amount);
+        long updatedBalance = bankLedgerService.loadFunds(userId, "messageId", amount);
 
-        assertEquals(300, updatedBalance);
+        assertEquals(30000, updatedBalance);
     }
 
     @Test
     void loadFunds_NewUser() {
-        double amount = 100;
+        long amount = 10000;
         String userId = "userId";
         when(userBalanceRepository.findById(userId)).thenReturn(Optional.empty());
 
-        double updatedBalance = bankLedgerService.loadFunds(userId, "messageId", amount);
+        long updatedBalance = bankLedgerService.loadFunds(userId, "messageId", amount);
+
+        assertEquals(10000, updatedBalance);
+    }
+
+    @Test
+    void loadFunds_CreditIsNeverDeclined() {
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 500, 3L)));
+        when(userBalanceRepository.findById("newUser")).thenReturn(Optional.empty());
+
+        assertEquals(-500, bankLedgerService.loadFunds("userId", "msg1", -1000));
+        assertEquals(-1000, bankLedgerService.loadFunds("newUser", "msg2", -1000));
 
-        assertEquals(100, updatedBalance);
+        verify(userBalanceRepository).updateIfVersion("userId", Money.toDecimal(-500), 3L);
+        verify(userBalanceRepository).save(argThat(userBalance -> userBalance.getUserId().equals("newUser")
+                && userBalance.getBalance() == -1000));
+        verify(eventRepository).save(argThat(event -> event.getMessageId().equals("msg1") && event.getAmount() == -500));
     }
 
     @Test
     void loadFunds_Exception() {
-        double amount = 100;
+        long amount = 10000;
         String userId = "userId";
         when(userBalanceRepository.findById(userId)).thenThrow(new RuntimeException("DB error"));
 
@@ -69,30 +112,52 @@ class BankLedgerServiceTest {
 
     @Test
     void authorizeTransaction_Success() {
-        double amount = 50;
+        long amount = 5000;
         String userId = "userId";
-        UserBalance userBalance = new UserBalance(userId, 100);
+        UserBalance userBalance = new UserBalance(userId, 10000);
         when(userBalanceRepository.findById(userId)).thenReturn(Optional.of(userBalance));
         when(userBalanceRepository.save(any(UserBalance.class))).thenReturn(userBalance);
 
-        double updatedBalance = bankLedgerService.authorizeTransaction(userId, "messageId", amount);
+        AuthorizationResult result = bankLedgerService.authorizeTransaction(userId, "messageId", amount);
 
-        assertEquals(50, updatedBalance);
+        assertTrue(result.isApproved());
+        assertEquals(5000, result.getBalance());
     }
 
     @Test
     void authorizeTransaction_InsufficientFunds() {
-        double amount = 200;
+        long amount = 20000;
         String userId = "userId";
-        UserBalance userBalance = new UserBalance(userId, 100);
+        UserBalance userBalance = new UserBalance(userId, 10000);
         when(userBalanceRepository.findById(userId)).thenReturn(Optional.of(userBalance));
 
-        assertThrows(InsufficientFunds.class, () -> bankLedgerService.authorizeTransaction(userId, "messageId", amount));
+        AuthorizationResult result = bankLedgerService.authorizeTransaction(userId, "messageId", amount);
+
+        assertFalse(result.isApproved());
+        assertEquals(10000, result.getBalance());
+        assertEquals(10000, userBalance.getBalance());
+        verify(userBalanceRepository, never()).save(any(UserBalance.class));
+        verify(eventRepository, never()).saveAndFlush(any(Event.class));
+        verify(eventRepository).save(argThat(event -> !event.isSuccessIndicator() && event.getAmount() == 10000));
+        verify(ledgerRollups).recordAll(argThat(events -> !events.iterator().next().isSuccessIndicator()));
+    }
+
+    @Test
+    void authorizeTransaction_NegativeBalanceIsDeclined() {
+        UserBalance userBalance = new UserBalance("userId", -1000);
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(userBalance));
+
+        AuthorizationResult result = bankLedgerService.authorizeTransaction("userId", "messageId", 5);
+
+        assertFalse(result.isApproved());
+        assertEquals(-1000, result.getBalance());
+        verify(userBalanceRepository, never()).updateIfVersion(anyString(), any(), any());
+        verify(eventRepository).save(argThat(event -> !event.isSuccessIndicator() && event.getAmount() == -1000));
     }
 
     @Test
     void authorizeTransaction_UserNotFound() {
-        double amount = 100;
+        long amount = 10000;
         String userId = "userId";
         when(userBalanceRepository.findById(userId)).thenReturn(Optional.empty());
 
@@ -101,11 +166,255 @@ class BankLedgerServiceTest {
 
     @Test
     void authorizeTransaction_Exception() {
-        double amount = 100;
+        long amount = 10000;
         String userId = "userId";
         when(userBalanceRepository.findById(userId)).thenThrow(new RuntimeException("DB error"));
 
         assertThrows(BankLedgerInternalException.class, () -> bankLedgerService.authorizeTransaction(userId, "messageId", amount));
     }
 
-}
\ No newline at end of file
+    @Test
+    void authorizeTransaction_OptimisticRetriesAfterConflict() {
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 10000, 3L)),
+                Optional.of(new UserBalance("userId", 8000, 4L)));
+        when(userBalanceRepository.updateIfVersion(eq("userId"), any(), eq(3L))).thenReturn(0);
+
+        AuthorizationResult result = bankLedgerService.authorizeTransaction("userId", "messageId", 5000);
+
+        assertEquals(3000, result.getBalance());
+        verify(userBalanceRepository).updateIfVersion(eq("userId"), eq(Money.toDecimal(3000)), eq(4L));
+        verify(userBalanceRepository, never()).save(any(UserBalance.class));
+    }
+
+    @Test
+    void authorizeTransaction_OptimisticRejectedAfterMaxRetries() {
+        ReflectionTestUtils.setField(bankLedgerService, "maxRetries", 2);
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 10000, 3L)));
+        when(userBalanceRepository.updateIfVersion(anyString(), any(), any())).thenReturn(0);
+
+        assertThrows(LedgerOverloaded.class, () -> bankLedgerService.authorizeTransaction("userId", "messageId", 5000));
+
+        verify(userBalanceRepository, times(3)).updateIfVersion(anyString(), any(), any());
+        verify(eventRepository, never()).save(any(Event.class));
+    }
+
+    @Test
+    void authorizeTransaction_PessimisticLocksTheRow() {
+        ReflectionTestUtils.setField(bankLedgerService, "lockingStrategy", LockingStrategy.PESSIMISTIC);
+        UserBalance userBalance = new UserBalance("userId", 10000, 3L);
+        when(userBalanceRepository.findByIdForUpdate("userId")).thenReturn(Optional.of(userBalance));
+
+        assertEquals(5000, bankLedgerService.authorizeTransaction("userId", "messageId", 5000).getBalance());
+
+        assertEquals(5000, userBalance.getBalance());
+        verify(userBalanceRepository).save(userBalance);
+        verify(userBalanceRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void authorizeTransaction_AtomicConditionalUpdate() {
+        ReflectionTestUtils.setField(bankLedgerService, "lockingStrategy", LockingStrategy.ATOMIC);
+        when(userBalanceRepository.debitIfCovered("userId", Money.toDecimal(5000))).thenReturn(1);
+        when(userBalanceRepository.debitIfCovered("userId", Money.toDecimal(20000))).thenReturn(0);
+        when(userBalanceRepository.findStoredBalance("userId")).thenReturn(Optional.of(Money.toDecimal(5000)));
+
+        AuthorizationResult approved = bankLedgerService.authorizeTransaction("userId", "msg1", 5000);
+        AuthorizationResult declined = bankLedgerService.authorizeTransaction("userId", "msg2", 20000);
+
+        assertTrue(approved.isApproved());
+        assertEquals(5000, approved.getBalance());
+        assertFalse(declined.isApproved());
+        assertEquals(5000, declined.getBalance());
+        verify(userBalanceRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void loadFunds_ReplaysDuplicateMessage() {
+        long amount = 10000;
+        String userId = "userId";
+        when(userBalanceRepository.findById(userId)).thenReturn(Optional.of(new UserBalance(userId, 20000)));
+
+        assertEquals(30000, bankLedgerService.loadFunds(userId, "messageId", amount));
+        assertEquals(30000, bankLedgerService.loadFunds(userId, "messageId", amount));
+
+        verify(userBalanceRepository, times(1)).findById(userId);
+        verify(eventRepository, times(1)).save(any(Event.class));
+    }
+
+    @Test
+    void authorizeTransaction_ReplaysRecordedDecline() {
+        Event declined = Event.builder().userId("userId").messageId("messageId").amount(10000)
+                .transactionType(DebitCredit.DEBIT).transactionAmount(20000).isSuccessIndicator(false).build();
+        when(eventRepository.findByMessageId("messageId")).thenReturn(Optional.of(declined));
+
+        AuthorizationResult result = bankLedgerService.authorizeTransaction("userId", "messageId", 20000);
+
+        assertFalse(result.isApproved());
+        assertEquals(10000, result.getBalance());
+        verify(userBalanceRepository, never()).findById(anyString());
+    }
+
+
+    @Test
+    void loadFundsBatch_ReadsEachAccountOnce() {
+        when(userBalanceRepository.findAllById(anyIterable())).thenReturn(List.of(new UserBalance("user1", 1000)));
+        when(eventRepository.findByMessageId(anyString())).thenReturn(Optional.empty());
+
+        List<BatchResult> results = bankLedgerService.loadFundsBatch(List.of(
+                new BatchItem("user2", "msg1", 500),
+                new BatchItem("user1", "msg2", 100),
+                new BatchItem("user1", "msg3", 200),
+                new BatchItem("user1", "msg2", 100)));
+
+        assertEquals(500, results.get(0).getBalance());
+        assertEquals(1100, results.get(1).getBalance());
+        assertEquals(1300, results.get(2).getBalance());
+        // A messageId repeated in the batch is applied once
+        assertSame(results.get(1), results.get(3));
+        verify(userBalanceRepository, times(1)).findAllById(anyIterable());
+        verify(userBalanceRepository, never()).findById(anyString());
+        verify(userBalanceRepository, times(1)).saveAll(anyIterable());
+        verify(eventRepository, times(1)).saveAll(argThat(events -> ((List<?>) events).size() == 3));
+    }
+
+    @Test
+    void authorizeTransactionBatch_ReportsEachItem() {
+        when(userBalanceRepository.findAllById(anyIterable())).thenReturn(List.of(new UserBalance("user1", 1000)));
+        when(eventRepository.findByMessageId(anyString())).thenReturn(Optional.empty());
+
+        List<BatchResult> results = bankLedgerService.authorizeTransactionBatch(List.of(
+                new BatchItem("user1", "msg1", 800),
+                new BatchItem("user1", "msg2", 800),
+                new BatchItem("unknown", "msg3", 100)));
+
+        assertTrue(results.get(0).isApproved());
+        assertEquals(200, results.get(0).getBalance());
+        assertFalse(results.get(1).isApproved());
+        assertFalse(results.get(1).isFailed());
+        assertEquals(200, results.get(1).getBalance());
+        assertTrue(results.get(2).isFailed());
+        // Approved and declined items are both recorded, the failed one is not
+        verify(eventRepository, times(1)).saveAll(argThat(events -> ((List<?>) events).size() == 2));
+        verify(ledgerRollups).recordAll(argThat(events -> events.size() == 2));
+    }
+
+    @Test
+    void balanceEngine_FailedEventWriteRevertsTheChange() {
+        InMemoryBalanceEngine balanceEngine = new InMemoryBalanceEngine(userBalanceRepository);
+        ReflectionTestUtils.setField(bankLedgerService, "balanceEngine", balanceEngine);
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 10000)));
+        when(eventRepository.save(any(Event.class))).thenThrow(new RuntimeException("DB error"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThrows(BankLedgerInternalException.class, () -> bankLedgerService.loadFunds("userId", "msg1", 5000));
+        assertThrows(BankLedgerInternalException.class,
+                () -> bankLedgerService.authorizeTransaction("userId", "msg2", 3000));
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(10000, balanceEngine.balance("userId").get());
+    }
+
+    @Test
+    void balanceEngine_FailedCommitRevertsTheChangeBeforeTheRetry() {
+        InMemoryBalanceEngine balanceEngine = new InMemoryBalanceEngine(userBalanceRepository);
+        ReflectionTestUtils.setField(bankLedgerService, "balanceEngine", balanceEngine);
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 10000)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        List<BatchResult> results = bankLedgerService.authorizeTransactionBatch(List.of(
+                new BatchItem("userId", "msg2", 1000), new BatchItem("userId", "msg3", 1000)));
+        assertEquals(8000, results.get(1).getBalance());
+        completeTransaction(TransactionSynchronization.STATUS_UNKNOWN);
+
+        assertEquals(10000, balanceEngine.balance("userId").get());
+        // The messages were abandoned, so the retry is applied once
+        assertEquals(9000, bankLedgerService.authorizeTransaction("userId", "msg2", 1000).getBalance());
+    }
+
+    @Test
+    void balanceEngine_CreditIsAppliedOnceCommitted() {
+        InMemoryBalanceEngine balanceEngine = new InMemoryBalanceEngine(userBalanceRepository);
+        ReflectionTestUtils.setField(bankLedgerService, "balanceEngine", balanceEngine);
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 10000)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        List<BatchResult> results = bankLedgerService.loadFundsBatch(List.of(
+                new BatchItem("userId", "msg1", 5000), new BatchItem("userId", "msg2", 2000)));
+        assertEquals(15000, results.get(0).getBalance());
+        assertEquals(17000, results.get(1).getBalance());
+        // Not spendable before the commit
+        assertFalse(bankLedgerService.authorizeTransaction("userId", "msg3", 12000).isApproved());
+        assertEquals(10000, balanceEngine.balance("userId").get());
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(17000, balanceEngine.balance("userId").get());
+    }
+
+    @Test
+    void balanceEngine_RolledBackCreditIsNeverApplied() {
+        InMemoryBalanceEngine balanceEngine = new InMemoryBalanceEngine(userBalanceRepository);
+        ReflectionTestUtils.setField(bankLedgerService, "balanceEngine", balanceEngine);
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 10000)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals(15000, bankLedgerService.loadFunds("userId", "msg1", 5000));
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        // A debit after the rollback cannot spend the credit, and nothing is taken back below zero
+        assertEquals(0, bankLedgerService.authorizeTransaction("userId", "msg2", 10000).getBalance());
+
+        assertEquals(0, balanceEngine.balance("userId").get());
+        assertEquals(15000, bankLedgerService.loadFunds("userId", "msg1", 15000));
+    }
+
+    @Test
+    void eventStore_RollbackRetractsTheAppendedEvents() {
+        InMemoryBalanceEngine balanceEngine = new InMemoryBalanceEngine(userBalanceRepository);
+        EventStore eventStore = mock(EventStore.class);
+        ReflectionTestUtils.setField(bankLedgerService, "balanceEngine", balanceEngine);
+        ReflectionTestUtils.setField(bankLedgerService, "eventStore", eventStore);
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 10000)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        bankLedgerService.loadFunds("userId", "msg1", 5000);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(eventStore).append(argThat(event -> event.getMessageId().equals("msg1")));
+        verify(eventStore).retract(argThat(events -> events.size() == 1
+                && events.get(0).getMessageId().equals("msg1")));
+        assertEquals(10000, balanceEngine.balance("userId").get());
+    }
+
+    @Test
+    void getBalance_ServedFromCacheAfterLoad() {
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 20000)));
+
+        bankLedgerService.loadFunds("userId", "messageId", 10000);
+        Optional<Long> balance = bankLedgerService.getBalance("userId");
+
+        assertEquals(30000, balance.get());
+        // Only the load read USER_BALANCE
+        verify(userBalanceRepository, times(1)).findById("userId");
+    }
+
+    @Test
+    void getBalance_ReadsThroughOnMiss() {
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 20000)));
+        when(userBalanceRepository.findById("unknown")).thenReturn(Optional.empty());
+
+        assertEquals(20000, bankLedgerService.getBalance("userId").get());
+        assertEquals(20000, bankLedgerService.getBalance("userId").get());
+        assertTrue(bankLedgerService.getBalance("unknown").isEmpty());
+
+        verify(userBalanceRepository, times(1)).findById("userId");
+    }
+
+    // Runs what the transaction manager runs once the transaction of the service call has completed
+    private void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+}
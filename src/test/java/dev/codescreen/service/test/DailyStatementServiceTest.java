@@ -0,0 +1,126 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Service.DailyStatementService;
+import dev.codescreen.model.entity.StatementWatermark;
+import dev.codescreen.model.response.DailyStatementResponse;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyStatementServiceTest {
+
+    private JdbcDataSource dataSource;
+
+    private DailyStatementService dailyStatementService;
+
+    private LocalDate day;
+
+    private LocalDateTime clock;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:statements;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE BANK_EVENTS (EVENT_ID UUID PRIMARY KEY, AUDIT_TIMESTAMP TIMESTAMP(6), "
+                    + "USER_ID VARCHAR(255), MESSAGE_ID VARCHAR(255) UNIQUE, AMOUNT DECIMAL(19,2), TRANSACTION_TYPE VARCHAR(255), "
+                    + "TRANSACTION_AMOUNT DECIMAL(19,2), IS_SUCCESS_INDICATOR BOOLEAN)");
+            statement.execute("CREATE TABLE DAILY_STATEMENT (USER_ID VARCHAR(255), STATEMENT_DATE DATE, "
+                    + "CREDITS DECIMAL(19,2), CREDIT_COUNT BIGINT, DEBITS DECIMAL(19,2), DEBIT_COUNT BIGINT, "
+                    + "DECLINED DECIMAL(19,2), DECLINE_COUNT BIGINT, CLOSING_BALANCE DECIMAL(19,2), "
+                    + "PRIMARY KEY (USER_ID, STATEMENT_DATE))");
+            statement.execute("CREATE TABLE STATEMENT_WATERMARK (ID INT PRIMARY KEY, AUDIT_TIMESTAMP TIMESTAMP(6), "
+                    + "EVENT_ID UUID, RUN_TIMESTAMP TIMESTAMP(6))");
+        }
+        dailyStatementService = new DailyStatementService(dataSource, 0, 2);
+        // The first two events fall before midnight, the rest on the next day
+        day = LocalDate.now().minusDays(2);
+        clock = day.atTime(23, 59, 57);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dailyStatementService.shutdown();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE BANK_EVENTS, DAILY_STATEMENT, STATEMENT_WATERMARK");
+        }
+    }
+
+    @Test
+    void generate_AggregatesTheEventsOfEveryAccountPerDay() throws Exception {
+        event("user1", "CREDIT", "100.00", "100.00", true);
+        event("user1", "DEBIT", "30.00", "70.00", true);
+        event("user2", "CREDIT", "50.00", "50.00", true);
+        event("user1", "DEBIT", "500.00", "70.00", false);
+        event("user1", "DEBIT", "20.00", "50.00", true);
+
+        assertNotNull(dailyStatementService.generate());
+
+        List<DailyStatementResponse> statements = dailyStatementService.statements("user1", day, day.plusDays(1));
+        assertEquals(2, statements.size());
+        DailyStatementResponse first = statements.get(0);
+        assertEquals(day, first.getDate());
+        assertEquals("100.00", first.getCredits());
+        assertEquals(1, first.getCreditCount());
+        assertEquals("30.00", first.getDebits());
+        assertEquals("70.00", first.getClosingBalance());
+        DailyStatementResponse second = statements.get(1);
+        assertEquals(day.plusDays(1), second.getDate());
+        assertEquals("0.00", second.getCredits());
+        assertEquals("20.00", second.getDebits());
+        assertEquals(1, second.getDebitCount());
+        assertEquals("500.00", second.getDeclined());
+        assertEquals(1, second.getDeclineCount());
+        assertEquals("50.00", second.getClosingBalance());
+        assertEquals(1, dailyStatementService.statements("user2", day, day.plusDays(1)).size());
+    }
+
+    @Test
+    void generate_AddsOnlyTheEventsAfterTheWatermark() throws Exception {
+        clock = day.atStartOfDay();
+        event("user1", "CREDIT", "100.00", "100.00", true);
+        event("user1", "DEBIT", "25.00", "75.00", true);
+
+        StatementWatermark watermark = dailyStatementService.generate();
+        assertNotNull(watermark);
+        assertNull(dailyStatementService.generate());
+
+        event("user1", "DEBIT", "5.00", "70.00", true);
+        assertTrue(dailyStatementService.generate().getAuditTimestamp().isAfter(watermark.getAuditTimestamp()));
+
+        DailyStatementResponse statement = dailyStatementService.statements("user1", day, day).get(0);
+        assertEquals("100.00", statement.getCredits());
+        assertEquals("30.00", statement.getDebits());
+        assertEquals(2, statement.getDebitCount());
+        assertEquals("70.00", statement.getClosingBalance());
+    }
+
+    private void event(String userId, String type, String transactionAmount, String amount, boolean success)
+            throws Exception {
+        clock = clock.plusSeconds(1);
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO BANK_EVENTS VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            statement.setObject(1, UUID.randomUUID());
+            statement.setObject(2, clock);
+            statement.setString(3, userId);
+            statement.setString(4, UUID.randomUUID().toString());
+            statement.setBigDecimal(5, new BigDecimal(amount));
+            statement.setString(6, type);
+            statement.setBigDecimal(7, new BigDecimal(transactionAmount));
+            statement.setBoolean(8, success);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Service.EventJournal;
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventJournalTest {
+
+    private JdbcDataSource dataSource;
+
+    private EventJournal eventJournal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:journal;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE BANK_EVENTS (EVENT_ID UUID PRIMARY KEY, AUDIT_TIMESTAMP TIMESTAMP(6), "
+                    + "USER_ID VARCHAR(255), MESSAGE_ID VARCHAR(255) UNIQUE, AMOUNT DECIMAL(19,2), TRANSACTION_TYPE VARCHAR(255), "
+                    + "TRANSACTION_AMOUNT DECIMAL(19,2), IS_SUCCESS_INDICATOR BOOLEAN)");
+        }
+        eventJournal = new EventJournal(dataSource, 16, 50, 10000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        eventJournal.shutdown();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE BANK_EVENTS");
+        }
+    }
+
+    @Test
+    void append_GroupsConcurrentEventsIntoBatches() throws Exception {
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            written.add(eventJournal.submit(event("msg" + i)));
+        }
+        CompletableFuture.allOf(written.toArray(new CompletableFuture[0])).join();
+
+        assertEquals(64, countEvents());
+        assertEquals(64, eventJournal.getEventsWritten());
+        assertTrue(eventJournal.getBatchesWritten() < 64);
+    }
+
+    @Test
+    void append_FailsOnlyTheDuplicateEvent() throws Exception {
+        eventJournal.submit(event("msg1")).join();
+
+        CompletableFuture<Void> duplicate = eventJournal.submit(event("msg1"));
+        CompletableFuture<Void> other = eventJournal.submit(event("msg2"));
+
+        assertThrows(CompletionException.class, duplicate::join);
+        other.join();
+        assertEquals(2, countEvents());
+        assertEquals(1, eventJournal.getEventsFailed());
+        assertEquals("msg2", eventJournal.findByMessageId("msg2").get().getMessageId());
+    }
+
+    @Test
+    void retract_RemovesOnlyTheGivenEvents() throws Exception {
+        Event original = event("msg1");
+        Event rolledBack = event("msg2");
+        eventJournal.appendAll(List.of(original, rolledBack));
+
+        // A retry of msg1 failed on the duplicate messageId, retracting it keeps the original event
+        eventJournal.retract(List.of(rolledBack, event("msg1")));
+
+        assertEquals(1, countEvents());
+        assertTrue(eventJournal.findByMessageId("msg1").isPresent());
+        assertTrue(eventJournal.findByMessageId("msg2").isEmpty());
+    }
+
+    @Test
+    void submit_RejectedOnceShutDown() throws Exception {
+        eventJournal.shutdown();
+
+        assertThrows(BankLedgerInternalException.class, () -> eventJournal.submit(event("msg1")));
+    }
+
+    @Test
+    void append_GivesUpWhenTheWriterIsStuck() throws Exception {
+        CountDownLatch connecting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EventJournal stuckJournal = new EventJournal(stuckDataSource(connecting, release), 1, 0, 100);
+        try {
+            CompletionException ex = assertThrows(CompletionException.class,
+                    () -> stuckJournal.append(event("msg1")));
+            assertInstanceOf(TimeoutException.class, ex.getCause());
+
+            assertTrue(connecting.await(5, TimeUnit.SECONDS));
+            // Queued behind the stuck batch, the writer does not get to it before the shutdown gives up
+            CompletableFuture<Void> queued = stuckJournal.submit(event("msg2"));
+            stuckJournal.shutdown();
+
+            assertTrue(queued.isCompletedExceptionally());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // A driver that ignores interrupts while it waits for a connection
+    private DataSource stuckDataSource(CountDownLatch connecting, CountDownLatch release) throws Exception {
+        DataSource stuck = mock(DataSource.class);
+        when(stuck.getConnection()).thenAnswer(invocation -> {
+            connecting.countDown();
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+            throw new SQLException("Connection refused");
+        });
+        return stuck;
+    }
+
+    private Event event(String messageId) {
+        return Event.builder().eventId(UUID.randomUUID()).auditTimestamp(LocalDateTime.now()).userId("userId")
+                .messageId(messageId).amount(100).transactionType(DebitCredit.CREDIT).transactionAmount(100)
+                .isSuccessIndicator(true).build();
+    }
+
+    private int countEvents() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM BANK_EVENTS")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
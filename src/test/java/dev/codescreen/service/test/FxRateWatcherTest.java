@@ -0,0 +1,58 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Service.FxRateWatcher;
+import dev.codescreen.utils.FxRateTable;
+import dev.codescreen.utils.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxRateWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    private FxRateWatcher fxRateWatcher;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fxRateWatcher.shutdown();
+        Utils.setFxRates(FxRateTable.USD_ONLY);
+    }
+
+    @Test
+    void start_ReloadsTheRatesWhenTheFileChanges() throws Exception {
+        Path rates = directory.resolve("fx-rates.properties");
+        Files.writeString(rates, "EUR=1.10\n");
+        fxRateWatcher = new FxRateWatcher(rates.toString());
+        fxRateWatcher.start();
+        assertEquals(110, Utils.convertAmountToUSD(100, "EUR"));
+
+        Files.writeString(rates, "EUR=1.20\nGBP=1.25\n");
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (Utils.getFxRates().size() != 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(120, Utils.convertAmountToUSD(100, "EUR"));
+        assertEquals(125, Utils.convertAmountToUSD(100, "GBP"));
+    }
+
+    @Test
+    void reload_KeepsThePreviousRatesWhenTheFileIsInvalid() throws Exception {
+        Path rates = directory.resolve("fx-rates.properties");
+        Files.writeString(rates, "EUR=1.10\n");
+        fxRateWatcher = new FxRateWatcher(rates.toString());
+        fxRateWatcher.start();
+
+        Files.writeString(rates, "EUR=not-a-rate\n");
+
+        assertFalse(fxRateWatcher.reload());
+        assertEquals(110, Utils.convertAmountToUSD(100, "EUR"));
+    }
+}
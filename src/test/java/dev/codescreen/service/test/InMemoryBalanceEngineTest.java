@@ -0,0 +1,157 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Repository.UserBalanceRepository;
+import dev.codescreen.Service.InMemoryBalanceEngine;
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.AuthorizationResult;
+import dev.codescreen.model.entity.UserBalance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class InMemoryBalanceEngineTest {
+
+    @Mock
+    private UserBalanceRepository userBalanceRepository;
+
+    private InMemoryBalanceEngine balanceEngine;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        balanceEngine = new InMemoryBalanceEngine(userBalanceRepository);
+    }
+
+    @Test
+    void credit_LoadsStoredBalanceOnce() {
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 200)));
+
+        assertEquals(300, balanceEngine.credit("userId", 100));
+        assertEquals(400, balanceEngine.credit("userId", 100));
+        verify(userBalanceRepository, times(1)).findById("userId");
+    }
+
+    @Test
+    void debit_InsufficientFunds() {
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 100)));
+
+        AuthorizationResult result = balanceEngine.debit("userId", 200);
+        assertFalse(result.isApproved());
+        assertEquals(100, result.getBalance());
+        assertEquals(100, balanceEngine.balance("userId").get());
+    }
+
+    @Test
+    void debit_NegativeBalanceIsDeclined() {
+        // Balances loaded with negative amounts before loads were required to be positive
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", -1000)));
+
+        AuthorizationResult result = balanceEngine.debit("userId", 5);
+        assertFalse(result.isApproved());
+        assertEquals(-1000, result.getBalance());
+        assertEquals(-1000, balanceEngine.balance("userId").get());
+    }
+
+    @Test
+    void debit_UserNotFound() {
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.empty());
+
+        assertThrows(BankLedgerInternalException.class, () -> balanceEngine.debit("userId", 100));
+    }
+
+    @Test
+    void debit_ConcurrentDebitsNeverOverdraw() throws Exception {
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.of(new UserBalance("userId", 100)));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger approved = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (balanceEngine.debit("userId", 1).isApproved()) {
+                    approved.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, approved.get());
+        assertFalse(balanceEngine.debit("userId", 1).isApproved());
+    }
+
+    @Test
+    void hotAccount_DebitCollectsFundsFromAllSlots() throws Exception {
+        when(userBalanceRepository.findById("pool")).thenReturn(Optional.empty());
+        InMemoryBalanceEngine hotEngine = new InMemoryBalanceEngine(userBalanceRepository, Set.of("pool"), 8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> hotEngine.credit("pool", 1));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, hotEngine.balance("pool").get());
+        // Spread over the slots, no single slot covers it
+        assertEquals(100, hotEngine.debit("pool", 900).getBalance());
+        AuthorizationResult declined = hotEngine.debit("pool", 101);
+        assertFalse(declined.isApproved());
+        assertEquals(100, declined.getBalance());
+        assertEquals(100, hotEngine.balance("pool").get());
+    }
+
+    @Test
+    void hotAccount_ConcurrentDebitsNeverOverdraw() throws Exception {
+        when(userBalanceRepository.findById("pool")).thenReturn(Optional.of(new UserBalance("pool", 100)));
+        InMemoryBalanceEngine hotEngine = new InMemoryBalanceEngine(userBalanceRepository, Set.of("pool"), 4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger approved = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            int amount = i % 3 + 1;
+            executor.submit(() -> {
+                start.await();
+                if (hotEngine.debit("pool", amount).isApproved()) {
+                    approved.addAndGet(amount);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100 - approved.get(), hotEngine.balance("pool").get());
+        assertTrue(approved.get() >= 98);
+        hotEngine.flush();
+        verify(userBalanceRepository).saveAll(List.of(new UserBalance("pool", 100 - approved.get())));
+    }
+
+    @Test
+    void flush_WritesBackChangedBalances() {
+        when(userBalanceRepository.findById("userId")).thenReturn(Optional.empty());
+        balanceEngine.credit("userId", 100);
+
+        balanceEngine.flush();
+        balanceEngine.flush();
+
+        verify(userBalanceRepository, times(1)).saveAll(List.of(new UserBalance("userId", 100)));
+        verify(userBalanceRepository, times(1)).saveAll(anyList());
+    }
+}
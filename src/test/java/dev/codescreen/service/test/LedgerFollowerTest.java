@@ -0,0 +1,99 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Service.LedgerFollower;
+import dev.codescreen.Service.MappedEventLog;
+import dev.codescreen.exceptions.ReplicaLagging;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerFollowerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void follower_AppliesRecordsAppendedByThePrimary() throws Exception {
+        String path = directory.resolve("ledger.log").toString();
+        MappedEventLog primary = new MappedEventLog(path, 1);
+        primary.append(event("user1", "msg1", DebitCredit.CREDIT, 100, true));
+        primary.append(event("user1", "msg2", DebitCredit.DEBIT, 500, false));
+        LedgerFollower follower = new LedgerFollower(path, 1, 1000, 1, 1);
+        follower.start();
+
+        awaitTrue(() -> follower.getAppliedRecords() == 2 && follower.getLagMillis() >= 0);
+        assertEquals(100, follower.balance("user1").get());
+
+        primary.append(event("user1", "msg3", DebitCredit.DEBIT, 30, true));
+        primary.append(event("user2", "msg4", DebitCredit.DEBIT, 5, false));
+        awaitTrue(() -> follower.getAppliedRecords() == 4);
+
+        assertEquals(70, follower.balance("user1").get());
+        // An account with declines only does not exist on the primary either
+        assertTrue(follower.balance("user2").isEmpty());
+        List<String> history = new ArrayList<>();
+        long last = follower.history("user1", Long.MAX_VALUE, 2, event -> history.add(event.getMessageId()));
+        assertEquals(List.of("msg3", "msg2"), history);
+        follower.history("user1", last, 2, event -> history.add(event.getMessageId()));
+        assertEquals(List.of("msg3", "msg2", "msg1"), history);
+        assertThrows(RuntimeException.class, () -> follower.credit("user1", 1));
+        follower.shutdown();
+        primary.shutdown();
+    }
+
+    @Test
+    void follower_LeavesRetractedEventsOutOfTheHistory() throws Exception {
+        String path = directory.resolve("ledger.log").toString();
+        MappedEventLog primary = new MappedEventLog(path, 1);
+        primary.append(event("user1", "msg1", DebitCredit.CREDIT, 100, true));
+        Event rolledBack = event("user1", "msg2", DebitCredit.DEBIT, 40, true);
+        primary.append(rolledBack);
+        primary.retract(List.of(rolledBack));
+        LedgerFollower follower = new LedgerFollower(path, 1, 1000, 1, 1);
+        follower.start();
+
+        awaitTrue(() -> follower.getAppliedRecords() == 3 && follower.getLagMillis() >= 0);
+
+        assertEquals(100, follower.balance("user1").get());
+        List<String> history = new ArrayList<>();
+        follower.history("user1", Long.MAX_VALUE, 10, event -> history.add(event.getMessageId()));
+        assertEquals(List.of("msg1"), history);
+        follower.shutdown();
+        primary.shutdown();
+    }
+
+    @Test
+    void balance_RefusedUntilCaughtUp() throws Exception {
+        LedgerFollower follower = new LedgerFollower(directory.resolve("missing.log").toString(), 1, 1000, 1, 1);
+
+        ReplicaLagging ex = assertThrows(ReplicaLagging.class, () -> follower.balance("user1"));
+
+        assertEquals(1, ex.getRetryAfterSeconds());
+        assertEquals(-1, follower.getLagMillis());
+        assertEquals(1, follower.getLaggingReads());
+    }
+
+    private void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Follower did not catch up");
+            Thread.sleep(5);
+        }
+    }
+
+    private Event event(String userId, String messageId, DebitCredit type, long amount, boolean success) {
+        return Event.builder().eventId(UUID.randomUUID()).auditTimestamp(LocalDateTime.now()).userId(userId)
+                .messageId(messageId).amount(0).transactionType(type).transactionAmount(amount)
+                .isSuccessIndicator(success).build();
+    }
+}
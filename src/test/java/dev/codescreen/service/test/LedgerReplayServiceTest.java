@@ -0,0 +1,141 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Service.LedgerReplayService;
+import dev.codescreen.model.entity.SnapshotWatermark;
+import dev.codescreen.model.response.BalanceDrift;
+import dev.codescreen.model.response.ReconciliationReport;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerReplayServiceTest {
+
+    private JdbcDataSource dataSource;
+
+    private LedgerReplayService ledgerReplayService;
+
+    private LocalDateTime clock;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:replay;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE BANK_EVENTS (EVENT_ID UUID PRIMARY KEY, AUDIT_TIMESTAMP TIMESTAMP(6), "
+                    + "USER_ID VARCHAR(255), MESSAGE_ID VARCHAR(255) UNIQUE, AMOUNT DECIMAL(19,2), TRANSACTION_TYPE VARCHAR(255), "
+                    + "TRANSACTION_AMOUNT DECIMAL(19,2), IS_SUCCESS_INDICATOR BOOLEAN)");
+            statement.execute("CREATE TABLE USER_BALANCE (USER_ID VARCHAR(255) PRIMARY KEY, BALANCE DECIMAL(19,2))");
+            statement.execute("CREATE TABLE BALANCE_SNAPSHOT (USER_ID VARCHAR(255) PRIMARY KEY, BALANCE DECIMAL(19,2))");
+            statement.execute("CREATE TABLE SNAPSHOT_WATERMARK (ID INT PRIMARY KEY, AUDIT_TIMESTAMP TIMESTAMP(6), "
+                    + "EVENT_ID UUID, SNAPSHOT_TIMESTAMP TIMESTAMP(6))");
+        }
+        ledgerReplayService = new LedgerReplayService(dataSource, 0);
+        clock = LocalDateTime.now().minusHours(1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE BANK_EVENTS, USER_BALANCE, BALANCE_SNAPSHOT, SNAPSHOT_WATERMARK");
+        }
+    }
+
+    @Test
+    void replay_FoldsSuccessfulEventsOfEveryAccount() throws Exception {
+        event("user1", "CREDIT", "100.00", "100.00", true);
+        event("user2", "CREDIT", "50.00", "50.00", true);
+        event("user1", "DEBIT", "30.00", "70.00", true);
+        event("user1", "DEBIT", "500.00", "70.00", false);
+
+        LedgerReplayService.Replay replay = ledgerReplayService.replay();
+
+        assertEquals(2, replay.getAccountCount());
+        assertEquals(4, replay.getTailEvents());
+        assertEquals(7000, replay.get("user1").getBalance());
+        assertEquals(5000, replay.get("user2").getBalance());
+    }
+
+    @Test
+    void snapshot_ReplaysOnlyTheEventsAfterTheWatermark() throws Exception {
+        event("user1", "CREDIT", "100.00", "100.00", true);
+        event("user2", "CREDIT", "50.00", "50.00", true);
+
+        SnapshotWatermark watermark = ledgerReplayService.snapshot();
+        assertNotNull(watermark);
+        assertNull(ledgerReplayService.snapshot());
+
+        event("user1", "DEBIT", "25.00", "75.00", true);
+        LedgerReplayService.Replay replay = ledgerReplayService.replay();
+
+        assertEquals(1, replay.getTailEvents());
+        assertEquals(7500, replay.get("user1").getBalance());
+        assertEquals(5000, replay.get("user2").getBalance());
+        assertTrue(ledgerReplayService.snapshot().getAuditTimestamp().isAfter(watermark.getAuditTimestamp()));
+        assertEquals(new BigDecimal("75.00"), snapshotBalance("user1"));
+    }
+
+    @Test
+    void reconcile_ReportsAccountsWhoseStoredBalanceDrifted() throws Exception {
+        event("user1", "CREDIT", "100.00", "100.00", true);
+        event("user2", "CREDIT", "50.00", "50.00", true);
+        storeBalance("user1", "100.00");
+        storeBalance("user2", "40.00");
+
+        ReconciliationReport report = ledgerReplayService.reconcile(true);
+
+        assertEquals(2, report.getAccountsChecked());
+        assertEquals(1, report.getAccountsInDrift());
+        BalanceDrift drift = report.getDrifts().get(0);
+        assertEquals("user2", drift.getUserId());
+        assertEquals("40.00", drift.getStoredBalance());
+        assertEquals("50.00", drift.getReplayedBalance());
+    }
+
+    private void event(String userId, String type, String transactionAmount, String amount, boolean success)
+            throws Exception {
+        clock = clock.plusSeconds(1);
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO BANK_EVENTS VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            statement.setObject(1, UUID.randomUUID());
+            statement.setObject(2, clock);
+            statement.setString(3, userId);
+            statement.setString(4, UUID.randomUUID().toString());
+            statement.setBigDecimal(5, new BigDecimal(amount));
+            statement.setString(6, type);
+            statement.setBigDecimal(7, new BigDecimal(transactionAmount));
+            statement.setBoolean(8, success);
+            statement.executeUpdate();
+        }
+    }
+
+    private void storeBalance(String userId, String balance) throws Exception {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO USER_BALANCE VALUES (?, ?)")) {
+            statement.setString(1, userId);
+            statement.setBigDecimal(2, new BigDecimal(balance));
+            statement.executeUpdate();
+        }
+    }
+
+    private BigDecimal snapshotBalance(String userId) throws Exception {
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(
+                "SELECT BALANCE FROM BALANCE_SNAPSHOT WHERE USER_ID = ?")) {
+            statement.setString(1, userId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                return resultSet.getBigDecimal(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Service.LedgerRollups;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
+import dev.codescreen.model.response.StatsResponse;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerRollupsTest {
+
+    private JdbcDataSource dataSource;
+
+    private LedgerRollups ledgerRollups;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:rollups;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE HOURLY_ROLLUP (USER_ID VARCHAR(255), ROLLUP_HOUR TIMESTAMP(6), "
+                    + "CREDIT_COUNT BIGINT, CREDITS DECIMAL(19,2), DEBIT_COUNT BIGINT, DEBITS DECIMAL(19,2), "
+                    + "DECLINE_COUNT BIGINT, PRIMARY KEY (ROLLUP_HOUR, USER_ID))");
+        }
+        ledgerRollups = new LedgerRollups(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE HOURLY_ROLLUP");
+        }
+    }
+
+    @Test
+    void stats_CountsFlushedAndUnflushedEvents() {
+        ledgerRollups.recordAll(List.of(
+                event("user1", DebitCredit.CREDIT, 10000, true),
+                event("user1", DebitCredit.DEBIT, 2500, true),
+                event("user2", DebitCredit.DEBIT, 700, true)));
+        // user1, user2 and all accounts
+        assertEquals(3, ledgerRollups.flush());
+        ledgerRollups.record(event("user1", DebitCredit.DEBIT, 1500, true));
+        ledgerRollups.record(event("user1", DebitCredit.DEBIT, 99999, false));
+
+        StatsResponse user1 = ledgerRollups.stats("user1", LocalDateTime.now().minusHours(1));
+        assertEquals("user1", user1.getUserId());
+        assertEquals(1, user1.getCreditCount());
+        assertEquals("100.00", user1.getCredits());
+        assertEquals(2, user1.getDebitCount());
+        assertEquals("40.00", user1.getDebits());
+        assertEquals(1, user1.getDeclineCount());
+        assertEquals(1.0 / 3, user1.getDeclineRate(), 1e-9);
+
+        StatsResponse all = ledgerRollups.stats(null, LocalDateTime.now().minusHours(1));
+        assertNull(all.getUserId());
+        assertEquals(3, all.getDebitCount());
+        assertEquals("47.00", all.getDebits());
+        assertEquals(0, ledgerRollups.stats("user3", LocalDateTime.now().minusHours(1)).getDeclineRate());
+    }
+
+    @Test
+    void flush_AddsOnlyWhatChangedSinceTheLastFlush() throws Exception {
+        ledgerRollups.record(event("user1", DebitCredit.CREDIT, 10000, true));
+        ledgerRollups.flush();
+        ledgerRollups.record(event("user1", DebitCredit.CREDIT, 5000, true));
+
+        // Only user1 and all accounts changed, then nothing did
+        assertEquals(2, ledgerRollups.flush());
+        assertEquals(0, ledgerRollups.flush());
+
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(
+                "SELECT CREDIT_COUNT, CREDITS FROM HOURLY_ROLLUP WHERE USER_ID = ?")) {
+            statement.setString(1, "user1");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                assertEquals(2, resultSet.getLong(1));
+                assertEquals(new BigDecimal("150.00"), resultSet.getBigDecimal(2));
+                assertFalse(resultSet.next());
+            }
+        }
+        assertEquals("150.00", ledgerRollups.stats("user1", LocalDateTime.now().minusHours(1)).getCredits());
+    }
+
+    private static Event event(String userId, DebitCredit type, long amount, boolean success) {
+        return Event.builder().auditTimestamp(LocalDateTime.now()).userId(userId).transactionType(type)
+                .transactionAmount(amount).isSuccessIndicator(success).build();
+    }
+}
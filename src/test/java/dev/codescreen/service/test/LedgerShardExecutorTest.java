@@ -0,0 +1,64 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Service.LedgerShardExecutor;
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.exceptions.LedgerOverloaded;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerShardExecutorTest {
+
+    private final LedgerShardExecutor shardExecutor = new LedgerShardExecutor(4, 2, 1);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        shardExecutor.shutdown();
+    }
+
+    @Test
+    void execute_RunsOnTheShardOwningTheAccount() {
+        String firstThread = shardExecutor.execute("userId", () -> Thread.currentThread().getName());
+        String secondThread = shardExecutor.execute("userId", () -> Thread.currentThread().getName());
+
+        assertEquals("ledger-shard-" + shardExecutor.shardOf("userId"), firstThread);
+        assertEquals(firstThread, secondThread);
+    }
+
+    @Test
+    void execute_RethrowsTaskException() {
+        assertThrows(BankLedgerInternalException.class, () -> shardExecutor.execute("userId", () -> {
+            throw new BankLedgerInternalException("User userId is not found in the system");
+        }));
+    }
+
+    @Test
+    void submit_RejectsWhenTheShardQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        shardExecutor.submit("userId", () -> {
+            running.countDown();
+            return awaitQuietly(release);
+        });
+        running.await();
+        shardExecutor.submit("userId", () -> true);
+        shardExecutor.submit("userId", () -> true);
+
+        LedgerOverloaded ex = assertThrows(LedgerOverloaded.class, () -> shardExecutor.submit("userId", () -> true));
+        assertEquals(1, ex.getRetryAfterSeconds());
+        assertEquals(1, shardExecutor.getRejectedCount());
+        release.countDown();
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package dev.codescreen.service.test;
+
+import dev.codescreen.Service.MappedEventLog;
+import dev.codescreen.exceptions.BankLedgerInternalException;
+import dev.codescreen.model.DebitCredit;
+import dev.codescreen.model.Event;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedEventLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoverBalances_ReplaysTheLogAfterRestart() throws Exception {
+        String path = directory.resolve("ledger.log").toString();
+        MappedEventLog eventLog = new MappedEventLog(path, 1);
+        eventLog.append(event("user1", "msg1", DebitCredit.CREDIT, 100, true));
+        eventLog.append(event("user1", "msg2", DebitCredit.DEBIT, 30, true));
+        eventLog.append(event("user1", "msg3", DebitCredit.DEBIT, 500, false));
+        eventLog.append(event("user2", "msg4", DebitCredit.CREDIT, 5, true));
+        eventLog.shutdown();
+
+        MappedEventLog reopened = new MappedEventLog(path, 1);
+
+        assertEquals(70, reopened.getRecoveredBalances().get("user1"));
+        assertEquals(5, reopened.getRecoveredBalances().get("user2"));
+        assertEquals(4, reopened.getRecordCount());
+        Event declined = reopened.findByMessageId("msg3").get();
+        assertEquals("user1", declined.getUserId());
+        assertFalse(declined.isSuccessIndicator());
+        reopened.shutdown();
+    }
+
+    @Test
+    void snapshot_OnlyReplaysTheTailAfterRestart() throws Exception {
+        String path = directory.resolve("ledger.log").toString();
+        MappedEventLog eventLog = new MappedEventLog(path, 1);
+        eventLog.append(event("user1", "msg1", DebitCredit.CREDIT, 100, true));
+        eventLog.snapshot();
+        eventLog.append(event("user1", "msg2", DebitCredit.CREDIT, 25, true));
+        eventLog.shutdown();
+
+        MappedEventLog reopened = new MappedEventLog(path, 1);
+
+        assertTrue(Files.exists(Path.of(path + ".snapshot")));
+        assertEquals(125, reopened.getRecoveredBalances().get("user1"));
+        reopened.shutdown();
+    }
+
+    @Test
+    void findByMessageId_FindsMessagesCoveredBySnapshotAfterRestart() throws Exception {
+        String path = directory.resolve("ledger.log").toString();
+        MappedEventLog eventLog = new MappedEventLog(path, 1);
+        eventLog.append(event("user1", "msg1", DebitCredit.CREDIT, 100, true));
+        eventLog.snapshot();
+        eventLog.append(event("user1", "msg2", DebitCredit.CREDIT, 25, true));
+        eventLog.shutdown();
+
+        MappedEventLog reopened = new MappedEventLog(path, 1);
+
+        Event covered = reopened.findByMessageId("msg1").get();
+        assertEquals("user1", covered.getUserId());
+        assertEquals(100, covered.getTransactionAmount());
+        assertTrue(reopened.findByMessageId("msg2").isPresent());
+        reopened.shutdown();
+    }
+
+    @Test
+    void append_RejectedEventDoesNotStopTheSnapshot() throws Exception {
+        String path = directory.resolve("ledger.log").toString();
+        MappedEventLog eventLog = new MappedEventLog(path, 1);
+
+        assertThrows(BankLedgerInternalException.class,
+                () -> eventLog.append(event("user1", "m".repeat(101), DebitCredit.CREDIT, 100, true)));
+        eventLog.append(event("user1", "msg1", DebitCredit.CREDIT, 40, true));
+        eventLog.snapshot();
+        eventLog.shutdown();
+
+        MappedEventLog reopened = new MappedEventLog(path, 1);
+
+        assertEquals(1, reopened.getRecordCount());
+        assertEquals(40, reopened.getRecoveredBalances().get("user1"));
+        assertTrue(reopened.findByMessageId("msg1").isPresent());
+        reopened.shutdown();
+    }
+
+    @Test
+    void appendAll_EventThatCannotBeStoredWritesNothing() throws Exception {
+        String path = directory.resolve("ledger.log").toString();
+        MappedEventLog eventLog = new MappedEventLog(path, 1);
+
+        assertThrows(BankLedgerInternalException.class, () -> eventLog.appendAll(List.of(
+                event("user1", "msg1", DebitCredit.CREDIT, 100, true),
+                event("user1", "m".repeat(101), DebitCredit.CREDIT, 50, true))));
+
+        assertEquals(0, eventLog.getRecordCount());
+        assertTrue(eventLog.findByMessageId("msg1").isEmpty());
+        eventLog.shutdown();
+    }
+
+    @Test
+    void retract_ReversesTheEventsAfterRestart() throws Exception {
+        String path = directory.resolve("ledger.log").toString();
+        MappedEventLog eventLog = new MappedEventLog(path, 1);
+        eventLog.append(event("user1", "msg1", DebitCredit.CREDIT, 100, true));
+        Event rolledBack = event("user1", "msg2", DebitCredit.CREDIT, 50, true);
+        eventLog.appendAll(List.of(rolledBack, event("user1", "msg3", DebitCredit.DEBIT, 30, true)));
+        // The snapshot already covers the events when their transaction rolls back
+        eventLog.snapshot();
+
+        eventLog.retract(List.of(rolledBack, event("user1", "msg3", DebitCredit.DEBIT, 30, true)));
+
+        assertTrue(eventLog.findByMessageId("msg2").isEmpty());
+        // msg3 was recorded by another event, it is not retracted
+        assertTrue(eventLog.findByMessageId("msg3").isPresent());
+        Event retry = event("user1", "msg2", DebitCredit.CREDIT, 50, true);
+        eventLog.append(retry);
+        eventLog.shutdown();
+
+        MappedEventLog reopened = new MappedEventLog(path, 1);
+
+        assertEquals(120, reopened.getRecoveredBalances().get("user1"));
+        assertEquals(retry.getEventId(), reopened.findByMessageId("msg2").get().getEventId());
+        reopened.shutdown();
+    }
+
+    private Event event(String userId, String messageId, DebitCredit type, long amount, boolean success) {
+        return Event.builder().eventId(UUID.randomUUID()).auditTimestamp(LocalDateTime.now()).userId(userId)
+                .messageId(messageId).amount(0).transactionType(type).transactionAmount(amount)
+                .isSuccessIndicator(success).build();
+    }
+}
@@ -0,0 +1,50 @@
+package dev.codescreen.utils.test;
+
+import dev.codescreen.utils.EventIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventIdsTest {
+
+    @Test
+    void next_IsVersion7WithTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID eventId = EventIds.next();
+
+        assertEquals(7, eventId.version());
+        assertEquals(2, eventId.variant());
+        assertTrue(EventIds.timestamp(eventId) >= before);
+        assertTrue(EventIds.timestamp(eventId) <= System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    void next_IsStrictlyIncreasingAndUniqueAcrossThreads() throws Exception {
+        Set<UUID> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                UUID previous = EventIds.next();
+                seen.add(previous);
+                for (int i = 0; i < 50_000; i++) {
+                    UUID next = EventIds.next();
+                    assertTrue(next.compareTo(previous) > 0);
+                    seen.add(next);
+                    previous = next;
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4 * 50_001, seen.size());
+    }
+}
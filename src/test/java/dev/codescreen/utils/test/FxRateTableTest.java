@@ -0,0 +1,46 @@
+package dev.codescreen.utils.test;
+
+import dev.codescreen.exceptions.UnsupportedCurrency;
+import dev.codescreen.utils.FxRateTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxRateTableTest {
+
+    @Test
+    void toUSD_ConvertsWithHalfEvenRounding() throws Exception {
+        FxRateTable rates = FxRateTable.read(new StringReader("EUR=1.0842\nJPY = 0.0067\n# comment\nGBP=1.25"));
+
+        assertEquals(4, rates.size());
+        assertEquals(10000, rates.toUSD(10000, "USD"));
+        assertEquals(10842, rates.toUSD(10000, "EUR"));
+        assertEquals(67, rates.toUSD(10000, "JPY"));
+        assertEquals(2, rates.toUSD(2, "EUR"));
+        assertEquals(2, rates.toUSD(2, "GBP"));
+        assertEquals(4, rates.toUSD(3, "GBP"));
+        assertEquals(-10842, rates.toUSD(-10000, "EUR"));
+        assertEquals(11529215046068469L, rates.toUSD(Long.MAX_VALUE / 1000, "GBP"));
+    }
+
+    @Test
+    void toUSD_RejectsCurrenciesWithoutARate() {
+        FxRateTable rates = FxRateTable.of(Map.of("EUR", "1.1"));
+
+        assertThrows(UnsupportedCurrency.class, () -> rates.toUSD(100, "GBP"));
+        assertThrows(UnsupportedCurrency.class, () -> rates.toUSD(100, "usd"));
+        assertThrows(UnsupportedCurrency.class, () -> rates.toUSD(100, "US"));
+        assertThrows(UnsupportedCurrency.class, () -> rates.toUSD(100, null));
+        assertThrows(UnsupportedCurrency.class, () -> FxRateTable.USD_ONLY.toUSD(100, "EUR"));
+    }
+
+    @Test
+    void of_RejectsInvalidEntries() {
+        assertThrows(IllegalArgumentException.class, () -> FxRateTable.of(Map.of("EURO", "1.1")));
+        assertThrows(IllegalArgumentException.class, () -> FxRateTable.of(Map.of("EUR", "abc")));
+        assertThrows(IllegalArgumentException.class, () -> FxRateTable.of(Map.of("EUR", "0")));
+    }
+}
@@ -0,0 +1,43 @@
+package dev.codescreen.utils.test;
+
+import dev.codescreen.utils.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void parse_ValidAmounts() {
+        assertEquals(10000, Money.parse("100"));
+        assertEquals(323, Money.parse("3.23"));
+        assertEquals(320, Money.parse("3.2"));
+        assertEquals(300, Money.parse("3."));
+        assertEquals(50, Money.parse(".5"));
+        assertEquals(5001, Money.parse(" 50.010 "));
+        assertEquals(-1025, Money.parse("-10.25"));
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+    }
+
+    @Test
+    void parse_InvalidAmounts() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("somestring"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+        assertThrows(NumberFormatException.class, () -> Money.parse("."));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.2.3"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.005"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1e3"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(null));
+    }
+
+    @Test
+    void format_MatchesPreviousFormatting() {
+        long[] amounts = {0, 1, 99, 100, 323, 123456, 100000000, -5, -123456789, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long amount : amounts) {
+            assertEquals(String.format("%,.2f", BigDecimal.valueOf(amount, 2)), Money.format(amount));
+        }
+    }
+}